@@ -2,11 +2,12 @@
 //
 package org.matthiaszimmermann.location.egm96;
 
+import java.io.File;
 import java.io.InputStream;
 
 public class Geoid {
 
-    public static boolean init(InputStream is) {
+    public static boolean init(InputStream is, File gridFile) {
         return false;
     }
 
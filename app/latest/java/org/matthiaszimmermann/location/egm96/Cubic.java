@@ -15,9 +15,20 @@ class Cubic
    };
 
    private final double[][] C = new double[4][4];    // bicubic coefficients matrix
+   private final double[][] t = new double[4][4];
 
    Cubic(double[][] G) {
-      double[][] t = new double[4][4];
+      set(G);
+   }
+
+   // Recalculate the coefficients for a new grid, without allocating
+   void set(double[][] G) {
+      for (int i = 0; i < 4 ; i++)
+      for (int j = 0 ; j < 4 ; j++) {
+         t[i][j] = 0;
+         C[i][j] = 0;
+      }
+
       for (int i = 0; i < 4 ; i++)    // T = G MT
       for (int j = 0 ; j < 4 ; j++)
       for (int k = 0 ; k < 4 ; k++)
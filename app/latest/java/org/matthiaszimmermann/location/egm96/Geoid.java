@@ -1,14 +1,24 @@
 package org.matthiaszimmermann.location.egm96;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-
-import org.matthiaszimmermann.location.Location;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * offline <a href="https://en.wikipedia.org/wiki/Geoid">geoid</a> implementation based on the data provided 
  * by the <a href="http://earth-info.nga.mil/GandG/wgs84/gravitymod/egm96/intpt.html">online caluclator</a>.
  * 
+ * The compressed offsets are expanded once to a grid file, that is memory mapped
+ * instead of read to the heap. Lookups do not allocate, the coefficients for the
+ * last grid cell are kept.
+ * 
  * @author matthiaszimmermann
  *
  */
@@ -33,83 +43,125 @@ public class Geoid {
 	private static final double LONGITIDE_MAX = 360.0;
 	private static final double LONGITIDE_STEP = 0.25;
 
-	//Store in 'fixed point format' 16-bit short (in 1/100m (cm)) instead of 64-bit double
-	private static final short [][] offset = new short[ROWS][COLS];
-	private static short offset_north_pole = 0;
-	private static short offset_south_pole = 0;
+	//Stored in 'fixed point format' 16-bit short (in 1/100m (cm)) instead of 64-bit double
+	//The grid file has the north pole, the grid rows and the south pole
+	private static final int NORTH_POLE_INDEX = 0;
+	private static final int SOUTH_POLE_INDEX = 1 + ROWS * COLS;
+	private static final long GRID_FILE_SIZE = 2 * (2 + ROWS * COLS);
+	private static ShortBuffer offset = null;
 	private static boolean s_model_ok = false;
 
+	//The last grid cell used for bicubic interpolation
+	private static final double [] cellLat = new double[4];
+	private static final double [] cellLng = new double[4];
+	private static final double [][] cellG = new double[4][4];
+	private static Cubic cellCubic = null;
+	private static double cellLat11 = Double.NaN;
+	private static double cellLng11 = Double.NaN;
+
+	/**
+	 * @param is the compressed offsets, only read if the grid file is not created yet
+	 * @param gridFile the expanded grid, to be memory mapped
+	 */
 	@SuppressWarnings("UnusedReturnValue")
-	public static boolean init(InputStream is) {
+	public static synchronized boolean init(InputStream is, File gridFile) {
 		if(s_model_ok) {
 			return true;
 		}
 
 		try {
+			if(gridFile.length() != GRID_FILE_SIZE) {
+				File tmp = new File(gridFile.getPath() + ".tmp");
+				DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+				boolean ok;
+				try {
+					ok = readGeoidOffsetsD(new BufferedInputStream(is), os);
+				}
+				finally {
+					os.close();
+				}
+				if(!ok || !tmp.renameTo(gridFile)) {
+					//noinspection ResultOfMethodCallIgnored
+					tmp.delete();
+					return false;
+				}
+			}
 
-			s_model_ok = readGeoidOffsetsD(new BufferedInputStream(is));
+			RandomAccessFile file = new RandomAccessFile(gridFile, "r");
+			try {
+				//The mapping is valid after the channel is closed
+				offset = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, GRID_FILE_SIZE).asShortBuffer();
+			}
+			finally {
+				file.close();
+			}
+			cellLat11 = Double.NaN;
+			s_model_ok = true;
 		}
 		catch (Exception e) {
 			s_model_ok = false;
 			System.err.println("failed to read stream "+e);
 		}
+		finally {
+			try {
+				is.close();
+			}
+			catch (IOException e) {
+				//ignore
+			}
+		}
 
 		return s_model_ok;
 	}
 
-	public static double getOffset(double lat, double lon) {
-        Location location = new Location(lat, lon);
-        return getOffset(location);
-    }
+	public static synchronized double getOffset(double lat, double lng) {
+		lat = normalizeLat(lat);
+		lng = normalizeLng(lng);
 
-    private static double getOffset(Location location) {
-		double lat = location.getLatitude();
-		double lng = location.getLongitude();
-		
 		// special case for exact grid positions
 		if(latIsGridPoint(lat) && lngIsGridPoint(lng)) {
 			return getGridOffset(lat, lng);
 		}
-		
-		Location [][] q = new Location[4][4];
-		
+
 		// get four grid locations surrounding the target location
 		// used for bilinear interpolation
-		q[1][1] = getGridFloorLocation(lat, lng);
-		q[1][2] = getUpperLocation(q[1][1]);
-		q[2][1] = getRightLocation(q[1][1]);
-		q[2][2] = getUpperLocation(q[2][1]);
-		
+		double lat11 = getGridFloorLat(lat);
+		double lng11 = normalizeLng(Math.floor(lng / LATITUDE_STEP) * LATITUDE_STEP);
+		double lat12 = getUpperLat(lat11);
+		double lng21 = getRightLng(lng11);
+
 		// check if we can get points for bicubic interpolation
-		if(q[1][1].getLatitude() >= LATITUDE_MIN_GRID && q[1][2].getLatitude() <= LATITUDE_MAX_GRID) {
-			// left column
-			q[0][1] = getLeftLocation(q[1][1]);
-			q[0][2] = getUpperLocation(q[0][1]);
-			q[0][3] = getUpperLocation(q[0][2]);
-			
-			// top row
-			q[1][3] = getRightLocation(q[0][3]);
-			q[2][3] = getRightLocation(q[1][3]);
-			q[2][3] = getRightLocation(q[1][3]);
-			q[3][3] = getRightLocation(q[2][3]);
-			
-			// bottom row
-			q[0][0] = getLowerLocation(q[0][1]);
-			q[1][0] = getRightLocation(q[0][0]);
-			q[1][0] = getRightLocation(q[0][0]);
-			q[2][0] = getRightLocation(q[1][0]);
-
-			// right column
-			q[3][0] = getRightLocation(q[2][0]);
-			q[3][1] = getUpperLocation(q[3][0]);
-			q[3][2] = getUpperLocation(q[3][1]);
-						
-//			return bilinearInterpolation(location, q[1][1], q[1][2], q[2][1], q[2][2]);
-			return bicubicSplineInterpolation(location, q);
-			
+		if(lat11 >= LATITUDE_MIN_GRID && lat12 <= LATITUDE_MAX_GRID) {
+			if(lat11 != cellLat11 || lng11 != cellLng11) {
+				// rows from bottom, columns from left
+				cellLat[0] = getLowerLat(lat11);
+				cellLat[1] = lat11;
+				cellLat[2] = lat12;
+				cellLat[3] = getUpperLat(lat12);
+				cellLng[0] = getLeftLng(lng11);
+				cellLng[1] = lng11;
+				cellLng[2] = lng21;
+				cellLng[3] = getRightLng(lng21);
+				for(int i = 0; i < 4; i++) {
+					for(int j = 0; j < 4; j++) {
+						cellG[i][j] = getGridOffset(cellLat[j], cellLng[i]);
+					}
+				}
+				if(cellCubic == null) {
+					cellCubic = new Cubic(cellG);
+				}
+				else {
+					cellCubic.set(cellG);
+				}
+				cellLat11 = lat11;
+				cellLng11 = lng11;
+			}
+
+//			return bilinearInterpolation(lat, lng, lat11, lng11, lat12, lng21);
+			return bicubicSplineInterpolation(lat, lng, lat11, lng11);
 		}
 		else {
-			return bilinearInterpolation(location, q[1][1], q[1][2], q[2][1], q[2][2]);
+			return bilinearInterpolation(lat, lng, lat11, lng11, lat12, lng21);
 		}
 	}
 	
@@ -118,24 +170,24 @@ public class Geoid {
 	 * @see <a href="https://en.wikipedia.org/wiki/Bilinear_interpolation">wikipedia Bilinear_interpolation</a>
 	 * @return  the lineary interpolated value
 	 */
-	private static double bilinearInterpolation(Location target, Location q11, Location q12, Location q21, Location q22) {
-		double fq11 = getGridOffset(q11); // lower left
-		double fq12 = getGridOffset(q12); // upper left
-		double fq21 = getGridOffset(q21); // lower right
-		double fq22 = getGridOffset(q22); // upper right
+	private static double bilinearInterpolation(double lat, double lng, double lat11, double lng11, double lat12, double lng21) {
+		double fq11 = getGridOffset(lat11, lng11); // lower left
+		double fq12 = getGridOffset(lat12, lng11); // upper left
+		double fq21 = getGridOffset(lat11, lng21); // lower right
+		double fq22 = getGridOffset(lat12, lng21); // upper right
 		
-		double x1 = q11.getLongitude();
-		double x2 = q22.getLongitude();
-		double y1 = q22.getLatitude();
-		double y2 = q11.getLatitude();
+		double x1 = lng11;
+		double x2 = lng21;
+		double y1 = lat12;
+		double y2 = lat11;
 		
 		// special case for latitude moving from 359.75 -> 0
 		if(x1 == 359.75 && x2 == 0.0) {
 			x2 = 360.0;
 		}
 		
-		double x = target.getLongitude();
-		double y = target.getLatitude();
+		double x = lng;
+		double y = lat;
 		
 		double f11 = fq11 * (x2 - x) * (y2 - y);
 		double f12 = fq12 * (x2 - x) * (y - y1);
@@ -154,29 +206,14 @@ public class Geoid {
 	 * @see <a href="http://mrl.nyu.edu/~perlin/cubic/Cubic_java.html">Gubic</a>
 	 * @return bicubic spline
 	 */	
-    private static double bicubicSplineInterpolation(Location target, Location[][] grid) {
-		double G [][] = new double [4][4];
+	private static double bicubicSplineInterpolation(double lat, double lng, double lat11, double lng11) {
+		double u = (lat - lat11 + LATITUDE_STEP) / (4 * LATITUDE_STEP);
+		double v = (lng - lng11 + LONGITIDE_STEP) / (4 * LONGITIDE_STEP);
 
-		for(int i = 0; i < 4; i++) {
-			for(int j = 0; j < 4; j++) {
-				G[i][j] = getGridOffset(grid[i][j]);
-			}
-		}
-		
-		double u1 = grid[1][1].getLatitude();
-		double v1 = grid[1][1].getLongitude();
-				
-		double u = (target.getLatitude() - u1 + LATITUDE_STEP) / (4 * LATITUDE_STEP);
-		double v = (target.getLongitude() - v1 + LONGITIDE_STEP) / (4 * LONGITIDE_STEP);
-		Cubic c = new Cubic(G);
-		
-    	return c.eval(u, v);
-    }	
-    
-	private static Location getUpperLocation(Location location) {
-		double lat = location.getLatitude();
-		double lng = location.getLongitude();
-		
+		return cellCubic.eval(u, v);
+	}
+
+	private static double getUpperLat(double lat) {
 		if(lat == LATITUDE_MAX_GRID) {
 			lat = LATITUDE_MAX;
 		}
@@ -193,17 +230,14 @@ public class Geoid {
 			lat += LATITUDE_STEP;
 		}
 		
-		return new Location(lat, lng);
+		return normalizeLat(lat);
 	}
 	
-	private static Location getLowerLocation(Location location) {
-		double lat = location.getLatitude();
-		double lng = location.getLongitude();
-		
+	private static double getLowerLat(double lat) {
 		if(lat == LATITUDE_MIN_GRID) {
 			lat = LATITUDE_MIN;
 		}
-		else if(lat == LATITUDE_ROW_FIRST) {
+		else if(lat == LATITUDE_ROW_LAST) {
 			lat = LATITUDE_MIN_GRID;
 		}
 		else if(lat == LATITUDE_MAX) {
@@ -216,26 +250,19 @@ public class Geoid {
 			lat -= LATITUDE_STEP;
 		}
 		
-		return new Location(lat, lng);
+		return normalizeLat(lat);
 	}
 	
-	private static Location getLeftLocation(Location location) {
-		double lat = location.getLatitude();
-		double lng = location.getLongitude();
-		
-		return new Location(lat, lng - LATITUDE_STEP);
+	private static double getLeftLng(double lng) {
+		return normalizeLng(lng - LATITUDE_STEP);
 	}
 	
-	private static Location getRightLocation(Location location) {
-		double lat = location.getLatitude();
-		double lng = location.getLongitude();
-		
-		return new Location(lat, lng + LATITUDE_STEP);
+	private static double getRightLng(double lng) {
+		return normalizeLng(lng + LATITUDE_STEP);
 	}
 	
-	private static Location getGridFloorLocation(double lat, double lng) {
-		Location floor = (new Location(lat, lng)).floor();
-		double latFloor = floor.getLatitude();
+	private static double getGridFloorLat(double lat) {
+		double latFloor = normalizeLat(Math.floor(lat / LATITUDE_STEP) * LATITUDE_STEP);
 		
 		if(lat >= LATITUDE_MAX_GRID && lat < LATITUDE_MAX) { 
 			latFloor = LATITUDE_MAX_GRID; 
@@ -247,13 +274,45 @@ public class Geoid {
 			latFloor = LATITUDE_MIN_GRID; 
 		}
 		
-		return new Location(latFloor, floor.getLongitude());
+		return latFloor;
 	}
-	
-	private static double getGridOffset(Location location) {
-		return getGridOffset(location.getLatitude(), location.getLongitude());
+
+	// as org.matthiaszimmermann.location.Location
+	private static double normalizeLat(double lat) {
+		if(lat > 90.0) {
+			return normalizeLatPositive(lat);
+		}
+		else if(lat < -90) {
+			return -normalizeLatPositive(-lat);
+		}
+
+		return lat;
+	}
+
+	private static double normalizeLatPositive(double lat) {
+		double delta = (lat -  90.0) % 360.0;
+
+		if(delta <= 180.0) {
+			lat = 90.0 - delta;
+		}
+		else {
+			lat = delta - 270.0;
+		}
+
+		return lat;
 	}
 
+	private static double normalizeLng(double lng) {
+		lng %= 360.0;
+
+		if(lng >= 0.0) {
+			return lng;
+		}
+		else {
+			return lng + 360;
+		}
+	}
+	
 	private static double getGridOffset(double lat, double lng) {
 		return getGridOffsetS(lat, lng)/100.0d;
 	}
@@ -268,17 +327,17 @@ public class Geoid {
 		
 		if(latIsPole(lat)) {
 			if(lat == LATITUDE_MAX) {
-				return offset_north_pole;
+				return offset.get(NORTH_POLE_INDEX);
 			}
 			else {
-				return offset_south_pole;
+				return offset.get(SOUTH_POLE_INDEX);
 			}
 		}
 		
 		int i = latToI(lat);
 		int j = lngToJ(lng);
 		
-		return offset[i][j];
+		return offset.get(1 + i * COLS + j);
 	}
 
     //Get offsets from a definition file where the data is stored in a compressed format
@@ -296,8 +355,9 @@ public class Geoid {
 	//One byte data is stored with an offset of 64, so the first bit is never set
 	//For two bytes, the data is stored as 0xc000+offset, so first bit is always set
 	//Last, the south pole offset is added negatively, to get last offset as 0 (used as a check)
+	//The offsets are written to os in the grid file order
 
-	private static boolean readGeoidOffsetsD(BufferedInputStream is) throws Exception {
+	private static boolean readGeoidOffsetsD(BufferedInputStream is, DataOutputStream os) throws Exception {
 		//BufferedReader _may_ increase the performance
 		final byte[] buf = new byte[1000];
 		int bufRead = 0;
@@ -321,22 +381,19 @@ public class Geoid {
 				}
 				prevByte=c;
 				if (!prevIsTwo) {
-					if (offsetCount < 0) {
-						offset_north_pole = (short) off;
-					} else if (offsetCount == ROWS * COLS) {
-						offset_south_pole = (short) off;
+					if (offsetCount <= ROWS * COLS) {
+						//north pole, grid and south pole
+						os.writeShort(off);
 					} else if (offsetCount == 1 + ROWS * COLS) {
 						if (off == 0) {
 							allRead = true;
 						} else {
 							System.err.println("Offset is not 0 at southpole "+offsetCount / COLS + " "+offsetCount % COLS + " "+off+" "+c);
 						}
-					} else if (offsetCount > ROWS * COLS) {
+					} else {
 						//Should not occur
 						allRead = false;
 						System.err.println("Unexpected data "+offsetCount / COLS + " "+offsetCount % COLS + " "+off+" "+c);
-					} else {
-						offset[offsetCount / COLS][offsetCount % COLS] = (short) off;
 					}
 					offsetCount++;
 				}
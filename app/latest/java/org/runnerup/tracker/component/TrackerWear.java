@@ -21,7 +21,6 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
@@ -50,6 +49,7 @@ import org.runnerup.common.util.ValueModel;
 import org.runnerup.tracker.Tracker;
 import org.runnerup.tracker.WorkoutObserver;
 import org.runnerup.util.Formatter;
+import org.runnerup.util.TickListener;
 import org.runnerup.workout.Dimension;
 import org.runnerup.workout.Intensity;
 import org.runnerup.workout.Scope;
@@ -78,7 +78,6 @@ public class TrackerWear extends DefaultTrackerComponent
     //private final HashSet<Node> connectedNodes = new HashSet<>();
     private String wearNode;
 
-    private final Handler handler = new Handler();
     private Bundle lastCreatedWorkoutEvent;
     private Bundle lastSentWorkoutEvent;
     private boolean mWorkoutSenderRunning = false;
@@ -387,22 +386,21 @@ public class TrackerWear extends DefaultTrackerComponent
         }
     }
 
-    private final Runnable workoutEventSender = new Runnable() {
+    private final TickListener workoutEventSender = new TickListener() {
         @Override
-        public void run() {
+        public void onTick() {
             sendWorkoutEvent();
-            mWorkoutSenderRunning = false;
 
-            if (!isConnected())
-                return;
-
-            if (currentStep == null)
+            if (!isConnected() || currentStep == null) {
+                tracker.getTickScheduler().unregister(this);
+                mWorkoutSenderRunning = false;
                 return;
+            }
 
             mWorkoutSenderRunning = true;
             long tickFrequencyPause = 500; // so that seconds does show "slowly"
             long tickFrequency = 1000;
-            handler.postDelayed(workoutEventSender,
+            tracker.getTickScheduler().register(this,
                     pauseStep ? tickFrequencyPause : tickFrequency);
         }
     };
@@ -413,7 +411,7 @@ public class TrackerWear extends DefaultTrackerComponent
 
         if (!mWorkoutSenderRunning) {
             // this starts workout sender
-            workoutEventSender.run();
+            workoutEventSender.onTick();
         }
 
         if (currentStep == null) {
@@ -565,7 +563,7 @@ public class TrackerWear extends DefaultTrackerComponent
                 lastCreatedWorkoutEvent = lastSentWorkoutEvent;
             }
             if (!mWorkoutSenderRunning)
-                workoutEventSender.run();
+                workoutEventSender.onTick();
             else
                 sendWorkoutEvent();
         } else if (ev.getType() == DataEvent.TYPE_DELETED) {
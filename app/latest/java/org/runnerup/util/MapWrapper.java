@@ -48,7 +48,7 @@ import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
 import org.runnerup.BuildConfig;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants;
-import org.runnerup.db.entities.LocationEntity;
+import org.runnerup.db.TrackColumns;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -158,14 +158,14 @@ public class MapWrapper implements Constants {
         protected Route doInBackground(LoadParam... params) {
 
             Route route = new Route();
-            LocationEntity.LocationList<LocationEntity> ll = new LocationEntity.LocationList<>(params[0].mDB, params[0].mID);
+            TrackColumns track = TrackColumns.load(params[0].mDB, params[0].mID);
             IconFactory iconFactory = IconFactory.getInstance(params[0].context);
 
             int lastLap = 0;
-            for (LocationEntity loc : ll) {
-                LatLng point = new LatLng(loc.getLatitude(), loc.getLongitude());
+            for (int i = 0; i < track.count; i++) {
+                LatLng point = new LatLng(track.latitude[i], track.longitude[i]);
                 route.path.add(point);
-                int type = loc.getType();
+                int type = track.type[i];
                 MarkerViewOptions m;
                 String title = "";
                 Integer iconId = null;
@@ -194,16 +194,16 @@ public class MapWrapper implements Constants {
                         break;
                 }
 
-                if (lastLap != loc.getLap()) {
+                if (lastLap != track.lap[i]) {
                     if (lastLap >= 0) {
-                        title = context.getString(R.string.cue_lap) + " " + loc.getLap();
+                        title = context.getString(R.string.cue_lap) + " " + track.lap[i];
                     }
                     iconId = R.drawable.ic_map_marker_lap;
-                    lastLap = loc.getLap();
+                    lastLap = track.lap[i];
                 }
                 if (iconId != null) {
-                    String snippet = formatter.formatDistance(TXT_SHORT, loc.getDistance().longValue()) + " " +
-                            formatter.formatElapsedTime(TXT_SHORT, Math.round(loc.getElapsed() / 1000.0));
+                    String snippet = formatter.formatDistance(TXT_SHORT, (long) track.distance[i]) + " " +
+                            formatter.formatElapsedTime(TXT_SHORT, Math.round(track.elapsed[i] / 1000.0));
                     Icon icon = iconFactory.fromBitmap(BitmapFactory.decodeResource(context.getResources(),iconId));
                     m = new MarkerViewOptions().title(title).position(point).snippet(snippet).icon(icon).anchor(0.5f, 86f / 96f);
 
@@ -213,7 +213,6 @@ public class MapWrapper implements Constants {
                     route.markers.add(m);
                 }
             }
-            ll.close();
             //Track is ended with a pause, replace with end
             if (!route.markers.isEmpty()) {
                 MarkerViewOptions m = route.markers.get(route.markers.size() - 1);
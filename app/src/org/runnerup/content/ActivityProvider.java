@@ -17,6 +17,7 @@
 
 package org.runnerup.content;
 
+import android.annotation.TargetApi;
 import android.content.ContentProvider;
 import android.content.ContentValues;
 import android.content.Context;
@@ -25,6 +26,7 @@ import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Build;
 import android.os.ParcelFileDescriptor;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
@@ -140,6 +142,11 @@ public class ActivityProvider extends ContentProvider {
                 final List<String> list = uri.getPathSegments();
                 final String id = list.get(list.size() - 2);
                 final long activityId = Long.parseLong(id);
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+                    return openPipe(res, activityId);
+                }
+
                 final String parcelFile = "activity." + list.get(list.size() - 3);
                 final Pair<File, OutputStream> out = openCacheFile(parcelFile);
                 if (out == null) {
@@ -149,45 +156,12 @@ public class ActivityProvider extends ContentProvider {
 
                 Log.e(getClass().getName(), "activity: " + activityId + ", file: "
                         + out.first.getAbsolutePath());
-                SQLiteDatabase mDB = DBHelper.getReadableDatabase(getContext());
                 try {
-                    if (res == TCX) {
-                        TCX tcx = new TCX(mDB);
-                        tcx.export(activityId, new OutputStreamWriter(out.second));
-                        Log.e(getClass().getName(), "export tcx");
-                    } else if (res == GPX) {
-                        final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this.getContext());
-                        //The data must exist if log, use the log option as a possibility to "deactivate" too
-                        boolean enabled = prefs.getBoolean(this.getContext().getString(org.runnerup.R.string.pref_log_gpx_accuracy), false);
-                        GPX gpx = new GPX(mDB, true, enabled);
-                        gpx.export(activityId, new OutputStreamWriter(out.second));
-                        Log.e(getClass().getName(), "export gpx");
-                    } else if (res == NIKE) {
-                        NikeXML xml = new NikeXML(mDB);
-                        xml.export(activityId, new OutputStreamWriter(out.second));
-                    } else if (res == MAPS) {
-                        GoogleStaticMap map = new GoogleStaticMap(mDB);
-                        String str = map.export(activityId, 2000);
-                        out.second.write(str.getBytes());
-                    } else if (res == FACEBOOK_COURSE) {
-                        FacebookCourse map = new FacebookCourse(getContext(), mDB);
-                        final boolean includeMap = true;
-                        String str = map.export(activityId, includeMap, null).toString();
-                        out.second.write(str.getBytes());
-                    } else {
-                       //noinspection ConstantConditions
-                       if (res == RUNKEEPER) {
-                            RunKeeper map = new RunKeeper(mDB);
-                            map.export(activityId, new OutputStreamWriter(out.second));
-                        }
-                    }
-                    out.second.flush();
-                    out.second.close();
+                    export(res, activityId, out.second);
                     Log.e(getClass().getName(), "wrote " + out.first.length() + " bytes...");
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
-                DBHelper.closeDB(mDB);
 
                 //noinspection UnnecessaryLocalVariable
                 ParcelFileDescriptor pfd = ParcelFileDescriptor.open(out.first,
@@ -198,6 +172,82 @@ public class ActivityProvider extends ContentProvider {
         throw new FileNotFoundException("Unsupported uri: " + uri.toString());
     }
 
+    /**
+     * Stream the export through a pipe, the reader gets data while the export is written
+     * and no cache file is needed.
+     */
+    @TargetApi(Build.VERSION_CODES.GINGERBREAD)
+    private ParcelFileDescriptor openPipe(final int res, final long activityId)
+            throws FileNotFoundException {
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Failed to create pipe: " + e.toString());
+        }
+
+        Log.e(getClass().getName(), "activity: " + activityId + ", streaming");
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                OutputStream out = new BufferedOutputStream(
+                        new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]));
+                try {
+                    export(res, activityId, out);
+                } catch (Exception e) {
+                    //Normally the reader closed the pipe
+                    Log.e(getClass().getName(), "Failed to stream activity " + activityId + ": " + e.toString());
+                    try {
+                        out.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }).start();
+
+        return pipe[0];
+    }
+
+    private void export(int res, long activityId, OutputStream out) throws Exception {
+        SQLiteDatabase mDB = DBHelper.getReadableDatabase(getContext());
+        try {
+            if (res == TCX) {
+                TCX tcx = new TCX(mDB);
+                tcx.export(activityId, new OutputStreamWriter(out));
+                Log.e(getClass().getName(), "export tcx");
+            } else if (res == GPX) {
+                final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this.getContext());
+                //The data must exist if log, use the log option as a possibility to "deactivate" too
+                boolean enabled = prefs.getBoolean(this.getContext().getString(org.runnerup.R.string.pref_log_gpx_accuracy), false);
+                GPX gpx = new GPX(mDB, true, enabled);
+                gpx.export(activityId, new OutputStreamWriter(out));
+                Log.e(getClass().getName(), "export gpx");
+            } else if (res == NIKE) {
+                NikeXML xml = new NikeXML(mDB);
+                xml.export(activityId, new OutputStreamWriter(out));
+            } else if (res == MAPS) {
+                GoogleStaticMap map = new GoogleStaticMap(mDB);
+                String str = map.export(activityId, 2000);
+                out.write(str.getBytes());
+            } else if (res == FACEBOOK_COURSE) {
+                FacebookCourse map = new FacebookCourse(getContext(), mDB);
+                final boolean includeMap = true;
+                String str = map.export(activityId, includeMap, null).toString();
+                out.write(str.getBytes());
+            } else {
+                //noinspection ConstantConditions
+                if (res == RUNKEEPER) {
+                    RunKeeper map = new RunKeeper(mDB);
+                    map.export(activityId, new OutputStreamWriter(out));
+                }
+            }
+            out.flush();
+            out.close();
+        } finally {
+            DBHelper.closeDB(mDB);
+        }
+    }
+
     @Override
     public int update(@NonNull Uri uri, ContentValues contentvalues, String s,
                       String[] as) {
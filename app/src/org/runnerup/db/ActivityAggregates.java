@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.db;
+
+import org.runnerup.common.util.Constants.DB;
+import org.runnerup.util.GeoDistance;
+
+import java.util.Arrays;
+
+/**
+ * Lap and activity aggregates (distance, time and hr) from the locations of
+ * an activity, added in one pass ordered by _id.
+ *
+ * The laps are aggregated as if the locations of each lap were read separately:
+ * a lap starts at its first location (the distance from the last location of the
+ * previous lap is not included) and locations for laps not in the lap table are ignored.
+ */
+class ActivityAggregates {
+
+    // Sorted lap numbers without duplicates, the index for the arrays
+    private final long[] lapNumbers;
+
+    final double[] distance;
+    final long[] time;
+    final long[] sumHr;
+    final int[] maxHr;
+    final int[] count;
+
+    long totalSumHr = 0;
+    int totalCount = 0;
+    int totalMaxHr = 0;
+
+    // The last location per lap
+    private final boolean[] hasLast;
+    private final double[] lastLatitude;
+    private final double[] lastLongitude;
+    private final long[] lastTime;
+    private int lastIndex = -1;
+
+    ActivityAggregates(long[] laps) {
+        long[] sorted = laps.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (long lap : sorted) {
+            if (n == 0 || sorted[n - 1] != lap) {
+                sorted[n++] = lap;
+            }
+        }
+        lapNumbers = new long[n];
+        System.arraycopy(sorted, 0, lapNumbers, 0, n);
+
+        distance = new double[n];
+        time = new long[n];
+        sumHr = new long[n];
+        maxHr = new int[n];
+        count = new int[n];
+        hasLast = new boolean[n];
+        lastLatitude = new double[n];
+        lastLongitude = new double[n];
+        lastTime = new long[n];
+    }
+
+    /**
+     * @return the index of the lap in the arrays, -1 if not a lap of the activity
+     */
+    int indexOf(long lap) {
+        if (lastIndex >= 0 && lapNumbers[lastIndex] == lap) {
+            return lastIndex;
+        }
+        int i = Arrays.binarySearch(lapNumbers, lap);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * Add a location
+     *
+     * @param hr 0 if not available
+     */
+    void add(long lap, int type, long time, double latitude, double longitude, int hr) {
+        final int i = indexOf(lap);
+        if (i < 0) {
+            return;
+        }
+        lastIndex = i;
+        switch (type) {
+            case DB.LOCATION.TYPE_START:
+            case DB.LOCATION.TYPE_RESUME:
+                break;
+            case DB.LOCATION.TYPE_END:
+            case DB.LOCATION.TYPE_PAUSE:
+            case DB.LOCATION.TYPE_GPS:
+                if (!hasLast[i]) {
+                    break;
+                }
+                distance[i] += GeoDistance.distanceBetween(latitude, longitude,
+                        lastLatitude[i], lastLongitude[i]);
+                this.time[i] += time - lastTime[i];
+                sumHr[i] += hr;
+                maxHr[i] = Math.max(maxHr[i], hr);
+                count[i]++;
+                totalSumHr += hr;
+                totalMaxHr = Math.max(totalMaxHr, hr);
+                totalCount++;
+                break;
+            default:
+                return;
+        }
+        hasLast[i] = true;
+        lastLatitude[i] = latitude;
+        lastLongitude[i] = longitude;
+        lastTime[i] = time;
+    }
+}
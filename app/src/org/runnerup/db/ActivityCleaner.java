@@ -24,139 +24,93 @@ import android.location.Location;
 import android.util.Log;
 
 import org.runnerup.common.util.Constants;
+import org.runnerup.export.format.ExportCache;
 
 import java.util.ArrayList;
 
 
 public class ActivityCleaner implements Constants {
-    private long _totalSumHr = 0;
-    private int _totalCount = 0;
-    private int _totalMaxHr = 0;
 
     /**
-     * recompute laps aggregates based on locations
+     * The lap numbers of the laps of an activity
      */
-    private void recomputeLaps(SQLiteDatabase db, long activityId) {
+    private static long[] queryLaps(SQLiteDatabase db, long activityId) {
         final String[] cols = new String[] {
                 DB.LAP.LAP
         };
 
-        ArrayList<Long> laps = new ArrayList<>();
         Cursor c = db.query(DB.LAP.TABLE, cols, DB.LAP.ACTIVITY + " = " + activityId,
                 null, null, null, "_id", null);
+        long[] laps = new long[c.getCount()];
+        int i = 0;
         if (c.moveToFirst()) {
             do {
-                laps.add(c.getLong(0));
+                laps[i++] = c.getLong(0);
             } while (c.moveToNext());
         }
         c.close();
-
-        for (long lap : laps) {
-            recomputeLap(db, activityId, lap);
-        }
+        return laps;
     }
 
     /**
-     * recompute a lap aggregate based on locations
+     * compute lap aggregates from all locations of the activity, read once
      */
-    private void recomputeLap(SQLiteDatabase db, long activityId, long lap) {
-        long sum_time = 0;
-        long sum_hr = 0;
-        double sum_distance = 0;
-        int count = 0;
-        int max_hr = 0;
+    private static ActivityAggregates aggregate(SQLiteDatabase db, long activityId, long[] laps) {
         final String[] cols = new String[] {
+                DB.LOCATION.LAP,
+                DB.LOCATION.TYPE,
                 DB.LOCATION.TIME,
                 DB.LOCATION.LATITUDE,
                 DB.LOCATION.LONGITUDE,
-                DB.LOCATION.TYPE,
                 DB.LOCATION.HR,
                 //DB.LOCATION.CADENCE,
                 //DB.LOCATION.TEMPERATURE,
                 //DB.LOCATION.PRESSURE,
-                "_id"
         };
 
-        Cursor c = db.query(DB.LOCATION.TABLE, cols, DB.LOCATION.ACTIVITY + " = " + activityId
-                + " and " + DB.LOCATION.LAP + " = " + lap,
+        ActivityAggregates aggregates = new ActivityAggregates(laps);
+        Cursor c = db.query(DB.LOCATION.TABLE, cols, DB.LOCATION.ACTIVITY + " = " + activityId,
                 null, null, null, "_id", null);
         if (c.moveToFirst()) {
-            Location lastLocation = null;
             do {
-                Location l = new Location("Dill poh");
-                l.setTime(c.getLong(0));
-                l.setLatitude(c.getDouble(1));
-                l.setLongitude(c.getDouble(2));
-                l.setProvider("" + c.getLong(3));
-
-                int type = c.getInt(3);
-                switch (type) {
-                    case DB.LOCATION.TYPE_START:
-                    case DB.LOCATION.TYPE_RESUME:
-                        lastLocation = l;
-                        break;
-                    case DB.LOCATION.TYPE_END:
-                    case DB.LOCATION.TYPE_PAUSE:
-                    case DB.LOCATION.TYPE_GPS:
-                        if (lastLocation == null) {
-                            lastLocation = l;
-                            break;
-                        }
-
-                        sum_distance += l.distanceTo(lastLocation);
-                        sum_time += l.getTime() - lastLocation.getTime();
-                        int hr = c.getInt(4);
-                        sum_hr += hr;
-                        max_hr = Math.max(max_hr, hr);
-                        _totalMaxHr = Math.max(_totalMaxHr, hr);
-                        count++;
-                        _totalCount++;
-                        _totalSumHr += hr;
-                        lastLocation = l;
-                        break;
-                }
+                aggregates.add(c.getLong(0), c.getInt(1), c.getLong(2),
+                        c.getDouble(3), c.getDouble(4), c.getInt(5));
             } while (c.moveToNext());
         }
         c.close();
-
-        ContentValues tmp = new ContentValues();
-        tmp.put(DB.LAP.DISTANCE, sum_distance);
-        tmp.put(DB.LAP.TIME, (sum_time / 1000));
-        if (sum_hr > 0) {
-            int hr = Math.round(sum_hr / count);
-            tmp.put(DB.LAP.AVG_HR, hr);
-            tmp.put(DB.LAP.MAX_HR, max_hr);
-        }
-        db.update(DB.LAP.TABLE, tmp, DB.LAP.ACTIVITY + " = " + activityId + " and " + DB.LAP.LAP
-                + " = " + lap, null);
+        return aggregates;
     }
 
     /**
-     * recompute an activity summary based on laps
+     * update the laps and the activity summary with the aggregates
      */
-    private void recomputeSummary(SQLiteDatabase db, long activityId) {
+    private static void update(SQLiteDatabase db, long activityId, long[] laps,
+                               ActivityAggregates aggregates) {
         long sum_time = 0;
         double sum_distance = 0;
-
-        final String[] cols = new String[] {
-                DB.LAP.DISTANCE,
-                DB.LAP.TIME
-        };
-        Cursor c = db.query(DB.LAP.TABLE, cols, DB.LAP.ACTIVITY + " = " + activityId,
-                null, null, null, "_id", null);
-        if (c.moveToFirst()) {
-            do {
-                sum_distance += c.getDouble(0);
-                sum_time += c.getLong(1);
-            } while (c.moveToNext());
+        ContentValues tmp = new ContentValues();
+        for (long lap : laps) {
+            final int i = aggregates.indexOf(lap);
+            sum_distance += aggregates.distance[i];
+            sum_time += aggregates.time[i] / 1000;
+
+            tmp.clear();
+            tmp.put(DB.LAP.DISTANCE, aggregates.distance[i]);
+            tmp.put(DB.LAP.TIME, (aggregates.time[i] / 1000));
+            if (aggregates.sumHr[i] > 0) {
+                int hr = Math.round(aggregates.sumHr[i] / aggregates.count[i]);
+                tmp.put(DB.LAP.AVG_HR, hr);
+                tmp.put(DB.LAP.MAX_HR, aggregates.maxHr[i]);
+            }
+            db.update(DB.LAP.TABLE, tmp, DB.LAP.ACTIVITY + " = " + activityId + " and " + DB.LAP.LAP
+                    + " = " + lap, null);
         }
-        c.close();
 
-        ContentValues tmp = new ContentValues();
-        if (_totalSumHr > 0) {
-            int hr = Math.round(_totalSumHr / _totalCount);
+        tmp.clear();
+        if (aggregates.totalSumHr > 0) {
+            int hr = Math.round(aggregates.totalSumHr / aggregates.totalCount);
             tmp.put(DB.ACTIVITY.AVG_HR, hr);
-            tmp.put(DB.ACTIVITY.MAX_HR, _totalMaxHr);
+            tmp.put(DB.ACTIVITY.MAX_HR, aggregates.totalMaxHr);
         }
         tmp.put(DB.ACTIVITY.DISTANCE, sum_distance);
         tmp.put(DB.ACTIVITY.TIME, sum_time); // also used as a flag for conditionalRecompute
@@ -179,9 +133,19 @@ public class ActivityCleaner implements Constants {
         c.close();
     }
 
+    /**
+     * recompute the laps and the activity summary from the locations, in one transaction
+     */
     public void recompute(SQLiteDatabase db, long activityId) {
-        recomputeLaps(db, activityId);
-        recomputeSummary(db, activityId);
+        DBHelper.beginTransaction(db);
+        try {
+            long[] laps = queryLaps(db, activityId);
+            update(db, activityId, laps, aggregate(db, activityId, laps));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        ExportCache.invalidate(activityId);
     }
 
     public static void trim(SQLiteDatabase db, long activityId) {
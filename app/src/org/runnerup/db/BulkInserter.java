@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.db;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Insert many rows with precompiled statements, one per table and column set,
+ * binding the values directly instead of a ContentValues insert (and implicit
+ * transaction) per row.
+ *
+ * The rows are inserted in one non exclusive transaction (see DBHelper.beginTransaction()),
+ * nested in the transaction of the caller if there is one. If yieldRows is set and the
+ * inserter owns the transaction, the rows inserted so far are committed and other threads
+ * may access the database every yieldRows rows.
+ *
+ * <pre>
+ * BulkInserter inserter = new BulkInserter(db);
+ * inserter.begin();
+ * try {
+ *     BulkInserter.Statement stmt = inserter.statement(table, column1, column2);
+ *     ...
+ *     inserter.setTransactionSuccessful();
+ * } finally {
+ *     inserter.end();
+ * }
+ * </pre>
+ */
+public class BulkInserter {
+
+    public class Statement {
+        private final SQLiteStatement statement;
+
+        Statement(String table, String[] columns) {
+            StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "" : ", ").append(columns[i]);
+            }
+            sql.append(") values (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            statement = db.compileStatement(sql.append(")").toString());
+        }
+
+        /**
+         * @param index the column index, starting at 1
+         */
+        public void bindLong(int index, long value) {
+            statement.bindLong(index, value);
+        }
+
+        public void bindDouble(int index, double value) {
+            statement.bindDouble(index, value);
+        }
+
+        public void bindString(int index, String value) {
+            if (value == null) {
+                statement.bindNull(index);
+            } else {
+                statement.bindString(index, value);
+            }
+        }
+
+        public void bindObject(int index, Object value) {
+            DatabaseUtils.bindObjectToProgram(statement, index, value);
+        }
+
+        /**
+         * Insert the bound values, unbound columns are null
+         *
+         * @return the row id, -1 if the insert failed
+         */
+        public long insert() {
+            long id;
+            try {
+                id = statement.executeInsert();
+            } catch (SQLException e) {
+                // Like SQLiteDatabase.insert(), for instance a constraint violation
+                Log.e(BulkInserter.class.getName(), "Error inserting " + statement + ": " + e);
+                id = -1;
+            }
+            statement.clearBindings();
+            onInsert(id);
+            return id;
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private final int yieldRows;
+    private final Map<String, Statement> statements = new HashMap<>();
+
+    private boolean ownTransaction = false;
+    private long startTime = 0;
+    private long rows = 0;
+    private long failedRows = 0;
+    private int rowsSinceYield = 0;
+
+    /**
+     * All rows are inserted in one transaction
+     */
+    public BulkInserter(SQLiteDatabase db) {
+        this(db, 0);
+    }
+
+    /**
+     * @param yieldRows yield the transaction every yieldRows rows, 0 for never
+     */
+    public BulkInserter(SQLiteDatabase db, int yieldRows) {
+        this.db = db;
+        this.yieldRows = yieldRows;
+    }
+
+    public void begin() {
+        ownTransaction = !db.inTransaction();
+        DBHelper.beginTransaction(db);
+        startTime = System.nanoTime();
+    }
+
+    public void setTransactionSuccessful() {
+        db.setTransactionSuccessful();
+    }
+
+    /**
+     * End the transaction and release the statements
+     */
+    public void end() {
+        try {
+            db.endTransaction();
+        } finally {
+            for (Statement s : statements.values()) {
+                s.statement.close();
+            }
+            statements.clear();
+        }
+        if (rows + failedRows > 0) {
+            Log.i(getClass().getName(), "Inserted " + rows + " rows (" + failedRows + " failed) in "
+                    + (System.nanoTime() - startTime) / 1000000 + " ms, "
+                    + (long) getRowsPerSecond() + " rows/s");
+        }
+    }
+
+    /**
+     * The statement for the table and columns, compiled on first use
+     */
+    public Statement statement(String table, String... columns) {
+        StringBuilder key = new StringBuilder(table);
+        for (String c : columns) {
+            key.append(',').append(c);
+        }
+        Statement s = statements.get(key.toString());
+        if (s == null) {
+            s = new Statement(table, columns);
+            statements.put(key.toString(), s);
+        }
+        return s;
+    }
+
+    /**
+     * Insert a row, with the same semantics as SQLiteDatabase.insert()
+     *
+     * @return the row id, -1 if the insert failed
+     */
+    public long insert(String table, String nullColumnHack, ContentValues values) {
+        String[] columns = new String[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> e : values.valueSet()) {
+            columns[i++] = e.getKey();
+        }
+        if (columns.length == 0) {
+            if (nullColumnHack == null) {
+                // SQLiteDatabase.insert() fails too, a row needs one column
+                Log.e(getClass().getName(), "Error inserting an empty row in " + table);
+                onInsert(-1);
+                return -1;
+            }
+            return statement(table, nullColumnHack).insert();
+        }
+        // the same statement regardless of the order in values
+        Arrays.sort(columns);
+        Statement s = statement(table, columns);
+        for (i = 0; i < columns.length; i++) {
+            s.bindObject(i + 1, values.get(columns[i]));
+        }
+        return s.insert();
+    }
+
+    private void onInsert(long id) {
+        if (id == -1) {
+            failedRows++;
+        } else {
+            rows++;
+        }
+        if (yieldRows > 0 && ownTransaction && ++rowsSinceYield >= yieldRows) {
+            rowsSinceYield = 0;
+            db.yieldIfContendedSafely();
+        }
+    }
+
+    /**
+     * @return the number of inserted rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public double getRowsPerSecond() {
+        long nanos = System.nanoTime() - startTime;
+        return nanos > 0 ? rows * 1e9 / nanos : 0;
+    }
+}
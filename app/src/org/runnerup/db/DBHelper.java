@@ -19,15 +19,21 @@ package org.runnerup.db;
 
 import android.annotation.TargetApi;
 import android.support.v7.app.AlertDialog;
-import android.app.ProgressDialog;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.Intent;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.AsyncTask;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.runnerup.R;
@@ -52,19 +58,36 @@ import org.runnerup.export.RunningAHEADSynchronizer;
 import org.runnerup.export.RunningFreeOnlineSynchronizer;
 import org.runnerup.export.RuntasticSynchronizer;
 import org.runnerup.export.StravaSynchronizer;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.util.FileUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @TargetApi(Build.VERSION_CODES.FROYO)
 public class DBHelper extends SQLiteOpenHelper implements
         Constants {
 
-    private static final int DBVERSION = 31;
+    private static final int DBVERSION = 34;
     private static final String DBNAME = "runnerup.db";
 
+    //WAL (API 11+): readers are not blocked by the writer, with synchronous=NORMAL
+    //commits are not synced (only checkpoints). Set in onOpen(), outside a transaction.
+    //Page cache for the writing connection
+    private static final int CACHE_SIZE_KB = 4096;
+    //Checkpoints are normally done by requestCheckpoint(), this is the limit when committing
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 4000;
+    private static final long CHECKPOINT_DELAY_MILLIS = 60000;
+    //Begin transaction taking longer than this is counted as waiting for a lock
+    private static final long LOCK_WAIT_NANOS = 5000000;
+    //Free pages are returned to the file system in slices, see incrementalVacuum()
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final int VACUUM_PAGES_PER_SLICE = 256;
+    private static final long VACUUM_SLICE_PAUSE_MILLIS = 50;
+
     //DBVERSION update
     //private static final String CREATE_TABLE_DBINFO = "create table "
     //        + DB.DBINFO.TABLE + " ( "
@@ -154,6 +177,26 @@ public class DBHelper extends SQLiteOpenHelper implements
             + DB.EXPORT.EXTRA + " integer not null default 1" //DBVERSION update: remove
             + ");";
 
+    private static final String CREATE_TABLE_SYNC_QUEUE = "create table "
+            + DB.SYNC_QUEUE.TABLE + " ( "
+            + ("_id integer primary key autoincrement, ")
+            + (DB.SYNC_QUEUE.ACTIVITY + " integer not null, ")
+            + (DB.SYNC_QUEUE.ACCOUNT + " integer not null, ")
+            + (DB.SYNC_QUEUE.STATE + " integer not null default 0, ")
+            + (DB.SYNC_QUEUE.ATTEMPTS + " integer not null default 0, ")
+            + (DB.SYNC_QUEUE.NEXT_AT + " integer not null default 0, ")
+            + ("unique (" + DB.SYNC_QUEUE.ACTIVITY + ", " + DB.SYNC_QUEUE.ACCOUNT + ")")
+            + ");";
+
+    //Compact, no autoincrement key
+    private static final String CREATE_TABLE_HR_SAMPLE = "create table "
+            + DB.HR_SAMPLE.TABLE + " ( "
+            + (DB.HR_SAMPLE.ACTIVITY + " integer not null, ")
+            + (DB.HR_SAMPLE.TIME + " integer not null, ")
+            + (DB.HR_SAMPLE.HR + " integer not null, ")
+            + (DB.HR_SAMPLE.RR + " integer")
+            + ");";
+
     private static final String CREATE_TABLE_AUDIO_SCHEMES = "create table "
             + DB.AUDIO_SCHEMES.TABLE + " ( "
             + ("_id integer primary key autoincrement, ")
@@ -188,6 +231,26 @@ public class DBHelper extends SQLiteOpenHelper implements
             + (" on " + DB.FEED.TABLE + " (" + DB.FEED.START_TIME
             + ")");
 
+    private static final String CREATE_INDEX_LOCATION = "create index "
+            + "if not exists LOCATION_ACTIVITY_LAP "
+            + (" on " + DB.LOCATION.TABLE + " (" + DB.LOCATION.ACTIVITY
+            + ", " + DB.LOCATION.LAP + ", _id)");
+
+    private static final String CREATE_INDEX_LAP = "create index "
+            + "if not exists LAP_ACTIVITY "
+            + (" on " + DB.LAP.TABLE + " (" + DB.LAP.ACTIVITY
+            + ")");
+
+    private static final String CREATE_INDEX_HR_SAMPLE = "create index "
+            + "if not exists HR_SAMPLE_ACTIVITY "
+            + (" on " + DB.HR_SAMPLE.TABLE + " (" + DB.HR_SAMPLE.ACTIVITY
+            + ")");
+
+    private static final String CREATE_INDEX_REPORT = "create index "
+            + "if not exists REPORT_ACTIVITY_ACCOUNT "
+            + (" on " + DB.EXPORT.TABLE + " (" + DB.EXPORT.ACTIVITY
+            + ", " + DB.EXPORT.ACCOUNT + ")");
+
     private static DBHelper sInstance = null;
 
     private static synchronized DBHelper getHelper(Context context) {
@@ -226,8 +289,73 @@ public class DBHelper extends SQLiteOpenHelper implements
     public static synchronized void closeDB(SQLiteDatabase db) {
     }
 
+    /**
+     * Close all connections, the database is opened again by the next
+     * getReadableDatabase()/getWritableDatabase()
+     */
+    private static synchronized void closeAll() {
+        if (sInstance != null) {
+            DBHelper helper = sInstance;
+            // close() is ignored for the shared instance
+            sInstance = null;
+            helper.close();
+        }
+        sReadableDB = null;
+        sWritableDB = null;
+    }
+
     private DBHelper(Context context, int a) {
         super(context, DBNAME, null, DBVERSION);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        configure(db);
+    }
+
+    private static void configure(SQLiteDatabase db) {
+        if (db.isReadOnly()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            //Statements other than SELECT use the main connection
+            configureWriter(db);
+            return;
+        }
+
+        //With WAL, read only statements (like most pragmas) may be run on another
+        //connection in the pool. A transaction holds the primary (writing) connection.
+        db.beginTransaction();
+        try {
+            configureWriter(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void configureWriter(SQLiteDatabase db) {
+        //Only effective for a new database, existing are converted in incrementalVacuum()
+        pragma(db, "auto_vacuum = INCREMENTAL");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            pragma(db, "wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES);
+        }
+        pragma(db, "cache_size = -" + CACHE_SIZE_KB);
+    }
+
+    private static void pragma(SQLiteDatabase db, String pragma) {
+        // Some pragmas return the value (or a row per step, like incremental_vacuum),
+        // so execSQL() cannot be used
+        Cursor c = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            c.moveToFirst();
+        } finally {
+            c.close();
+        }
     }
 
     @Override
@@ -239,9 +367,15 @@ public class DBHelper extends SQLiteOpenHelper implements
         arg0.execSQL(CREATE_TABLE_LOCATION);
         arg0.execSQL(CREATE_TABLE_ACCOUNT);
         arg0.execSQL(CREATE_TABLE_REPORT);
+        arg0.execSQL(CREATE_TABLE_SYNC_QUEUE);
+        arg0.execSQL(CREATE_TABLE_HR_SAMPLE);
         arg0.execSQL(CREATE_TABLE_AUDIO_SCHEMES);
         arg0.execSQL(CREATE_TABLE_FEED);
         arg0.execSQL(CREATE_INDEX_FEED);
+        arg0.execSQL(CREATE_INDEX_LOCATION);
+        arg0.execSQL(CREATE_INDEX_LAP);
+        arg0.execSQL(CREATE_INDEX_REPORT);
+        arg0.execSQL(CREATE_INDEX_HR_SAMPLE);
 
         onCreateUpgrade(arg0, 0, DBVERSION);
     }
@@ -263,7 +397,7 @@ public class DBHelper extends SQLiteOpenHelper implements
                     + " int");
         }
 
-        //Recreated DBVERSION 31->32
+        //Recreated DBVERSION 34->35
         //DBVERSION update comment out below
         if (oldVersion < 10) {
             recreateAccount(arg0);
@@ -330,8 +464,24 @@ public class DBHelper extends SQLiteOpenHelper implements
                     + " text");
         }
 
+        if (oldVersion < 32) {
+            //Exports, details and cleanup select on activity (and lap)
+            echoDo(arg0, CREATE_INDEX_LOCATION);
+            echoDo(arg0, CREATE_INDEX_LAP);
+            echoDo(arg0, CREATE_INDEX_REPORT);
+        }
+
+        if (oldVersion < 33) {
+            echoDo(arg0, CREATE_TABLE_SYNC_QUEUE);
+        }
+
+        if (oldVersion < 34) {
+            echoDo(arg0, CREATE_TABLE_HR_SAMPLE);
+            echoDo(arg0, CREATE_INDEX_HR_SAMPLE);
+        }
+
         //DBVERSION update
-        //if (oldVersion < 32) {
+        //if (oldVersion < 35) {
         //    migrateFileSyncronizerInfo(arg0);
         //    recreateAccount(arg0);
         //}
@@ -339,8 +489,22 @@ public class DBHelper extends SQLiteOpenHelper implements
         onCreateUpgrade(arg0, oldVersion, newVersion);
     }
 
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     @Override
     public void onOpen(SQLiteDatabase arg0) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            //No onConfigure()
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && !arg0.isReadOnly()) {
+                arg0.enableWriteAheadLogging();
+            }
+            configure(arg0);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && !arg0.isReadOnly()) {
+            //Not in a transaction here, execSQL() uses the primary connection.
+            //From API 16 this replaces the sync mode the platform sets for WAL.
+            arg0.execSQL("PRAGMA synchronous = NORMAL");
+        }
+
         //DBVERSION update
         ////Update "database contents"
         ////Only changes that can be safely applied backward/forward compatible
@@ -377,7 +541,7 @@ public class DBHelper extends SQLiteOpenHelper implements
         //insertAccounts(arg0);
 
         //Populate the table with data (will always be updated in onOpen())
-        //if (oldVersion < 32) {
+        //if (oldVersion < 35) {
         //    arg0.execSQL(CREATE_TABLE_DBINFO);
         //    ContentValues tmp = new ContentValues();
         //    tmp.put(DB.DBINFO.ACCOUNT_VERSION, 0);
@@ -535,65 +699,121 @@ public class DBHelper extends SQLiteOpenHelper implements
                 Long.toString(id)
         };
         db.delete(DB.EXPORT.TABLE, DB.EXPORT.ACTIVITY + " = ?", args);
+        db.delete(DB.SYNC_QUEUE.TABLE, DB.SYNC_QUEUE.ACTIVITY + " = ?", args);
+        db.delete(DB.HR_SAMPLE.TABLE, DB.HR_SAMPLE.ACTIVITY + " = ?", args);
         db.delete(DB.LOCATION.TABLE, DB.LOCATION.ACTIVITY + " = ?", args);
         db.delete(DB.LAP.TABLE, DB.LAP.ACTIVITY + " = ?", args);
         db.delete(DB.ACTIVITY.TABLE, "_id = ?", args);
+        ExportCache.invalidate(id);
     }
 
-    public static void purgeDeletedActivities(Context ctx, final ProgressDialog dialog,
-                                              final Runnable onComplete) {
+    public interface PurgeListener {
+        void onPurged(int activities, long bytesReclaimed);
+    }
 
-        final DBHelper mDBHelper = DBHelper.getHelper(ctx);
-        final SQLiteDatabase db = mDBHelper.getWritableDatabase();
-        String from[] = { "_id" };
-        Cursor c = db.query(DB.ACTIVITY.TABLE, from, "deleted <> 0",
-                null, null, null, null, null);
-        final ArrayList<Long> list = new ArrayList<>(10);
-        if (c.moveToFirst()) {
-            do {
-                list.add(c.getLong(0));
-            } while (c.moveToNext());
-        }
-        c.close();
+    /**
+     * Purge the deleted activities and reclaim the free pages in the background
+     */
+    public static void purgeDeletedActivities(Context ctx, final PurgeListener listener) {
+        final SQLiteDatabase db = getWritableDatabase(ctx);
+        new AsyncTask<Void, Void, long[]>() {
 
-        if (list.size() > 0) {
-            new AsyncTask<Long, Void, Void>() {
+            @Override
+            protected long[] doInBackground(Void... args) {
+                int activities = purgeDeletedActivities(db);
+                long bytesReclaimed = incrementalVacuum(db);
+                return new long[]{activities, bytesReclaimed};
+            }
 
-                @Override
-                protected void onPreExecute() {
-                    dialog.setMax(list.size());
-                    super.onPreExecute();
-                }
+            @Override
+            protected void onPostExecute(long[] result) {
+                closeDB(db);
+                if (listener != null)
+                    listener.onPurged((int) result[0], result[1]);
+            }
+        }.execute();
+    }
 
-                @Override
-                protected Void doInBackground(Long... args) {
-                    for (Long id : list) {
-                        deleteActivity(db, id);
-                        dialog.incrementProgressBy(1);
-                    }
-                    return null;
-                }
+    /**
+     * Delete the activities marked as deleted and the rows referring to them,
+     * one statement per table in one transaction
+     *
+     * @return the number of deleted activities
+     */
+    public static int purgeDeletedActivities(SQLiteDatabase db) {
+        final String deleted = DB.ACTIVITY.DELETED + " <> 0";
+        final String deletedIds = " in (select _id from " + DB.ACTIVITY.TABLE + " where " + deleted + ")";
+        final ArrayList<Long> list = new ArrayList<>(10);
+        beginTransaction(db);
+        try {
+            String from[] = { "_id" };
+            Cursor c = db.query(DB.ACTIVITY.TABLE, from, deleted,
+                    null, null, null, null, null);
+            if (c.moveToFirst()) {
+                do {
+                    list.add(c.getLong(0));
+                } while (c.moveToNext());
+            }
+            c.close();
+
+            if (list.size() > 0) {
+                db.delete(DB.EXPORT.TABLE, DB.EXPORT.ACTIVITY + deletedIds, null);
+                db.delete(DB.SYNC_QUEUE.TABLE, DB.SYNC_QUEUE.ACTIVITY + deletedIds, null);
+                db.delete(DB.HR_SAMPLE.TABLE, DB.HR_SAMPLE.ACTIVITY + deletedIds, null);
+                db.delete(DB.LOCATION.TABLE, DB.LOCATION.ACTIVITY + deletedIds, null);
+                db.delete(DB.LAP.TABLE, DB.LAP.ACTIVITY + deletedIds, null);
+                db.delete(DB.ACTIVITY.TABLE, deleted, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        for (Long id : list) {
+            ExportCache.invalidate(id);
+        }
+        Log.i("DBHelper", "purged activities: " + list.size());
+        return list.size();
+    }
 
-                @Override
-                protected void onPostExecute(Void aVoid) {
-                    db.close();
-                    mDBHelper.close();
-                    if (onComplete != null)
-                        onComplete.run();
+    /**
+     * Return the free pages to the file system, in slices of VACUUM_PAGES_PER_SLICE pages
+     * (each its own short transaction) so other writers are not blocked for long.
+     * A database without incremental auto_vacuum is converted with one (full) VACUUM.
+     *
+     * @return the number of bytes the database file shrunk
+     */
+    public static long incrementalVacuum(SQLiteDatabase db) {
+        final long pageSize = DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+        final long pageCount = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+        final long start = System.nanoTime();
+        try {
+            if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+                // auto_vacuum can only be changed for an existing database with VACUUM
+                pragma(db, "auto_vacuum = INCREMENTAL");
+                db.execSQL("VACUUM");
+            } else {
+                long free = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+                for (; free > 0; free -= VACUUM_PAGES_PER_SLICE) {
+                    pragma(db, "incremental_vacuum(" + VACUUM_PAGES_PER_SLICE + ")");
+                    SystemClock.sleep(VACUUM_SLICE_PAUSE_MILLIS);
                 }
-            }.execute((long) 2);
-        } else {
-            db.close();
-            mDBHelper.close();
-            if (onComplete != null)
-                onComplete.run();
+            }
+        } catch (SQLException e) {
+            Log.e("DBHelper", "vacuum failed: " + e.toString());
         }
+        final long reclaimed = (pageCount - DatabaseUtils.longForQuery(db, "PRAGMA page_count", null)) * pageSize;
+        Log.i("DBHelper", "vacuum reclaimed " + reclaimed + " bytes in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+        return reclaimed;
     }
 
-    public static int bulkInsert(List<? extends DBEntity> objectList, SQLiteDatabase db) {
+    /**
+     * Insert the objects in the transaction of the inserter
+     */
+    public static int bulkInsert(List<? extends DBEntity> objectList, BulkInserter inserter) {
         int result = 0;
         for (DBEntity obj : objectList) {
-            long id = obj.insert(db);
+            long id = obj.insert(inserter);
             if (id != -1) {
                 result++;
             }
@@ -601,22 +821,132 @@ public class DBHelper extends SQLiteOpenHelper implements
         return result;
     }
 
+    private static final AtomicLong sTransactions = new AtomicLong();
+    private static final AtomicLong sLockWaits = new AtomicLong();
+    private static final AtomicLong sLockWaitNanos = new AtomicLong();
+
+    /**
+     * Begin a transaction, non exclusive where available so readers are not blocked.
+     * The transactions that had to wait for another writer (or connection) are counted,
+     * see getLockWaits().
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public static void beginTransaction(SQLiteDatabase db) {
+        long start = System.nanoTime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            db.beginTransactionNonExclusive();
+        } else {
+            db.beginTransaction();
+        }
+        long wait = System.nanoTime() - start;
+        sTransactions.incrementAndGet();
+        if (wait >= LOCK_WAIT_NANOS) {
+            sLockWaits.incrementAndGet();
+            sLockWaitNanos.addAndGet(wait);
+        }
+    }
+
+    /**
+     * @return number of transactions begun with beginTransaction() that waited for a lock
+     */
+    public static long getLockWaits() {
+        return sLockWaits.get();
+    }
+
+    public static long getLockWaitMillis() {
+        return sLockWaitNanos.get() / 1000000;
+    }
+
+    private static Handler sCheckpointHandler = null;
+    private static boolean sCheckpointPending = false;
+
+    /**
+     * Request a passive WAL checkpoint, done on a background thread at most once per
+     * CHECKPOINT_DELAY_MILLIS. Called after writes (like when recording), so the WAL is
+     * normally not checkpointed when committing on the writing thread.
+     */
+    public static synchronized void requestCheckpoint(final SQLiteDatabase db) {
+        if (sCheckpointPending || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        if (sCheckpointHandler == null) {
+            HandlerThread thread = new HandlerThread("DBCheckpoint", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sCheckpointHandler = new Handler(thread.getLooper());
+        }
+        sCheckpointPending = true;
+        sCheckpointHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DBHelper.class) {
+                    sCheckpointPending = false;
+                }
+                checkpoint(db, "PASSIVE");
+            }
+        }, CHECKPOINT_DELAY_MILLIS);
+    }
+
+    /**
+     * Checkpoint all of the WAL, so the database file is complete (like before copying it)
+     */
+    public static void checkpointDatabase(Context ctx) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            checkpoint(getWritableDatabase(ctx), "FULL");
+        }
+    }
+
+    private static void checkpoint(SQLiteDatabase db, String mode) {
+        if (!db.isOpen()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Cursor c = db.rawQuery("PRAGMA wal_checkpoint(" + mode + ")", null);
+        try {
+            if (c.moveToFirst()) {
+                Log.i(DBHelper.class.getName(), "Checkpoint " + mode + ": busy: " + c.getInt(0)
+                        + ", log: " + c.getInt(1) + ", checkpointed: " + c.getInt(2)
+                        + ", " + (System.nanoTime() - start) / 1000000 + " ms"
+                        + ", lock waits: " + getLockWaits() + "/" + sTransactions.get()
+                        + " (" + getLockWaitMillis() + " ms)");
+            }
+        } finally {
+            c.close();
+        }
+    }
+
     public static String getDbPath(Context ctx) {
         return ctx.getFilesDir().getPath() + "/../databases/runnerup.db";
     }
 
-    public static void importDatabase(Context ctx, String from) {
+    public static void importDatabase(final Context ctx, String from) {
         AlertDialog.Builder builder = new AlertDialog.Builder(ctx);
         builder.setTitle("Import runnerup.db from " + from);
         DialogInterface.OnClickListener listener = new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
                 dialog.dismiss();
+                // The open activities refer to the closed database, start the task over
+                // so they are recreated with the imported database
+                Intent intent = ctx.getPackageManager().getLaunchIntentForPackage(ctx.getPackageName());
+                if (intent != null) {
+                    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                    }
+                    ctx.startActivity(intent);
+                }
             }
 
         };
         String to = getDbPath(ctx);
         try {
+            // The file is replaced, no connection may remain open and the WAL
+            // of the previous database must not be applied to the copy
+            closeAll();
+            for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(to + suffix).delete();
+            }
             int cnt = FileUtil.copyFile(to, from);
             builder.setMessage("Copied " + cnt + " bytes");
             builder.setPositiveButton(ctx.getString(R.string.Great), listener);
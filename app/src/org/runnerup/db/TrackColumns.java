@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.location.Location;
+
+import org.runnerup.common.util.Constants;
+
+/**
+ * The locations of one activity, read once into primitive arrays.
+ * Used when drawing graphs and maps, where {@link org.runnerup.db.entities.LocationEntity}
+ * creates too many short lived objects for long activities.
+ *
+ * Distance and elapsed time are accumulated the same way as in LocationEntity.
+ */
+public class TrackColumns implements Constants {
+
+    /**
+     * Value for missing hr, altitude is NaN when missing
+     */
+    public static final int NO_HR = -1;
+
+    public final int count;
+    public final double[] latitude;
+    public final double[] longitude;
+    public final double[] altitude;
+    public final long[] time;
+    public final int[] hr;
+    public final int[] type;
+    public final int[] lap;
+    /**
+     * Accumulated distance in m, excluding pauses
+     */
+    public final double[] distance;
+    /**
+     * Accumulated time in ms, excluding pauses
+     */
+    public final long[] elapsed;
+
+    private static final String[] COLUMNS = new String[]{
+            DB.LOCATION.LATITUDE,
+            DB.LOCATION.LONGITUDE,
+            DB.LOCATION.ALTITUDE,
+            DB.LOCATION.TYPE,
+            DB.LOCATION.TIME,
+            DB.LOCATION.LAP,
+            DB.LOCATION.HR
+    };
+
+    private TrackColumns(int count) {
+        this.count = count;
+        latitude = new double[count];
+        longitude = new double[count];
+        altitude = new double[count];
+        time = new long[count];
+        hr = new int[count];
+        type = new int[count];
+        lap = new int[count];
+        distance = new double[count];
+        elapsed = new long[count];
+    }
+
+    public static TrackColumns load(SQLiteDatabase db, long activityId) {
+        Cursor c = db.query(DB.LOCATION.TABLE, COLUMNS, DB.LOCATION.ACTIVITY + " = " + activityId,
+                null, null, null, "_id", null);
+        TrackColumns t = new TrackColumns(c.getCount());
+        float res[] = {
+                0
+        };
+        int i = 0;
+        if (c.moveToFirst()) {
+            do {
+                t.latitude[i] = c.getDouble(0);
+                t.longitude[i] = c.getDouble(1);
+                t.altitude[i] = c.isNull(2) ? Double.NaN : c.getDouble(2);
+                t.type[i] = c.getInt(3);
+                t.time[i] = c.getLong(4);
+                t.lap[i] = c.getInt(5);
+                t.hr[i] = c.isNull(6) ? NO_HR : c.getInt(6);
+
+                //First point is zero
+                if (i > 0) {
+                    t.distance[i] = t.distance[i - 1];
+                    t.elapsed[i] = t.elapsed[i - 1];
+                    switch (t.type[i]) {
+                        case DB.LOCATION.TYPE_START:
+                        case DB.LOCATION.TYPE_END:
+                        case DB.LOCATION.TYPE_RESUME:
+                            break;
+                        case DB.LOCATION.TYPE_PAUSE:
+                        case DB.LOCATION.TYPE_GPS:
+                            Location.distanceBetween(t.latitude[i - 1], t.longitude[i - 1],
+                                    t.latitude[i], t.longitude[i], res);
+                            t.distance[i] += res[0];
+                            t.elapsed[i] += t.time[i] - t.time[i - 1];
+                            break;
+                    }
+                }
+                i++;
+            } while (c.moveToNext());
+        }
+        c.close();
+        return t;
+    }
+}
@@ -26,6 +26,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
 
 import org.runnerup.common.util.Constants;
+import org.runnerup.db.BulkInserter;
 
 import java.util.Arrays;
 import java.util.List;
@@ -69,6 +70,11 @@ public abstract class AbstractEntity implements DBEntity {
         return this.getId();
     }
 
+    public long insert(BulkInserter inserter) {
+        this.setId(inserter.insert(getTableName(), getNullColumnHack(), values()));
+        return this.getId();
+    }
+
     public void update(SQLiteDatabase db) {
         if (getId() != null) {
             db.update(getTableName(), values(), Constants.DB.PRIMARY_KEY + " = ?", new String[]{Long.toString(getId())});
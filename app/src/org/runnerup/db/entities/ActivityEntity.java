@@ -38,6 +38,8 @@ public class ActivityEntity extends AbstractEntity {
 
     private final List<LocationEntity> locationPoints;
 
+    private LocationArrays locationArrays = null;
+
     public ActivityEntity() {
         super();
         laps = new ArrayList<>();
@@ -293,4 +295,15 @@ public class ActivityEntity extends AbstractEntity {
     public List<LocationEntity> getLocationPoints() {
         return locationPoints;
     }
+
+    /**
+     * Locations in primitive arrays, inserted after the location points
+     */
+    public void putLocationArrays(LocationArrays points) {
+        this.locationArrays = points;
+    }
+
+    public LocationArrays getLocationArrays() {
+        return locationArrays;
+    }
 }
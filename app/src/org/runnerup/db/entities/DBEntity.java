@@ -19,10 +19,14 @@ package org.runnerup.db.entities;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import org.runnerup.db.BulkInserter;
+
 public interface DBEntity {
 
     long insert(SQLiteDatabase db);
 
+    long insert(BulkInserter inserter);
+
     void update(SQLiteDatabase db);
 
 }
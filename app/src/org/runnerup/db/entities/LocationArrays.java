@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.db.entities;
+
+import org.runnerup.common.util.Constants.DB;
+import org.runnerup.db.BulkInserter;
+
+/**
+ * Locations for the {@code location} table kept in primitive arrays, for
+ * imported activities with many points where a LocationEntity per point
+ * (and a ContentValues per point) is too expensive.
+ */
+
+public class LocationArrays {
+
+    /**
+     * hr value when the location has no heart rate
+     */
+    public static final int NO_HR = -1;
+
+    private int size = 0;
+    private long[] time;
+    private double[] latitude;
+    private double[] longitude;
+    private double[] altitude;
+    private float[] speed;
+    private int[] hr;
+    private int[] type;
+    private int[] lap;
+
+    public LocationArrays() {
+        this(64);
+    }
+
+    public LocationArrays(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        time = copyOf(time, new long[capacity]);
+        latitude = copyOf(latitude, new double[capacity]);
+        longitude = copyOf(longitude, new double[capacity]);
+        altitude = copyOf(altitude, new double[capacity]);
+        speed = copyOf(speed, new float[capacity]);
+        hr = copyOf(hr, new int[capacity]);
+        type = copyOf(type, new int[capacity]);
+        lap = copyOf(lap, new int[capacity]);
+    }
+
+    private <T> T copyOf(T from, T to) {
+        if (from != null) {
+            System.arraycopy(from, 0, to, 0, size);
+        }
+        return to;
+    }
+
+    /**
+     * Add a location
+     *
+     * @param time      in milliseconds since epoch
+     * @param altitude  NaN if not available
+     * @param hr        NO_HR if not available
+     * @param speed     NaN if not available
+     * @return the index of the location
+     */
+    public int add(long time, double latitude, double longitude, double altitude,
+                   int hr, float speed, int type, int lap) {
+        if (size == this.time.length) {
+            allocate(2 * size);
+        }
+        this.time[size] = time;
+        this.latitude[size] = latitude;
+        this.longitude[size] = longitude;
+        this.altitude[size] = altitude;
+        this.hr[size] = hr;
+        this.speed[size] = speed;
+        this.type[size] = type;
+        this.lap[size] = lap;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setType(int index, int value) {
+        type[index] = value;
+    }
+
+    public int getType(int index) {
+        return type[index];
+    }
+
+    public long getTime(int index) {
+        return time[index];
+    }
+
+    public int getHr(int index) {
+        return hr[index];
+    }
+
+    public float getSpeed(int index) {
+        return speed[index];
+    }
+
+    public int getLap(int index) {
+        return lap[index];
+    }
+
+    /**
+     * Insert the locations in the transaction of the inserter
+     *
+     * @return the number of inserted locations
+     */
+    public int insert(BulkInserter inserter, long activityId) {
+        BulkInserter.Statement stmt = inserter.statement(DB.LOCATION.TABLE,
+                DB.LOCATION.ACTIVITY, DB.LOCATION.LAP, DB.LOCATION.TYPE, DB.LOCATION.TIME,
+                DB.LOCATION.LATITUDE, DB.LOCATION.LONGITUDE, DB.LOCATION.ALTITUDE,
+                DB.LOCATION.HR, DB.LOCATION.SPEED);
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            stmt.bindLong(1, activityId);
+            stmt.bindLong(2, lap[i]);
+            stmt.bindLong(3, type[i]);
+            stmt.bindLong(4, time[i]);
+            stmt.bindDouble(5, latitude[i]);
+            stmt.bindDouble(6, longitude[i]);
+            if (!Double.isNaN(altitude[i])) {
+                stmt.bindDouble(7, altitude[i]);
+            }
+            if (hr[i] != NO_HR) {
+                stmt.bindLong(8, hr[i]);
+            }
+            if (!Float.isNaN(speed[i])) {
+                stmt.bindDouble(9, speed[i]);
+            }
+            if (stmt.insert() != -1) {
+                result++;
+            }
+        }
+        return result;
+    }
+}
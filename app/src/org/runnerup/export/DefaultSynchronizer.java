@@ -26,8 +26,10 @@ import android.util.Pair;
 
 import org.runnerup.R;
 import org.runnerup.common.util.Constants;
+import org.runnerup.db.BulkInserter;
 import org.runnerup.db.DBHelper;
 import org.runnerup.db.entities.ActivityEntity;
+import org.runnerup.db.entities.LocationArrays;
 import org.runnerup.export.util.FormValues;
 import org.runnerup.export.util.SyncHelper;
 import org.runnerup.feed.FeedList.FeedUpdater;
@@ -111,14 +113,12 @@ public abstract class DefaultSynchronizer implements Synchronizer {
         return Status.OK;
     }
 
-    public Status upload(SQLiteDatabase db, long mID) {
-        Status s = Status.ERROR;
-        s.activityId = mID;
-        return s;
+    public UploadResult upload(SQLiteDatabase db, long mID) {
+        return new UploadResult(Status.ERROR, mID);
     }
 
-    public Status getExternalId(SQLiteDatabase db, Status uploadStatus) {
-        return Status.ERROR;
+    public UploadResult getExternalId(SQLiteDatabase db, UploadResult uploadResult) {
+        return new UploadResult(Status.ERROR, uploadResult.activityId);
     }
 
     public boolean checkSupport(Synchronizer.Feature f) {
@@ -157,33 +157,39 @@ public abstract class DefaultSynchronizer implements Synchronizer {
             return Status.ERROR;
         }
 
-        db.beginTransaction();
-        if (activity.insert(db) == SyncManager.ERROR_ACTIVITY_ID) {
-            db.endTransaction();
-            return Status.ERROR;
-        }
-
-        //update with activity id
-        activity.putPoints(new ArrayList<>(activity.getLocationPoints()));
-        // insert location and end transaction unsuccessfully
-        if (DBHelper.bulkInsert(activity.getLocationPoints(), db) != activity.getLocationPoints().size()) {
-            db.endTransaction();
-            return Status.ERROR;
+        // one transaction, compiled statements per table
+        BulkInserter inserter = new BulkInserter(db);
+        inserter.begin();
+        try {
+            if (activity.insert(inserter) == SyncManager.ERROR_ACTIVITY_ID) {
+                return Status.ERROR;
+            }
+
+            //update with activity id
+            activity.putPoints(new ArrayList<>(activity.getLocationPoints()));
+            // insert location and end transaction unsuccessfully
+            if (DBHelper.bulkInsert(activity.getLocationPoints(), inserter) != activity.getLocationPoints().size()) {
+                return Status.ERROR;
+            }
+
+            // insert the primitive location arrays, if any
+            LocationArrays points = activity.getLocationArrays();
+            if (points != null && points.insert(inserter, activity.getId()) != points.size()) {
+                return Status.ERROR;
+            }
+
+            //update with activity id
+            activity.putLaps(new ArrayList<>(activity.getLaps()));
+            // insert all lap objects
+            if (DBHelper.bulkInsert(activity.getLaps(), inserter) != activity.getLaps().size()) {
+                return Status.ERROR;
+            }
+            inserter.setTransactionSuccessful();
+        } finally {
+            inserter.end();
         }
 
-        //update with activity id
-        activity.putLaps(new ArrayList<>(activity.getLaps()));
-        // insert all lap objects
-        if (DBHelper.bulkInsert(activity.getLaps(), db) != activity.getLaps().size()) {
-            db.endTransaction();
-            return Status.ERROR;
-        }
-        db.setTransactionSuccessful();
-        db.endTransaction();
-
-        Status s = Status.OK;
-        s.activityId = activity.getId();
-        return s;
+        return Status.OK;
     }
 
     public void logout() {
@@ -126,13 +126,16 @@ public class DigifitSynchronizer extends DefaultSynchronizer {
         return false;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (!isConfigured()) {
             // user/pass needed
-            Status s = Status.NEED_AUTH;
-            s.authMethod = Synchronizer.AuthMethod.USER_PASS;
-            return s;
+            return Status.NEED_AUTH;
         }
 
         if (_loggedin) {
@@ -179,16 +182,12 @@ public class DigifitSynchronizer extends DefaultSynchronizer {
                     _loggedin = true;
                     return Status.OK;
                 } else {
-                    Status s = Status.NEED_AUTH;
-                    s.authMethod = Synchronizer.AuthMethod.USER_PASS;
-
                     Log.e(getName(), "Error: " + line);
-                    return s;
+                    return Status.NEED_AUTH;
                 }
             }
             conn.disconnect();
         } catch (Exception ex) {
-            errorStatus.ex = ex;
             ex.printStackTrace();
         }
         return errorStatus;
@@ -431,13 +430,12 @@ public class DigifitSynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
-        Status errorStatus = Status.ERROR;
         TCX tcx = new TCX(db);
         tcx.setAddGratuitousTrack(true);
 
@@ -458,15 +456,11 @@ public class DigifitSynchronizer extends DefaultSynchronizer {
             //
             // TODO: capture traffic from the app in order to use a better API
             // endpoint.
-            s = Status.OK;
-            s.activityId = mID;
-            return s;
+            return new UploadResult(Status.OK, mID);
         } catch (Exception ex) {
-            errorStatus.ex = ex;
             Log.e(getName(), "Digifit returned: " + ex);
+            return new UploadResult(Status.ERROR, mID, ex);
         }
-
-        return errorStatus;
     }
 
     private void uploadFileToDigifit(String payload, String uploadUrl) throws Exception {
@@ -28,7 +28,7 @@ import org.runnerup.BuildConfig;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.oauth2client.OAuth2Activity;
 import org.runnerup.export.oauth2client.OAuth2Server;
 import org.runnerup.export.util.SyncHelper;
@@ -40,7 +40,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Locale;
@@ -190,6 +189,11 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
         access_token = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.OK;
@@ -200,7 +204,6 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
         }
         else if (access_token == null) {
             s = Status.NEED_AUTH;
-            s.authMethod = AuthMethod.OAUTH2;
         }
 
         //Log.v(getName(), "connect: " +s+ " "+access_token);
@@ -218,13 +221,14 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s = connect();
         if (s != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         Sport sport = Sport.RUNNING;
+        Exception ex;
         try {
             String[] columns = {
                 Constants.DB.ACTIVITY.SPORT
@@ -244,9 +248,7 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
             // Upload to default directory /Apps/RunnerUp
             String file = String.format(Locale.getDefault(), "/RunnerUp_%04d_%s.tcx", mID, sport.TapiriikType());
 
-            StringWriter writer = new StringWriter();
-            TCX tcx = new TCX(db);
-            tcx.export(mID, writer);
+            String tcx = ExportCache.exportString(db, mID, ExportCache.Format.TCX);
 
             HttpURLConnection conn = (HttpURLConnection) new URL(UPLOAD_URL).openConnection();
             conn.setDoOutput(true);
@@ -260,11 +262,11 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
                 parameters.put("autorename", true);
             } catch (JSONException e) {
                 e.printStackTrace();
-                return Status.ERROR;
+                return new UploadResult(Status.ERROR, mID, e);
             }
             conn.addRequestProperty("Dropbox-API-Arg", parameters.toString());
             OutputStream out = new BufferedOutputStream(conn.getOutputStream());
-            out.write(writer.getBuffer().toString().getBytes());
+            out.write(tcx.getBytes());
             out.flush();
             out.close();
 
@@ -275,16 +277,14 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
             JSONObject obj = SyncHelper.parse(conn, getName());
 
             if (obj != null && responseCode >= HttpURLConnection.HTTP_OK && responseCode < HttpURLConnection.HTTP_MULT_CHOICE) {
-                s = Status.OK;
-                s.activityId = mID;
                 if (obj.has("id")) {
                     // Note: duplicate will not set activity_id
-                    s.externalId = noNullStr(obj.getString("id"));
-                    if (s.externalId != null) {
-                        s.externalIdStatus = ExternalIdStatus.OK;
+                    String externalId = noNullStr(obj.getString("id"));
+                    if (externalId != null) {
+                        return new UploadResult(Status.OK, mID, ExternalIdStatus.OK, externalId);
                     }
                 }
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
             String error = obj != null && obj.has("error") ?
                     noNullStr(obj.getString("error")) :
@@ -295,21 +295,21 @@ public class DropboxSynchronizer extends DefaultSynchronizer implements OAuth2Se
                 // token no longer valid
                 access_token = null;
                 s = Status.NEED_AUTH;
-                s.authMethod = AuthMethod.OAUTH2;
             }
             s = Status.ERROR;
-            return s;
+            return new UploadResult(s, mID);
 
         } catch (IOException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         } catch (JSONException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         }
 
-        s.ex.printStackTrace();
-        return s;
+        return new UploadResult(s, mID, ex);
     }
 
     @Override
@@ -157,6 +157,11 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
         authToken = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (isConfigured()) {
@@ -164,7 +169,6 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
         }
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -223,7 +227,6 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
             conn.disconnect();
 
         s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
         return s;
     }
@@ -245,10 +248,10 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         EndomondoTrack tcx = new EndomondoTrack(db);
@@ -294,12 +297,10 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
             String amsg = conn.getResponseMessage();
             if (responseCode == HttpURLConnection.HTTP_OK &&
                     "OK".contentEquals(res.getString("_0"))) {
-                s.activityId = mID;
                 if (res.has("workout.id")) {
-                    s.externalId = res.getString("workout.id");
-                    s.externalIdStatus = ExternalIdStatus.OK;
+                    return new UploadResult(s, mID, ExternalIdStatus.OK, res.getString("workout.id"));
                 }
-                return s;
+                return new UploadResult(s, mID);
             }
             ex = new Exception(amsg);
         } catch (IOException e) {
@@ -308,10 +309,8 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
@@ -365,7 +364,6 @@ public class EndomondoSynchronizer extends DefaultSynchronizer {
         }
 
         s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
         return s;
     }
@@ -221,10 +221,14 @@ public class FacebookSynchronizer extends DefaultSynchronizer implements OAuth2S
 
     private static final long ONE_DAY = 24 * 60 * 60;
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.OAUTH2;
         if (access_token == null)
             return s;
 
@@ -242,13 +246,14 @@ public class FacebookSynchronizer extends DefaultSynchronizer implements OAuth2S
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         FacebookCourse courseFactory = new FacebookCourse(context, db);
+        Exception ex;
         try {
             JSONObject runObj = new JSONObject();
             JSONObject course = courseFactory.export(mID, !skipMapInPost, runObj);
@@ -259,23 +264,20 @@ public class FacebookSynchronizer extends DefaultSynchronizer implements OAuth2S
             try {
                 JSONObject ret = createRun(ref, runObj);
                 Log.e(getName(), "createdRunObj: " + ret.toString());
-                s = Status.OK;
-                s.activityId = mID;
-                return s;
+                return new UploadResult(Status.OK, mID);
             } catch (Exception e) {
                 Log.e(getName(), "fail createdRunObj: " + e);
-                s.ex = e;
+                e.printStackTrace();
+                ex = e;
             }
             deleteCourse(ref);
         } catch (Exception e) {
             Log.e(getName(), "fail createdCourseObj: " + e);
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         }
 
-        s = Status.ERROR;
-        if (s.ex != null)
-            s.ex.printStackTrace();
-        return s;
+        return new UploadResult(Status.ERROR, mID, ex);
     }
 
     private JSONObject createObj(URL url, Part<?> parts[]) throws Exception{
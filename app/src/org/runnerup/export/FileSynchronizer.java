@@ -29,8 +29,7 @@ import org.json.JSONObject;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.GPX;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.workout.Sport;
 
 import java.io.BufferedOutputStream;
@@ -121,10 +120,14 @@ public class FileSynchronizer extends DefaultSynchronizer {
         mPath = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.FILEPERMISSION;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.FILEPERMISSION;
         if (TextUtils.isEmpty(mPath))
             return s;
         try {
@@ -141,11 +144,10 @@ public class FileSynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
-        Status s = Status.ERROR;
-        s.activityId = mID;
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
+        Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         Sport sport = Sport.RUNNING;
@@ -167,26 +169,23 @@ public class FileSynchronizer extends DefaultSynchronizer {
             }
             String fileBase = new File(mPath).getAbsolutePath() + File.separator +
                     String.format(Locale.getDefault(), "RunnerUp_%04d_%s.", mID, sport.TapiriikType());
+            String externalId = null;
             
             if (mFormat.contains("tcx")) {
-                TCX tcx = new TCX(db);
                 File file = new File(fileBase + "tcx");
                 OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
-                tcx.export(mID, new OutputStreamWriter(out));
-                s.externalId = Uri.fromFile(file).toString();
-                s.externalIdStatus = ExternalIdStatus.NONE; //Not working yet
+                ExportCache.export(db, mID, ExportCache.Format.TCX, new OutputStreamWriter(out));
+                externalId = Uri.fromFile(file).toString(); //ExternalIdStatus not working yet
             }
             if (mFormat.contains("gpx")) {
-                GPX gpx = new GPX(db, true, true);
                 File file = new File(fileBase + "gpx");
                 OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
-                gpx.export(mID, new OutputStreamWriter(out));
+                ExportCache.export(db, mID, ExportCache.Format.GPX_EXTENSIONS, new OutputStreamWriter(out));
             }
-            s = Status.OK;
+            return new UploadResult(Status.OK, mID, ExternalIdStatus.NONE, externalId);
         } catch (IOException e) {
-            //Status is ERROR
+            return new UploadResult(Status.ERROR, mID, e);
         }
-        return s;
     }
 
     @Override
@@ -167,6 +167,11 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
         return tmp.toString();
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         Exception ex;
@@ -175,7 +180,6 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
         formValues.clear();
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -265,7 +269,6 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
         if (conn != null)
             conn.disconnect();
 
-        s.ex = ex;
         ex.printStackTrace();
         return s;
     }
@@ -334,10 +337,10 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         TCX tcx = new TCX(db);
@@ -445,20 +448,17 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
                 conn.disconnect();
                 if (ok) {
                     s = Status.OK;
-                    s.activityId = mID;
                 } else {
                     s = Status.ERROR;
                 }
-                return s;
+                return new UploadResult(s, mID);
             }
         } catch (IOException e) {
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
@@ -480,7 +480,6 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
     @Override
     public Status getFeed(FeedUpdater feedUpdater) {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.USER_PASS;
         if (loginID == null || loginSecretHashed == null) {
             if ((s = connect()) != Status.OK) {
                 return s;
@@ -509,13 +508,10 @@ public class FunBeatSynchronizer extends DefaultSynchronizer {
             }
         } catch (final MalformedURLException e) {
             e.printStackTrace();
-            s.ex = e;
         } catch (final IOException e) {
             e.printStackTrace();
-            s.ex = e;
         } catch (final JSONException e) {
             e.printStackTrace();
-            s.ex = e;
         }
 
         s = Status.ERROR;
@@ -18,6 +18,7 @@
 package org.runnerup.export;
 
 import android.content.ContentValues;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import android.util.Pair;
@@ -27,7 +28,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.util.FormValues;
 import org.runnerup.export.util.Part;
 import org.runnerup.export.util.StringWritable;
@@ -41,7 +42,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -143,10 +143,14 @@ public class GarminSynchronizer extends DefaultSynchronizer {
         isConnected = false;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -186,7 +190,6 @@ public class GarminSynchronizer extends DefaultSynchronizer {
             conn.disconnect();
 
         s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         if (ex != null) {
             ex.printStackTrace();
         }
@@ -195,7 +198,6 @@ public class GarminSynchronizer extends DefaultSynchronizer {
 
     private Status connectOld() throws IOException, JSONException {
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
 
         HttpURLConnection conn;
 
@@ -267,7 +269,6 @@ public class GarminSynchronizer extends DefaultSynchronizer {
                         + obj.toString() + ", code: " + responseCode + ", msg: " + amsg);
             }
             Status s = Status.NEED_AUTH;
-            s.authMethod = Synchronizer.AuthMethod.USER_PASS;
             return s;
         }
     }
@@ -275,7 +276,6 @@ public class GarminSynchronizer extends DefaultSynchronizer {
     @SuppressWarnings("SameReturnValue")
     private Status connectNew() throws IOException {
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
 
         FormValues fv = new FormValues();
         fv.put("service", "https://connect.garmin.com/post-auth/login");
@@ -378,6 +378,20 @@ public class GarminSynchronizer extends DefaultSynchronizer {
         }
     }
 
+    private static Sport getSport(SQLiteDatabase db, long mID) {
+        Sport sport = Sport.RUNNING;
+        String[] columns = {
+                DB.ACTIVITY.SPORT
+        };
+        Cursor c = db.query(DB.ACTIVITY.TABLE, columns, "_id = " + mID,
+                null, null, null, null);
+        if (c.moveToFirst()) {
+            sport = Sport.valueOf(c.getInt(0));
+        }
+        c.close();
+        return sport;
+    }
+
     private void setWorkoutType(Sport s, String garminID) throws Exception {
         if (s == Sport.RUNNING || s == Sport.BIKING || s == Sport.OTHER) {
             //nothing to do
@@ -416,18 +430,17 @@ public class GarminSynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
-        TCX tcx = new TCX(db);
         HttpURLConnection conn;
         Exception ex;
         try {
-            StringWriter writer = new StringWriter();
-            tcx.export(mID, writer);
+            String tcx = ExportCache.exportString(db, mID, ExportCache.Format.TCX);
+            Sport sport = getSport(db, mID);
 
             conn = (HttpURLConnection) new URL(UPLOAD_URL).openConnection();
             conn.setDoOutput(true);
@@ -435,7 +448,7 @@ public class GarminSynchronizer extends DefaultSynchronizer {
             addCookies(conn);
 
             Part<StringWritable> part2 = new Part<>("data",
-                    new StringWritable(writer.toString()));
+                    new StringWritable(tcx));
             part2.setFilename("RunnerUp.tcx");
             part2.setContentType("application/octet-stream");
             Part<?> parts[] = {
@@ -452,11 +465,9 @@ public class GarminSynchronizer extends DefaultSynchronizer {
                 JSONObject result = reply.getJSONObject("detailedImportResult");
                 JSONArray successes = result.getJSONArray("successes");
                 if (successes.length() == 1) {
-                    s = Status.OK;
-                    s.activityId = mID;
                     String garminID = successes.getJSONObject(0).getString("internalId");
-                    setWorkoutType(tcx.getSport(), garminID);
-                    return s;
+                    setWorkoutType(sport, garminID);
+                    return new UploadResult(Status.OK, mID);
                 } else {
                     JSONArray failures = result.getJSONArray("failures");
                     ex = new Exception("Unexpected reply: " + (failures.length()>0?failures.toString():result.toString()));
@@ -468,10 +479,8 @@ public class GarminSynchronizer extends DefaultSynchronizer {
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
@@ -556,14 +565,14 @@ public class GarminSynchronizer extends DefaultSynchronizer {
                 }
             } else {
                 s = Synchronizer.Status.ERROR;
-                s.ex = new Exception(amsg);
+                Log.e(getName(), "Error listing workouts: " + amsg);
             }
         } catch (IOException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (JSONException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         }
 
         try {
@@ -589,19 +598,16 @@ public class GarminSynchronizer extends DefaultSynchronizer {
                 }
             } else {
                 s = Synchronizer.Status.ERROR;
-                s.ex = new Exception(amsg);
+                Log.e(getName(), "Error listing workouts: " + amsg);
             }
         } catch (IOException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (JSONException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         }
 
-        if (s != Status.OK) {
-            s.ex.printStackTrace();
-        }
         return s;
     }
 
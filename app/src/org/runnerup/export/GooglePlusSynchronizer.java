@@ -237,10 +237,14 @@ public class GooglePlusSynchronizer extends DefaultSynchronizer implements Synch
         token_now = 0;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.OAUTH2;
         if (getAccessToken() == null)
             return s;
 
@@ -253,13 +257,13 @@ public class GooglePlusSynchronizer extends DefaultSynchronizer implements Synch
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
-        return Status.SKIP;
+        return new UploadResult(Status.SKIP, mID);
     }
 
     @Override
@@ -296,19 +300,17 @@ public class GooglePlusSynchronizer extends DefaultSynchronizer implements Synch
             return s;
         } catch (MalformedURLException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (ProtocolException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (IOException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (JSONException e) {
-            s.ex = e;
+            e.printStackTrace();
         }
 
-        s.ex.printStackTrace();
-
         return s;
     }
 
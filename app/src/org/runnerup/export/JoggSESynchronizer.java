@@ -141,6 +141,11 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
         isConnected = false;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (isConnected) {
@@ -148,7 +153,6 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
         }
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -210,7 +214,6 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
             conn.disconnect();
 
         s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
         return s;
     }
@@ -266,10 +269,10 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
     }
 
     @Override
-    public Status upload(final SQLiteDatabase db, final long mID) {
+    public UploadResult upload(final SQLiteDatabase db, final long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         Exception ex;
@@ -309,9 +312,7 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
             Log.e(getName(), "reply: " + e.getTextContent());
             if (e != null && e.getTextContent() != null
                     && "OK".contentEquals(e.getTextContent())) {
-                s = Status.OK;
-                s.activityId = mID;
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
             throw new Exception(e.getTextContent());
         } catch (final MalformedURLException e) {
@@ -332,11 +333,8 @@ public class JoggSESynchronizer extends DefaultSynchronizer {
         if (conn != null)
             conn.disconnect();
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
-        s.activityId = mID;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
 
     }
 
@@ -165,6 +165,11 @@ public class MapMyRunSynchronizer extends DefaultSynchronizer {
 
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (isConfigured()) {
@@ -172,7 +177,6 @@ public class MapMyRunSynchronizer extends DefaultSynchronizer {
         }
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -229,16 +233,15 @@ public class MapMyRunSynchronizer extends DefaultSynchronizer {
         if (conn != null)
             conn.disconnect();
 
-        s.ex = ex;
         ex.printStackTrace();
         return s;
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         TCX tcx = new TCX(db);
@@ -301,9 +304,7 @@ public class MapMyRunSynchronizer extends DefaultSynchronizer {
                 SyncHelper.parse(in);
                 conn.disconnect();
 
-                s = Status.OK;
-                s.activityId = mID;
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
         } catch (IOException e) {
             ex = e;
@@ -311,11 +312,8 @@ public class MapMyRunSynchronizer extends DefaultSynchronizer {
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
-        s.activityId = mID;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
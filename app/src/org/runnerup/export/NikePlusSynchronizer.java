@@ -27,8 +27,7 @@ import org.json.JSONObject;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.common.util.Constants.DB.FEED;
-import org.runnerup.export.format.GPX;
-import org.runnerup.export.format.NikeXML;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.util.FormValues;
 import org.runnerup.export.util.Part;
 import org.runnerup.export.util.StringWritable;
@@ -42,7 +41,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.UnknownHostException;
@@ -158,6 +156,11 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
         return android.os.SystemClock.elapsedRealtime() / 1000;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (now() > expires_timeout) {
@@ -169,7 +172,6 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
         }
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -216,35 +218,27 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
             // probably no internet connection available
             s = Status.SKIP;
         } catch (Exception e) {
-            s.ex = e;
+            Log.e(getClass().getSimpleName(), e.getMessage());
         }
 
         if (conn != null) {
             conn.disconnect();
         }
-        if (s.ex != null) {
-            Log.e(getClass().getSimpleName(), s.ex.getMessage());
-        }
         return s;
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
-        NikeXML nikeXML = new NikeXML(db);
-        GPX nikeGPX = new GPX(db);
         HttpURLConnection conn;
         Exception ex;
         try {
-            StringWriter xml = new StringWriter();
-            nikeXML.export(mID, xml);
-
-            StringWriter gpx = new StringWriter();
-            nikeGPX.export(mID, gpx);
+            String xml = ExportCache.exportString(db, mID, ExportCache.Format.NIKE_XML);
+            String gpx = ExportCache.exportString(db, mID, ExportCache.Format.GPX);
 
             String url = String.format(SYNC_URL, access_token);
             conn = (HttpURLConnection) new URL(url).openConnection();
@@ -253,13 +247,13 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
             conn.addRequestProperty("user-agent", USER_AGENT);
             conn.addRequestProperty("appid", APP_ID);
             Part<StringWritable> part1 = new Part<>("runXML",
-                    new StringWritable(xml.toString()));
+                    new StringWritable(xml));
             part1.setFilename("runXML.xml");
             part1.setContentType("text/plain; charset=US-ASCII");
             part1.setContentTransferEncoding("8bit");
 
             Part<StringWritable> part2 = new Part<>("gpxXML",
-                    new StringWritable(gpx.toString()));
+                    new StringWritable(gpx));
             part2.setFilename("gpxXML.xml");
             part2.setContentType("text/plain; charset=US-ASCII");
             part2.setContentTransferEncoding("8bit");
@@ -287,9 +281,7 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
             amsg = conn.getResponseMessage();
             conn.disconnect();
             if (responseCode == HttpURLConnection.HTTP_OK) {
-                s = Status.OK;
-                s.activityId = mID;
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
 
             ex = new Exception(amsg);
@@ -297,11 +289,8 @@ public class NikePlusSynchronizer extends DefaultSynchronizer {
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
-        s.activityId = mID;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
@@ -37,6 +37,7 @@ import org.runnerup.R;
 import org.runnerup.common.util.Constants;
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.db.entities.ActivityEntity;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.format.RunKeeper;
 import org.runnerup.export.oauth2client.OAuth2Activity;
 import org.runnerup.export.oauth2client.OAuth2Server;
@@ -242,10 +243,14 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
         access_token = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.OAUTH2;
         if (access_token == null) {
             return s;
         }
@@ -301,7 +306,6 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
             return Synchronizer.Status.OK;
         }
         s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         return s;
     }
 
@@ -382,10 +386,10 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         /*
@@ -402,10 +406,9 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
             conn.addRequestProperty("Authorization", "Bearer " + access_token);
             conn.addRequestProperty("Content-type",
                     "application/vnd.com.runkeeper.NewFitnessActivity+json");
-            RunKeeper rk = new RunKeeper(db);
             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(
                     conn.getOutputStream()));
-            rk.export(mID, w);
+            ExportCache.export(db, mID, ExportCache.Format.RUNKEEPER, w);
             w.flush();
 
             int responseCode = conn.getResponseCode();
@@ -415,13 +418,10 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
             conn = null;
 
             if (responseCode >= HttpURLConnection.HTTP_OK && responseCode < HttpURLConnection.HTTP_MULT_CHOICE) {
-                s = Status.OK;
-                s.activityId = mID;
                 if (!TextUtils.isEmpty(externalId)) {
-                    s.externalId = externalId;
-                    s.externalIdStatus = ExternalIdStatus.OK;
+                    return new UploadResult(Status.OK, mID, ExternalIdStatus.OK, externalId);
                 }
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
             Log.e(getName(), "Error code: " + responseCode + ", amsg: " + amsg);
             ex = new Exception(amsg);
@@ -434,10 +434,7 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
         if (conn != null) {
             conn.disconnect();
         }
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
-        s.activityId = mID;
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @SuppressLint("StaticFieldLeak")
@@ -515,8 +512,11 @@ public class RunKeeperSynchronizer extends DefaultSynchronizer implements Synchr
 
             if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
                 BufferedInputStream input = new BufferedInputStream(conn.getInputStream());
-                JSONObject resp = SyncHelper.parse(input);
-                activity = RunKeeper.parseToActivity(resp, getLapLength());
+                try {
+                    activity = RunKeeper.parseToActivity(input, getLapLength());
+                } finally {
+                    input.close();
+                }
             }
 
         } catch (IOException e) {
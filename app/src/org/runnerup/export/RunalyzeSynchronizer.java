@@ -29,7 +29,7 @@ import org.json.JSONObject;
 import org.runnerup.BuildConfig;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.oauth2client.OAuth2Activity;
 import org.runnerup.export.oauth2client.OAuth2Server;
 import org.runnerup.export.util.FormValues;
@@ -42,7 +42,6 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Locale;
@@ -205,6 +204,11 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
         access_token = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.OK;
@@ -215,12 +219,10 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
         }
         else if (refresh_token == null) {
             s = Status.NEED_AUTH;
-            s.authMethod = AuthMethod.OAUTH2;
         }
         else if (access_token == null || access_expire - 10 < System.currentTimeMillis() / 1000) {
             // Token times out within seconds
             s = Status.NEED_REFRESH;
-            s.authMethod = AuthMethod.OAUTH2;
         }
 
         //Log.v(getName(), "connect: " +s+ " "+refresh_token+" "+access_token);
@@ -254,7 +256,6 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
             } else {
                 // token no longer valid (normally HTTP_UNAUTHORIZED)
                 s = Status.NEED_AUTH;
-                s.authMethod = AuthMethod.OAUTH2;
                 access_token = null;
             }
             s = Status.ERROR;
@@ -262,13 +263,12 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
 
         } catch (IOException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         } catch (JSONException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
         }
 
-        s.ex.printStackTrace();
         return s;
     }
 
@@ -284,24 +284,23 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
 
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s = connect();
         if (s != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         String desc = getDesc(db, mID);
-        TCX tcx = new TCX(db);
+        Exception ex;
         try {
-            StringWriter writer = new StringWriter();
-            tcx.export(mID, writer);
+            String tcx = ExportCache.exportString(db, mID, ExportCache.Format.TCX);
             HttpURLConnection conn = (HttpURLConnection) new URL(UPLOAD_URL).openConnection();
             conn.setDoOutput(true);
             conn.setRequestMethod(RequestMethod.POST.name());
             conn.setRequestProperty("Authorization", "Bearer " + access_token);
 
             Part<StringWritable> filePart = new Part<>("file",
-                    new StringWritable(writer.toString()));
+                    new StringWritable(tcx));
             filePart.setFilename(String.format(Locale.getDefault(),
                     "RunnerUp_%04d.tcx", mID));
             filePart.setContentType("application/octet-stream");
@@ -322,16 +321,14 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
             JSONObject obj = SyncHelper.parse(conn, getName());
 
             if (obj != null && responseCode >= HttpURLConnection.HTTP_OK && responseCode < HttpURLConnection.HTTP_MULT_CHOICE) {
-                s = Status.OK;
-                s.activityId = mID;
                 if (obj.has("activity_id")) {
                     // Note: duplicate will not set activity_id
-                    s.externalId = noNullStr(obj.getString("activity_id"));
-                    if (s.externalId != null) {
-                        s.externalIdStatus = ExternalIdStatus.OK;
+                    String externalId = noNullStr(obj.getString("activity_id"));
+                    if (externalId != null) {
+                        return new UploadResult(Status.OK, mID, ExternalIdStatus.OK, externalId);
                     }
                 }
-                return s;
+                return new UploadResult(Status.OK, mID);
             }
             String error = obj != null && obj.has("error") ?
                     noNullStr(obj.getString("error")) :
@@ -343,21 +340,21 @@ public class RunalyzeSynchronizer extends DefaultSynchronizer implements OAuth2S
                 // token no longer valid
                 access_token = null;
                 s = Status.NEED_AUTH;
-                s.authMethod = AuthMethod.OAUTH2;
             }
             s = Status.ERROR;
-            return s;
+            return new UploadResult(s, mID);
 
         } catch (IOException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         } catch (JSONException e) {
             s = Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         }
 
-        s.ex.printStackTrace();
-        return s;
+        return new UploadResult(s, mID, ex);
     }
 
     @Override
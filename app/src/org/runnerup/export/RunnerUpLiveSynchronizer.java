@@ -124,6 +124,11 @@ public class RunnerUpLiveSynchronizer extends DefaultSynchronizer implements Wor
         password = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         if (isConfigured()) {
@@ -131,7 +136,6 @@ public class RunnerUpLiveSynchronizer extends DefaultSynchronizer implements Wor
         }
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -27,7 +27,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.oauth2client.OAuth2Activity;
 import org.runnerup.export.oauth2client.OAuth2Server;
 import org.runnerup.export.util.SyncHelper;
@@ -36,8 +36,8 @@ import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.zip.GZIPOutputStream;
@@ -185,10 +185,14 @@ public class RunningAHEADSynchronizer extends DefaultSynchronizer implements OAu
         access_token = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.OAUTH2;
         if (access_token == null)
             return s;
 
@@ -196,28 +200,26 @@ public class RunningAHEADSynchronizer extends DefaultSynchronizer implements OAu
     }
 
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(SQLiteDatabase db, final long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         String URL = IMPORT_URL + "?access_token=" + access_token;
-        TCX tcx = new TCX(db);
         HttpURLConnection conn;
         Exception ex;
         try {
-            StringWriter writer = new StringWriter();
-            tcx.export(mID, writer);
             conn = (HttpURLConnection) new URL(URL).openConnection();
             conn.setDoOutput(true);
             conn.setRequestMethod(RequestMethod.POST.name());
             conn.addRequestProperty("Content-Encoding", "gzip");
-            OutputStream out = new GZIPOutputStream(
-                    new BufferedOutputStream(conn.getOutputStream()));
-            out.write(writer.toString().getBytes());
-            out.flush();
-            out.close();
+            // Export directly to the connection, the length is not known up front
+            conn.setChunkedStreamingMode(0);
+            Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                    new BufferedOutputStream(conn.getOutputStream())), "UTF-8");
+            ExportCache.export(db, mID, ExportCache.Format.TCX, writer);
+            writer.close();
             int responseCode = conn.getResponseCode();
             String amsg = conn.getResponseMessage();
             Log.e(getName(), "code: " + responseCode + ", amsg: " + amsg);
@@ -244,7 +246,7 @@ public class RunningAHEADSynchronizer extends DefaultSynchronizer implements OAu
             }
             if (responseCode == HttpURLConnection.HTTP_OK && found) {
                 conn.disconnect();
-                return Status.OK;
+                return new UploadResult(Status.OK, mID);
             }
             ex = new Exception(amsg);
         } catch (IOException e) {
@@ -253,10 +255,8 @@ public class RunningAHEADSynchronizer extends DefaultSynchronizer implements OAu
             ex = e;
         }
 
-        s = Synchronizer.Status.ERROR;
-        s.ex = ex;
         ex.printStackTrace();
-        return s;
+        return new UploadResult(Synchronizer.Status.ERROR, mID, ex);
     }
 
     @Override
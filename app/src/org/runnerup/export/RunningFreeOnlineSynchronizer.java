@@ -87,10 +87,14 @@ public class RunningFreeOnlineSynchronizer extends DefaultSynchronizer {
         }
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         Status retval = Status.NEED_AUTH;
-        retval.authMethod = Synchronizer.AuthMethod.USER_PASS;
         if (username == null || secretKey == null) {
             return retval;
         }
@@ -126,7 +130,6 @@ public class RunningFreeOnlineSynchronizer extends DefaultSynchronizer {
         }
 
         if (exception != null) {
-            retval.ex = exception;
             Log.e(LOG_TAG, "connect failed", exception);
         }
         return retval;
@@ -199,7 +202,7 @@ public class RunningFreeOnlineSynchronizer extends DefaultSynchronizer {
     }
     
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status retval = Status.ERROR;
         Exception exception = null;
         HttpURLConnection conn = null;
@@ -259,11 +262,9 @@ public class RunningFreeOnlineSynchronizer extends DefaultSynchronizer {
         }
 
         if (exception != null) {
-            retval.ex = exception;
             Log.e(LOG_TAG, "upload failed", exception);
         }
-        retval.activityId = mID;
-        return retval;
+        return new UploadResult(retval, mID, exception);
     }
 
     /**
@@ -147,6 +147,11 @@ public class RuntasticSynchronizer extends DefaultSynchronizer {
         addCookies(conn);
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.USER_PASS;
+    }
+
     @Override
     public Status connect() {
         Exception ex = null;
@@ -154,7 +159,6 @@ public class RuntasticSynchronizer extends DefaultSynchronizer {
         formValues.clear();
 
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.USER_PASS;
         if (username == null || password == null) {
             return s;
         }
@@ -264,7 +268,6 @@ public class RuntasticSynchronizer extends DefaultSynchronizer {
         if (conn != null)
             conn.disconnect();
 
-        s.ex = ex;
         if (ex != null) {
             ex.printStackTrace();
         }
@@ -274,16 +277,17 @@ public class RuntasticSynchronizer extends DefaultSynchronizer {
 
 
     @Override
-    public Status upload(SQLiteDatabase db, long mID) {
+    public UploadResult upload(SQLiteDatabase db, long mID) {
         Status s;
         if ((s = connect()) != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
         StringWriter writer = new StringWriter();
         TCX tcx = new TCX(db);
 
         HttpURLConnection conn = null;
+        Exception ex = null;
         try {
             Pair<String, Sport> res = tcx.exportWithSport(mID, writer);
             Sport sport = res.second;
@@ -346,25 +350,22 @@ public class RuntasticSynchronizer extends DefaultSynchronizer {
                 conn.disconnect();
             }
             logout();
-            s = Status.OK;
-            s.activityId = mID;
-            return s;
+            return new UploadResult(Status.OK, mID);
 
-        } catch (IOException ex) {
+        } catch (IOException e) {
             s = Status.ERROR;
-            s.ex = ex;
+            Log.e(getName(), "ex: " + e);
+            ex = e;
         } catch (JSONException e) {
             s = Status.ERROR;
-            s.ex = e;
+            Log.e(getName(), "ex: " + e);
+            ex = e;
         }
 
-        Log.e(getName(), "ex: " + s.ex);
-
         if (conn != null)
             conn.disconnect();
 
-        s.activityId = mID;
-        return s;
+        return new UploadResult(s, mID, ex);
     }
 
     @Override
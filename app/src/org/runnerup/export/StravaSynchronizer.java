@@ -29,9 +29,10 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
-import org.runnerup.export.format.TCX;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.export.oauth2client.OAuth2Activity;
 import org.runnerup.export.oauth2client.OAuth2Server;
+import org.runnerup.export.util.GzipWritable;
 import org.runnerup.export.util.Part;
 import org.runnerup.export.util.StringWritable;
 import org.runnerup.export.util.SyncHelper;
@@ -39,16 +40,14 @@ import org.runnerup.workout.Sport;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
 
 
 public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Server {
@@ -197,10 +196,14 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
         access_token = null;
     }
 
+    @Override
+    public AuthMethod getAuthMethod() {
+        return AuthMethod.OAUTH2;
+    }
+
     @Override
     public Status connect() {
         Status s = Status.NEED_AUTH;
-        s.authMethod = AuthMethod.OAUTH2;
         if (access_token == null)
             return s;
 
@@ -240,28 +243,15 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
         return dbInfo;
     }
 
-    private static byte[] gzip(String string) throws IOException {
-        ByteArrayOutputStream os = new ByteArrayOutputStream(string.length());
-        GZIPOutputStream gos = new GZIPOutputStream(os);
-        gos.write(string.getBytes());
-        gos.close();
-        byte[] compressed = os.toByteArray();
-        os.close();
-        return compressed;
-    }
-
     @Override
-    public Status upload(SQLiteDatabase db, final long mID) {
+    public UploadResult upload(final SQLiteDatabase db, final long mID) {
         Status s = connect();
-        s.activityId = mID;
         if (s != Status.OK) {
-            return s;
+            return new UploadResult(s, mID);
         }
 
+        Exception ex;
         try {
-            TCX tcx = new TCX(db);
-            StringWriter writer = new StringWriter();
-            tcx.export(mID, writer);
             ActivityDbInfo dbInfo = getStravaType(db, mID);
 
             HttpURLConnection conn = (HttpURLConnection) new URL(REST_URL).openConnection();
@@ -271,8 +261,13 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
 
             Part<StringWritable> dataTypePart = new Part<>("data_type",
                     new StringWritable("tcx.gz"));
-            Part<StringWritable> filePart = new Part<>("file",
-                    new StringWritable(gzip(writer.toString())));
+            // The TCX is compressed while it is sent
+            Part<GzipWritable> filePart = new Part<>("file", new GzipWritable() {
+                @Override
+                protected void writeContent(Writer writer) throws IOException {
+                    ExportCache.export(db, mID, ExportCache.Format.TCX, writer);
+                }
+            });
             filePart.setFilename(String.format(Locale.getDefault(), "RunnerUp_%04d.tcx.gz", mID));
             filePart.setContentType("application/octet-stream");
             Part<StringWritable> activityTypePart = new Part<>("activity_type",
@@ -300,43 +295,40 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
 
             if (responseCode == HttpURLConnection.HTTP_CREATED && obj.getLong("id") > 0 &&
                     stravaError == null) {
-                s = Status.OK;
-                s.activityId = mID;
-                s.externalId = noNullStr(obj.getString("activity_id"));
-                if (s.externalId == null) {
+                String externalId = noNullStr(obj.getString("activity_id"));
+                if (externalId == null) {
                     //The Strava ID is not yet found, request it
-                    s.externalIdStatus = ExternalIdStatus.PENDING;
-                    s.externalId = noNullStr(obj.getString("id"));
-                } else {
-                    //Only for very small activities
-                    s.externalIdStatus = ExternalIdStatus.OK;
+                    return new UploadResult(Status.OK, mID, ExternalIdStatus.PENDING,
+                            noNullStr(obj.getString("id")));
                 }
-                return s;
+                //Only for very small activities
+                return new UploadResult(Status.OK, mID, ExternalIdStatus.OK, externalId);
             }
 
             Log.e(getName(), "Error uploading to Strava. code: " + responseCode + ", amsg: " + amsg +
             ", json: " + obj);
             s = Synchronizer.Status.ERROR;
-            return s;
+            return new UploadResult(s, mID);
 
         } catch (IOException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         } catch (JSONException e) {
             s = Synchronizer.Status.ERROR;
-            s.ex = e;
+            e.printStackTrace();
+            ex = e;
         }
 
-        s.ex.printStackTrace();
-        return s;
+        return new UploadResult(s, mID, ex);
     }
 
     /**
      * Strava processing
      */
     @Override
-    public Status getExternalId(final SQLiteDatabase db, Status uploadStatus) {
-        Status result = Status.ERROR;
+    public UploadResult getExternalId(final SQLiteDatabase db, UploadResult uploadStatus) {
+        UploadResult result = new UploadResult(Status.ERROR, uploadStatus.activityId);
 
         try {
             String stravaError = null;
@@ -367,10 +359,8 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
                     Log.v(getName(), "extid code: " + obj);
                     String extId = noNullStr(obj.getString("activity_id"));
                     if (extId != null) {
-                        result = Status.OK;
-                        result.activityId = uploadStatus.activityId;
-                        result.externalId = extId;
-                        result.externalIdStatus = ExternalIdStatus.OK;
+                        result = new UploadResult(Status.OK, uploadStatus.activityId,
+                                ExternalIdStatus.OK, extId);
                     }
                     return result;
                 }
@@ -380,12 +370,13 @@ public class StravaSynchronizer extends DefaultSynchronizer implements OAuth2Ser
             return result;
 
         } catch (IOException e) {
-            result.ex = e;
+            e.printStackTrace();
+            result = new UploadResult(Status.ERROR, uploadStatus.activityId, e);
         } catch (JSONException e) {
-            result.ex = e;
+            e.printStackTrace();
+            result = new UploadResult(Status.ERROR, uploadStatus.activityId, e);
         }
 
-        result.ex.printStackTrace();
         return result;
     }
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.export;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+
+/**
+ * Runs the SyncService upload queue with JobScheduler, when there is a network.
+ * Background services cannot be started from alarms for apps targeting API 26+.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SyncJobService extends JobService {
+
+    private static final int JOB_ID = 1;
+
+    private SyncManager mSyncManager = null;
+
+    /**
+     * Run the queue at nextAt (or later), cancel the job if nextAt is 0
+     */
+    static void schedule(Context context, long nextAt) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+        if (nextAt == 0) {
+            jobScheduler.cancel(JOB_ID);
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, SyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(Math.max(0, nextAt - System.currentTimeMillis()))
+                .build();
+        jobScheduler.schedule(job);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // SyncManager is created on the main thread, it expects a Looper
+        mSyncManager = new SyncManager(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        mSyncManager.close();
+        super.onDestroy();
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final Context context = getApplicationContext();
+        SyncService.setProcessing(true);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SyncService.process(context, mSyncManager);
+                // Scheduling the job while it is running would stop it
+                jobFinished(params, false);
+                SyncService.setProcessing(false);
+                SyncService.schedule(context, 0);
+            }
+        }).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The network was lost, uploads that fail are retried with backoff
+        return false;
+    }
+}
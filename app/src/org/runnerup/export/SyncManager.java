@@ -34,10 +34,13 @@ import android.database.sqlite.SQLiteDatabase;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
 import android.text.InputType;
+import android.text.TextUtils;
 import android.util.Log;
 import android.util.Pair;
 import android.view.KeyEvent;
@@ -57,6 +60,7 @@ import org.runnerup.common.util.Constants.DB;
 import org.runnerup.db.DBHelper;
 import org.runnerup.export.Synchronizer.AuthMethod;
 import org.runnerup.export.Synchronizer.Status;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.feed.FeedList;
 import org.runnerup.feedwidget.FeedWidgetProvider;
 import org.runnerup.tracker.WorkoutObserver;
@@ -76,6 +80,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class SyncManager {
@@ -117,6 +123,7 @@ public class SyncManager {
         mDB = DBHelper.getWritableDatabase(context);
         mSpinner = spinner;
         mSpinner.setCancelable(false);
+        ExportCache.init(context);
     }
     public SyncManager(Activity activity) {
         init(activity, activity, new ProgressDialog(activity));
@@ -271,7 +278,7 @@ public class SyncManager {
                         mSpinner.dismiss();
                         callback.run(synchronizerName, status);
                     }
-                }, synchronizer, s.authMethod);
+                }, synchronizer, synchronizer.getAuthMethod());
                 return;
 
             default:
@@ -576,95 +583,128 @@ public class SyncManager {
         return result;
     }
 
+    /**
+     * Max number of synchronizers uploading at the same time
+     */
+    private static final int MAX_PARALLEL_UPLOADS = 3;
+
     private long mID = 0;
     private Callback uploadCallback = null;
     private HashSet<String> pendingSynchronizers = null;
+    // The following are only accessed from the UI thread
+    private final Set<String> activeUploads = new HashSet<>();
+    private final List<Synchronizer> pendingAuth = new ArrayList<>();
+    private boolean authInProgress = false;
+    private ExecutorService uploadExecutor = null;
+    private Handler uploadHandler = null;
 
     public void startUploading(Callback callback, HashSet<String> synchronizers, long id) {
         mID = id;
         uploadCallback = callback;
         pendingSynchronizers = synchronizers;
+        activeUploads.clear();
+        pendingAuth.clear();
+        authInProgress = false;
+        uploadExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_UPLOADS);
+        uploadHandler = new Handler(Looper.getMainLooper());
         mSpinner.setTitle("Uploading (" + pendingSynchronizers.size() + ")");
         mSpinner.show();
         nextSynchronizer();
     }
 
+    /**
+     * Start uploads until MAX_PARALLEL_UPLOADS are running,
+     * finish when all uploads (and authentications) are done
+     */
     private void nextSynchronizer() {
-        if (pendingSynchronizers.isEmpty()) {
+        while (activeUploads.size() < MAX_PARALLEL_UPLOADS && !pendingSynchronizers.isEmpty()) {
+            final Synchronizer synchronizer = synchronizers.get(pendingSynchronizers.iterator().next());
+            pendingSynchronizers.remove(synchronizer.getName());
+            doUpload(synchronizer);
+        }
+
+        if (activeUploads.isEmpty() && pendingAuth.isEmpty() && !authInProgress) {
             doneUploading();
-            return;
         }
+    }
 
-        mSpinner.setTitle("Uploading (" + pendingSynchronizers.size() + ")");
-        final Synchronizer synchronizer = synchronizers.get(pendingSynchronizers.iterator().next());
-        pendingSynchronizers.remove(synchronizer.getName());
-        doUpload(synchronizer);
+    private void updateUploadSpinner() {
+        mSpinner.setTitle("Uploading (" + (pendingSynchronizers.size() + activeUploads.size()) + ")");
+        if (!activeUploads.isEmpty()) {
+            mSpinner.setMessage(getResources().getString(SyncMode.UPLOAD.getTextId(),
+                    TextUtils.join(", ", activeUploads)));
+        }
     }
 
-    @SuppressLint("StaticFieldLeak")
     private void doUpload(final Synchronizer synchronizer) {
-        final ProgressDialog copySpinner = mSpinner;
         final SQLiteDatabase copyDB = DBHelper.getWritableDatabase(mContext);
 
-        copySpinner.setMessage(getResources().getString(SyncMode.UPLOAD.getTextId(), synchronizer.getName()));
-
-        new AsyncTask<Synchronizer, String, Synchronizer.Status>() {
+        activeUploads.add(synchronizer.getName());
+        updateUploadSpinner();
 
+        uploadExecutor.execute(new Runnable() {
             @Override
-            protected Synchronizer.Status doInBackground(Synchronizer... params) {
-                try {
-                    Synchronizer.Status s2 = params[0].upload(copyDB, mID);
-                    // See doUpload() for motivation
-                    if (s2 == Synchronizer.Status.NEED_REFRESH) {
-                        s2 = handleRefreshComplete(synchronizer, synchronizer.refreshToken());
-                        if (s2 == Synchronizer.Status.OK) {
-                            s2 = params[0].upload(copyDB, mID);
-                        }
+            public void run() {
+                final Synchronizer.UploadResult result = upload(synchronizer, copyDB, mID);
+                uploadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        uploadDone(synchronizer, copyDB, result);
                     }
-                    return s2;
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                    return Synchronizer.Status.ERROR;
-                }
+                });
             }
+        });
+    }
 
-            @Override
-            protected void onPostExecute(Synchronizer.Status result) {
-                switch (result) {
-                    case OK:
-                        syncOK(synchronizer, copySpinner, copyDB, result);
-                        nextSynchronizer();
-                        break;
+    private void uploadDone(Synchronizer synchronizer, SQLiteDatabase copyDB,
+                            Synchronizer.UploadResult result) {
+        activeUploads.remove(synchronizer.getName());
+        switch (result.status) {
+            case OK:
+                syncOK(synchronizer, mSpinner, copyDB, result);
+                break;
 
-                    case NEED_AUTH:
-                        handleAuth(new Callback() {
-                            @Override
-                            public void run(String synchronizerName,
-                                            Synchronizer.Status status) {
-                                switch (status) {
-                                    case OK:
-                                        doUpload(synchronizer);
-                                        break;
+            case NEED_AUTH:
+                // Authentication is interactive, one synchronizer at a time
+                pendingAuth.add(synchronizer);
+                nextAuth();
+                break;
 
-                                    default:
-                                        nextSynchronizer();
-                                        break;
-                                }
-                            }
-                        }, synchronizer, result.authMethod);
-                        return;
+            case CANCEL:
+                pendingSynchronizers.clear();
+                pendingAuth.clear();
+                break;
 
-                    case CANCEL:
-                        pendingSynchronizers.clear();
-                        doneUploading();
-                        return;
+            case ERROR:
+                // Transient errors are retried in the background by SyncService
+                Log.w(getClass().getName(), synchronizer.getName() + " upload failed", result.ex);
+                break;
 
-                    default:
-                        nextSynchronizer();
-                        break;
+            default:
+                break;
+        }
+        updateUploadSpinner();
+        nextSynchronizer();
+    }
+
+    private void nextAuth() {
+        if (authInProgress || pendingAuth.isEmpty()) {
+            return;
+        }
+        authInProgress = true;
+        final Synchronizer auth = pendingAuth.remove(0);
+        handleAuth(new Callback() {
+            @Override
+            public void run(String synchronizerName,
+                            Synchronizer.Status status) {
+                authInProgress = false;
+                if (status == Synchronizer.Status.OK) {
+                    doUpload(auth);
                 }
+                nextAuth();
+                nextSynchronizer();
             }
-        }.execute(synchronizer);
+        }, auth, auth.getAuthMethod());
     }
 
     /**
@@ -672,20 +712,21 @@ public class SyncManager {
      * The result is seen in activity upload only (clickable link).
      * @param synchronizer
      * @param copyDB
-     * @param status
+     * @param uploadResult
      */
-    private static void getExternalId(final Synchronizer synchronizer, final SQLiteDatabase copyDB, final Synchronizer.Status status){
-        if(status.externalIdStatus == Synchronizer.ExternalIdStatus.PENDING) {
-            new AsyncTask<Void, Void, Synchronizer.Status>() {
+    private static void getExternalId(final Synchronizer synchronizer, final SQLiteDatabase copyDB,
+                                      final Synchronizer.UploadResult uploadResult) {
+        if(uploadResult.externalIdStatus == Synchronizer.ExternalIdStatus.PENDING) {
+            new AsyncTask<Void, Void, Synchronizer.UploadResult>() {
 
                 @Override
-                protected Synchronizer.Status doInBackground(Void... args) {
+                protected Synchronizer.UploadResult doInBackground(Void... args) {
                     // Implementation must delay the call rate
-                    return synchronizer.getExternalId(copyDB, status);
+                    return synchronizer.getExternalId(copyDB, uploadResult);
                 }
 
                 @Override
-                protected void onPostExecute(Synchronizer.Status result) {
+                protected void onPostExecute(Synchronizer.UploadResult result) {
                     //the external status is updated, check
                     externalIdCompleted(synchronizer, copyDB, result);
                 }
@@ -700,23 +741,71 @@ public class SyncManager {
         }
     };
 
-    private void syncOK(Synchronizer synchronizer, ProgressDialog copySpinner, SQLiteDatabase copyDB,
-                        Synchronizer.Status status) {
-        copySpinner.setMessage(getResources().getString(R.string.Saving));
-        status.activityId = mID; //Not always set
+    /**
+     * Upload an activity, refresh the token if needed and save the result.
+     * Called from a background thread, also used by SyncService.
+     */
+    Synchronizer.UploadResult upload(Synchronizer synchronizer, SQLiteDatabase db, long activityId) {
+        // The upload is a job in the queue until completed, so it is resumed
+        // if the process is killed and retried after a transient error
+        SyncQueue.Job job = SyncService.startJob(db, activityId, synchronizer.getId());
+        if (job == null) {
+            Log.i(getClass().getName(), synchronizer.getName() + " already uploading " + activityId);
+            return new Synchronizer.UploadResult(Synchronizer.Status.SKIP, activityId);
+        }
 
+        Synchronizer.UploadResult result = null;
+        try {
+            try {
+                result = synchronizer.upload(db, activityId);
+                // See doUpload() for motivation
+                if (result.status == Synchronizer.Status.NEED_REFRESH) {
+                    Status s = handleRefreshComplete(synchronizer, synchronizer.refreshToken());
+                    if (s == Synchronizer.Status.OK) {
+                        result = synchronizer.upload(db, activityId);
+                    } else {
+                        result = new Synchronizer.UploadResult(s, activityId);
+                    }
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                result = new Synchronizer.UploadResult(Synchronizer.Status.ERROR, activityId, ex);
+            }
+
+            if (result.status == Synchronizer.Status.OK) {
+                saveSyncStatus(synchronizer, db, result);
+            }
+        } finally {
+            SyncService.jobDone(mContext, db, job, result != null ? result
+                    : new Synchronizer.UploadResult(Synchronizer.Status.ERROR, activityId));
+        }
+        return result;
+    }
+
+    private static void saveSyncStatus(Synchronizer synchronizer, SQLiteDatabase db,
+                                       Synchronizer.UploadResult status) {
         ContentValues tmp = new ContentValues();
         tmp.put(DB.EXPORT.ACCOUNT, synchronizer.getId());
         tmp.put(DB.EXPORT.ACTIVITY, status.activityId);
         tmp.put(DB.EXPORT.STATUS, status.externalIdStatus.getInt());
         tmp.put(DB.EXPORT.EXTERNAL_ID, status.externalId);
-        copyDB.insert(DB.EXPORT.TABLE, null, tmp);
+        db.insert(DB.EXPORT.TABLE, null, tmp);
+        db.delete(DB.SYNC_QUEUE.TABLE, DB.SYNC_QUEUE.ACTIVITY + " = " + status.activityId
+                + " AND " + DB.SYNC_QUEUE.ACCOUNT + " = " + synchronizer.getId(), null);
+    }
 
-        getExternalId(synchronizer, copyDB, status);
+    private void syncOK(Synchronizer synchronizer, ProgressDialog copySpinner, SQLiteDatabase copyDB,
+                        Synchronizer.UploadResult result) {
+        copySpinner.setMessage(getResources().getString(R.string.Saving));
+        getExternalId(synchronizer, copyDB, result);
     }
 
     private static void externalIdCompleted(Synchronizer synchronizer, SQLiteDatabase copyDB,
-                                            Synchronizer.Status status) {
+                                            Synchronizer.UploadResult status) {
+        if (status.status != Synchronizer.Status.OK) {
+            // keep the pending identifier
+            return;
+        }
         ContentValues tmp = new ContentValues();
         tmp.put(DB.EXPORT.STATUS, status.externalIdStatus.getInt());
         tmp.put(DB.EXPORT.EXTERNAL_ID, status.externalId);
@@ -726,6 +815,10 @@ public class SyncManager {
 
     private void doneUploading() {
         mSpinner.dismiss();
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdown();
+            uploadExecutor = null;
+        }
         final Callback cb = uploadCallback;
         uploadCallback = null;
         if (cb != null)
@@ -902,7 +995,7 @@ public class SyncManager {
                                         break;
                                 }
                             }
-                        }, synchronizer, result.authMethod);
+                        }, synchronizer, synchronizer.getAuthMethod());
                         return;
 
                     default:
@@ -1145,16 +1238,16 @@ public class SyncManager {
         final SQLiteDatabase copyDB = DBHelper.getWritableDatabase(mContext);
 
         copySpinner.setMessage(Long.toString(1 + syncActivitiesList.size()) + " remaining");
-        new AsyncTask<Synchronizer, String, Status>() {
+        new AsyncTask<Synchronizer, String, Synchronizer.UploadResult>() {
 
             @Override
-            protected Synchronizer.Status doInBackground(Synchronizer... params) {
+            protected Synchronizer.UploadResult doInBackground(Synchronizer... params) {
                 try {
                     Synchronizer.Status s2;
                     switch (mode) {
                         case UPLOAD:
-                            s2 = synchronizer.upload(copyDB, activityItem.getId());
-                            break;
+                            // Refreshes the token and saves the result
+                            return upload(synchronizer, copyDB, activityItem.getId());
                         case DOWNLOAD:
                             s2 = synchronizer.download(copyDB, activityItem);
                             break;
@@ -1165,29 +1258,23 @@ public class SyncManager {
                     if (s2 == Synchronizer.Status.NEED_REFRESH) {
                         s2 = handleRefreshComplete(synchronizer, synchronizer.refreshToken());
                         if (s2 == Synchronizer.Status.OK) {
-                            switch (mode) {
-                                case UPLOAD:
-                                    s2 = synchronizer.upload(copyDB, activityItem.getId());
-                                    break;
-                                case DOWNLOAD:
-                                    s2 = synchronizer.download(copyDB, activityItem);
-                                    break;
-                                default:
-                                    s2 = Synchronizer.Status.INCORRECT_USAGE;
-                            }
+                            s2 = synchronizer.download(copyDB, activityItem);
                         }
                     }
-                    return s2;
+                    return new Synchronizer.UploadResult(s2, activityItem.getId());
                 } catch (Exception ex) {
                     ex.printStackTrace();
-                    return Synchronizer.Status.ERROR;
+                    return new Synchronizer.UploadResult(Synchronizer.Status.ERROR, activityItem.getId(), ex);
                 }
             }
 
             @Override
-            protected void onPostExecute(Synchronizer.Status result) {
-                switch (result) {
+            protected void onPostExecute(Synchronizer.UploadResult result) {
+                switch (result.status) {
                     case OK:
+                        if (mode == SyncMode.DOWNLOAD) {
+                            saveSyncStatus(synchronizer, copyDB, result);
+                        }
                         syncOK(synchronizer, copySpinner, copyDB, result);
                         syncNextActivity(synchronizer, mode);
                         break;
@@ -1208,7 +1295,7 @@ public class SyncManager {
                                         break;
                                 }
                             }
-                        }, synchronizer, result.authMethod);
+                        }, synchronizer, synchronizer.getAuthMethod());
                         return;
 
                     case CANCEL:
@@ -1217,6 +1304,9 @@ public class SyncManager {
                         break;
 
                     default:
+                        if (result.ex != null) {
+                            Log.w(getClass().getName(), synchronizer.getName() + " sync failed", result.ex);
+                        }
                         syncNextActivity(synchronizer, mode);
                         break;
                 }
@@ -1308,12 +1398,10 @@ public class SyncManager {
                                     nextSyncFeed();
                                 }
                             }
-                        }, synchronizer, result.authMethod);
+                        }, synchronizer, synchronizer.getAuthMethod());
                         return;
 
                     default:
-                        if (result.ex != null)
-                            result.ex.printStackTrace();
                         nextSyncFeed();
                         break;
                 }
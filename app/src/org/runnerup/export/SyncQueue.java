@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.export;
+
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scheduling of the queued uploads in SyncService: which jobs run together and
+ * when a failed upload is retried.
+ * No Android dependencies, so it can be tested as a local unit test.
+ */
+final class SyncQueue {
+
+    /**
+     * Max number of uploads at the same time
+     */
+    static final int MAX_PARALLEL_UPLOADS = 3;
+
+    /**
+     * Max number of upload attempts, including the first upload
+     */
+    static final int MAX_ATTEMPTS = 10;
+    static final long INITIAL_BACKOFF = 2 * 60 * 1000;
+    static final long MAX_BACKOFF = 12 * 3600 * 1000;
+
+    /**
+     * Returned from retryAt() when the job is not retried
+     */
+    static final long NO_RETRY = -1;
+
+    static class Job {
+        long id;
+        long activityId;
+        long accountId;
+        int attempts;
+    }
+
+    private SyncQueue() {
+    }
+
+    /**
+     * @param attempts the number of failed attempts
+     * @return the delay until the next attempt, doubled for every failure
+     */
+    static long getBackoff(int attempts) {
+        // The shift is limited to avoid overflow, MAX_BACKOFF is reached long before
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(MAX_BACKOFF, INITIAL_BACKOFF << shift);
+    }
+
+    /**
+     * @param attempts the number of failed attempts
+     * @return the time of the next attempt, NO_RETRY if the upload is given up
+     */
+    static long retryAt(int attempts, long now) {
+        if (attempts >= MAX_ATTEMPTS) {
+            return NO_RETRY;
+        }
+        return now + getBackoff(attempts);
+    }
+
+    /**
+     * Failures where the upload may succeed later: no network, connection lost or timeouts.
+     * HTTP error responses, format and authentication errors are not retried,
+     * the upload remains in UploadActivity.
+     *
+     * @param ex the cause of a failed upload, may be null
+     */
+    static boolean isTransient(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SocketException
+                    || t instanceof InterruptedIOException
+                    || t instanceof UnknownHostException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update the job after an upload attempt
+     *
+     * @param retryable true if the upload failed with a transient error
+     * @return the time of the next attempt, NO_RETRY if the job is done
+     */
+    static long completed(Job job, boolean retryable, long now) {
+        if (!retryable) {
+            return NO_RETRY;
+        }
+        job.attempts++;
+        return retryAt(job.attempts, now);
+    }
+
+    /**
+     * Select the jobs to run in parallel, at most one per account as a synchronizer
+     * keeps state (cookies, tokens) between the requests of an upload.
+     * The other jobs remain for the next round.
+     *
+     * @param due the jobs that are due, the oldest first
+     */
+    static <T extends Job> List<T> selectJobs(List<T> due) {
+        List<T> selected = new ArrayList<>();
+        Set<Long> accounts = new HashSet<>();
+        for (T job : due) {
+            if (selected.size() >= MAX_PARALLEL_UPLOADS) {
+                break;
+            }
+            if (accounts.add(job.accountId)) {
+                selected.add(job);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.export;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.PendingIntent;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.runnerup.common.util.Constants.DB;
+import org.runnerup.db.DBHelper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * All uploads are jobs in the sync_queue table, SyncManager.upload() starts and completes
+ * the job. Uploads that fail with a transient error (no network, timeouts) or that were
+ * interrupted when the process was killed are retried in the background with exponential
+ * backoff, see SyncQueue.
+ *
+ * Uploads that fail otherwise or need user interaction (authentication) are not retried,
+ * they remain as pending uploads in UploadActivity.
+ *
+ * The queue is run by SyncJobService from API 21, this service is used
+ * with an alarm on older versions (without background execution limits).
+ */
+public class SyncService extends IntentService {
+
+    private static final String TAG = "SyncService";
+
+    /**
+     * Set while the queue is processed, the queue is scheduled when done
+     */
+    private static boolean sProcessing = false;
+
+    /**
+     * Jobs uploading in this process, other jobs in the running state were interrupted
+     */
+    private static final Set<Long> sRunning = new HashSet<>();
+
+    private SyncManager mSyncManager = null;
+
+    public SyncService() {
+        super(TAG);
+    }
+
+    /**
+     * Start the upload of the activity to the account, queued or new
+     * @return the job, null if the upload is already running
+     */
+    static synchronized SyncQueue.Job startJob(SQLiteDatabase db, long activityId, long accountId) {
+        SyncQueue.Job job = new SyncQueue.Job();
+        job.activityId = activityId;
+        job.accountId = accountId;
+        String[] cols = {
+                "_id", DB.SYNC_QUEUE.ATTEMPTS
+        };
+        Cursor c = db.query(DB.SYNC_QUEUE.TABLE, cols, DB.SYNC_QUEUE.ACTIVITY + " = " + activityId
+                + " AND " + DB.SYNC_QUEUE.ACCOUNT + " = " + accountId, null, null, null, null);
+        try {
+            if (c.moveToFirst()) {
+                job.id = c.getLong(0);
+                job.attempts = c.getInt(1);
+                if (sRunning.contains(job.id)) {
+                    return null;
+                }
+                setState(db, job.id, DB.SYNC_QUEUE.STATE_RUNNING);
+            } else {
+                ContentValues tmp = new ContentValues();
+                tmp.put(DB.SYNC_QUEUE.ACTIVITY, activityId);
+                tmp.put(DB.SYNC_QUEUE.ACCOUNT, accountId);
+                tmp.put(DB.SYNC_QUEUE.STATE, DB.SYNC_QUEUE.STATE_RUNNING);
+                tmp.put(DB.SYNC_QUEUE.ATTEMPTS, 0);
+                tmp.put(DB.SYNC_QUEUE.NEXT_AT, System.currentTimeMillis());
+                job.id = db.insert(DB.SYNC_QUEUE.TABLE, null, tmp);
+            }
+        } finally {
+            c.close();
+        }
+        sRunning.add(job.id);
+        return job;
+    }
+
+    /**
+     * Complete the job started by startJob(), retry it later if the failure is transient
+     */
+    static void jobDone(Context context, SQLiteDatabase db, SyncQueue.Job job,
+                        Synchronizer.UploadResult result) {
+        long now = System.currentTimeMillis();
+        long nextAt = SyncQueue.completed(job, result.isRetryable(), now);
+        synchronized (SyncService.class) {
+            if (nextAt == SyncQueue.NO_RETRY) {
+                remove(db, job.id);
+            } else {
+                ContentValues tmp = new ContentValues();
+                tmp.put(DB.SYNC_QUEUE.STATE, DB.SYNC_QUEUE.STATE_PENDING);
+                tmp.put(DB.SYNC_QUEUE.ATTEMPTS, job.attempts);
+                tmp.put(DB.SYNC_QUEUE.NEXT_AT, nextAt);
+                db.update(DB.SYNC_QUEUE.TABLE, tmp, "_id = " + job.id, null);
+            }
+            sRunning.remove(job.id);
+        }
+
+        if (nextAt != SyncQueue.NO_RETRY) {
+            Log.i(TAG, "upload of " + job.activityId + " to " + job.accountId + " failed, retry in "
+                    + (nextAt - now) / 1000 + "s");
+            schedule(context, db, 0);
+        } else if (result.isRetryable()) {
+            Log.w(TAG, "upload of " + job.activityId + " to " + job.accountId + " failed, giving up");
+        } else if (result.status != Synchronizer.Status.OK) {
+            Log.i(TAG, "upload of " + job.activityId + " to " + job.accountId + " not retried: "
+                    + result.status);
+        }
+    }
+
+    /**
+     * SQL condition for the jobs not uploading in this process, called with the class locked
+     */
+    private static String notRunningHere() {
+        if (sRunning.isEmpty()) {
+            return "1";
+        }
+        return "_id NOT IN (" + TextUtils.join(",", sRunning) + ")";
+    }
+
+    /**
+     * Schedule the queued uploads,
+     * for instance when the app is started after being killed
+     */
+    public static void startIfQueued(Context context, SQLiteDatabase db) {
+        schedule(context, db, 0);
+    }
+
+    static synchronized void setProcessing(boolean processing) {
+        sProcessing = processing;
+    }
+
+    /**
+     * Schedule the queue after it was processed
+     */
+    static void schedule(Context context, long notBefore) {
+        SQLiteDatabase db = DBHelper.getReadableDatabase(context);
+        try {
+            schedule(context, db, notBefore);
+        } finally {
+            DBHelper.closeDB(db);
+        }
+    }
+
+    /**
+     * Run the queue when the next upload is due
+     * @param notBefore earliest time for the alarm, the job waits for a network itself
+     */
+    private static synchronized void schedule(Context context, SQLiteDatabase db, long notBefore) {
+        if (sProcessing) {
+            return;
+        }
+        // Jobs left running when the process was killed are due too
+        long nextAt = 0;
+        Cursor c = db.rawQuery("SELECT MIN(" + DB.SYNC_QUEUE.NEXT_AT + ") FROM " + DB.SYNC_QUEUE.TABLE
+                + " WHERE " + notRunningHere(), null);
+        if (c.moveToFirst() && !c.isNull(0)) {
+            nextAt = c.getLong(0);
+        }
+        c.close();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            SyncJobService.schedule(context, nextAt);
+            return;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pi = PendingIntent.getService(context, 0,
+                new Intent(context, SyncService.class), PendingIntent.FLAG_UPDATE_CURRENT);
+        if (nextAt == 0) {
+            alarmManager.cancel(pi);
+        } else {
+            alarmManager.set(AlarmManager.RTC, Math.max(nextAt, notBefore), pi);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // SyncManager is created on the main thread, it expects a Looper
+        mSyncManager = new SyncManager(this);
+    }
+
+    @Override
+    public void onDestroy() {
+        mSyncManager.close();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        boolean connected;
+        setProcessing(true);
+        try {
+            connected = process(this, mSyncManager);
+        } finally {
+            setProcessing(false);
+        }
+        // Without a network, check again later instead of directly
+        schedule(this, connected ? 0 : System.currentTimeMillis() + SyncQueue.INITIAL_BACKOFF);
+    }
+
+    /**
+     * Run the uploads that are due, called on a background thread
+     * @return false if there was no network
+     */
+    static boolean process(Context context, SyncManager syncManager) {
+        final SQLiteDatabase db = DBHelper.getWritableDatabase(context);
+        try {
+            // Jobs left running when the process was killed
+            synchronized (SyncService.class) {
+                ContentValues tmp = new ContentValues();
+                tmp.put(DB.SYNC_QUEUE.STATE, DB.SYNC_QUEUE.STATE_PENDING);
+                db.update(DB.SYNC_QUEUE.TABLE, tmp, DB.SYNC_QUEUE.STATE + " = "
+                        + DB.SYNC_QUEUE.STATE_RUNNING + " AND " + notRunningHere(), null);
+            }
+
+            if (!isConnected(context)) {
+                return false;
+            }
+            drain(db, syncManager);
+            return true;
+        } finally {
+            DBHelper.closeDB(db);
+        }
+    }
+
+    private static boolean isConnected(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo info = cm == null ? null : cm.getActiveNetworkInfo();
+        return info != null && info.isConnected();
+    }
+
+    private static class UploadJob extends SyncQueue.Job {
+        Synchronizer synchronizer;
+        Future<Synchronizer.UploadResult> result;
+    }
+
+    private static void drain(final SQLiteDatabase db, final SyncManager syncManager) {
+        ExecutorService executor = Executors.newFixedThreadPool(SyncQueue.MAX_PARALLEL_UPLOADS);
+        try {
+            List<UploadJob> jobs;
+            while (!(jobs = SyncQueue.selectJobs(getDueJobs(db, syncManager))).isEmpty()) {
+                for (final UploadJob job : jobs) {
+                    // The job is started and completed by SyncManager.upload()
+                    job.result = executor.submit(new Callable<Synchronizer.UploadResult>() {
+                        @Override
+                        public Synchronizer.UploadResult call() {
+                            return syncManager.upload(job.synchronizer, db, job.activityId);
+                        }
+                    });
+                }
+                for (UploadJob job : jobs) {
+                    try {
+                        job.result.get();
+                    } catch (InterruptedException | ExecutionException e) {
+                        Log.w(TAG, job.synchronizer.getName() + " upload failed", e);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<UploadJob> getDueJobs(SQLiteDatabase db, SyncManager syncManager) {
+        String[] cols = {
+                "_id", DB.SYNC_QUEUE.ACTIVITY, DB.SYNC_QUEUE.ACCOUNT, DB.SYNC_QUEUE.ATTEMPTS
+        };
+        List<UploadJob> jobs = new ArrayList<>();
+        Cursor c = db.query(DB.SYNC_QUEUE.TABLE, cols,
+                DB.SYNC_QUEUE.STATE + " = " + DB.SYNC_QUEUE.STATE_PENDING
+                        + " AND " + DB.SYNC_QUEUE.NEXT_AT + " <= " + System.currentTimeMillis(),
+                null, null, null, DB.SYNC_QUEUE.NEXT_AT);
+        if (c.moveToFirst()) {
+            do {
+                UploadJob job = new UploadJob();
+                job.id = c.getLong(0);
+                job.activityId = c.getLong(1);
+                job.accountId = c.getLong(2);
+                job.attempts = c.getInt(3);
+                job.synchronizer = getSynchronizer(db, syncManager, job.accountId);
+                if (job.synchronizer == null) {
+                    // Account disabled or removed
+                    remove(db, job.id);
+                } else {
+                    jobs.add(job);
+                }
+            } while (c.moveToNext());
+        }
+        c.close();
+        return jobs;
+    }
+
+    private static Synchronizer getSynchronizer(SQLiteDatabase db, SyncManager syncManager, long accountId) {
+        Synchronizer synchronizer = syncManager.getSynchronizer(accountId);
+        if (synchronizer == null) {
+            String[] args = {
+                    Long.toString(accountId)
+            };
+            Cursor c = db.query(DB.ACCOUNT.TABLE, null, "_id = ?", args, null, null, null);
+            if (c.moveToFirst()) {
+                synchronizer = syncManager.add(DBHelper.get(c));
+            }
+            c.close();
+        }
+        return synchronizer;
+    }
+
+    private static void setState(SQLiteDatabase db, long id, int state) {
+        ContentValues tmp = new ContentValues();
+        tmp.put(DB.SYNC_QUEUE.STATE, state);
+        db.update(DB.SYNC_QUEUE.TABLE, tmp, "_id = " + id, null);
+    }
+
+    private static void remove(SQLiteDatabase db, long id) {
+        db.delete(DB.SYNC_QUEUE.TABLE, "_id = " + id, null);
+    }
+}
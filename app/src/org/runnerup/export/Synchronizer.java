@@ -38,12 +38,49 @@ public interface Synchronizer {
     }
 
     enum Status {
-        OK, CANCEL, ERROR, INCORRECT_USAGE, SKIP, NEED_AUTH, NEED_REFRESH;
-        public Exception ex = null;
-        public AuthMethod authMethod = null;
-        public Long activityId = SyncManager.ERROR_ACTIVITY_ID;
-        public ExternalIdStatus externalIdStatus = ExternalIdStatus.NONE;
-        public String externalId = null ;
+        OK, CANCEL, ERROR, INCORRECT_USAGE, SKIP, NEED_AUTH, NEED_REFRESH
+    }
+
+    /**
+     * The result of an upload of an activity to an account.
+     * A new object for each upload, as uploads to several accounts run in parallel.
+     */
+    final class UploadResult {
+        public final Status status;
+        public final long activityId;
+        public final ExternalIdStatus externalIdStatus;
+        public final String externalId;
+        //The cause of an error, if any
+        public final Throwable ex;
+
+        public UploadResult(Status status, long activityId) {
+            this(status, activityId, ExternalIdStatus.NONE, null, null);
+        }
+
+        public UploadResult(Status status, long activityId, Throwable ex) {
+            this(status, activityId, ExternalIdStatus.NONE, null, ex);
+        }
+
+        public UploadResult(Status status, long activityId,
+                            ExternalIdStatus externalIdStatus, String externalId) {
+            this(status, activityId, externalIdStatus, externalId, null);
+        }
+
+        private UploadResult(Status status, long activityId,
+                             ExternalIdStatus externalIdStatus, String externalId, Throwable ex) {
+            this.status = status;
+            this.activityId = activityId;
+            this.externalIdStatus = externalIdStatus;
+            this.externalId = externalId;
+            this.ex = ex;
+        }
+
+        /**
+         * @return true if the upload failed and may succeed later, see SyncQueue
+         */
+        public boolean isRetryable() {
+            return status == Status.ERROR && SyncQueue.isTransient(ex);
+        }
     }
 
     enum ExternalIdStatus {
@@ -106,6 +143,11 @@ public interface Synchronizer {
      */
     String getAuthConfig();
 
+    /**
+     * @return how to authenticate when a request returns Status.NEED_AUTH
+     */
+    AuthMethod getAuthMethod();
+
     /**
 	 *
 	 */
@@ -137,16 +179,16 @@ public interface Synchronizer {
      * @param db
      * @param mID
      */
-    Status upload(SQLiteDatabase db, long mID);
+    UploadResult upload(SQLiteDatabase db, long mID);
 
     /**
      * Get the external identifier for the service
      * Done in the background, can take substantial time for some services
      * @param db
-     * @param uploadStatus The status with the (temporary) identifier for the upload
+     * @param uploadResult The result with the (temporary) identifier for the upload
      * @return the external ID
      */
-    Status getExternalId(SQLiteDatabase db, Status uploadStatus);
+    UploadResult getExternalId(SQLiteDatabase db, UploadResult uploadResult);
 
     /**
      * Check if an synchronizer supports a feature
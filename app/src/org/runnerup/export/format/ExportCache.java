@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.export.format;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import org.runnerup.common.util.Constants.DB;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of rendered exports, so an activity synced to several accounts is only
+ * rendered once per format.
+ *
+ * Files are named activityId-format-stamp, where the stamp is derived from the
+ * activity summary (that is updated when the activity is edited or recomputed).
+ * The activity files are also removed explicitly with invalidate().
+ * The least recently used files are removed when the cache grows above MAX_SIZE.
+ * Exports are rendered to a temporary file without holding the lock, the lock
+ * is only held when the cache directory is examined or modified. An export is
+ * rendered once, other threads requesting it wait for the render in progress.
+ * A render that was started before invalidate() is not added to the cache.
+ *
+ * Without init() (no cache directory), exports are rendered directly.
+ */
+public class ExportCache {
+
+    public enum Format {
+        TCX("tcx"),
+        GPX("gpx"),
+        /**
+         * GPX with Garmin and accuracy extensions
+         */
+        GPX_EXTENSIONS("gpx"),
+        NIKE_XML("xml"),
+        RUNKEEPER("json");
+
+        final String suffix;
+
+        Format(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    private static final String TAG = "ExportCache";
+    private static final String DIR = "export";
+    private static final String ENCODING = "UTF-8";
+    private static final long MAX_SIZE = 10 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static volatile File sDir = null;
+
+    // Renders in progress by file name and the invalidate() count, guarded by the class lock
+    private static final Map<String, FutureTask<File>> sRendering = new HashMap<>();
+    private static long sGeneration = 0;
+
+    public static synchronized void init(Context context) {
+        if (sDir == null) {
+            File dir = new File(context.getCacheDir(), DIR);
+            if (dir.isDirectory() || dir.mkdirs()) {
+                sDir = dir;
+                // Renders interrupted by a previous process
+                File[] files = list();
+                if (files != null) {
+                    for (File f : files) {
+                        if (f.getName().endsWith(TMP_SUFFIX)) {
+                            //noinspection ResultOfMethodCallIgnored
+                            f.delete();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the export of the activity to writer, render it if not cached
+     */
+    public static void export(SQLiteDatabase db, long activityId, Format format, Writer writer)
+            throws IOException {
+        File file = get(db, activityId, format);
+        if (file == null) {
+            render(db, activityId, format, writer);
+            return;
+        }
+        Reader reader;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), ENCODING);
+        } catch (FileNotFoundException e) {
+            // Evicted by another export
+            render(db, activityId, format, writer);
+            return;
+        }
+        try {
+            char[] buf = new char[BUFFER_SIZE];
+            int len;
+            while ((len = reader.read(buf)) != -1) {
+                writer.write(buf, 0, len);
+            }
+            writer.flush();
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static String exportString(SQLiteDatabase db, long activityId, Format format)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        export(db, activityId, format, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Remove cached exports for the activity, to be called when it is modified or deleted
+     */
+    public static synchronized void invalidate(long activityId) {
+        // Renders in progress may have read the old activity, they are not cached
+        sGeneration++;
+        String prefix = activityId + "-";
+        for (Iterator<String> it = sRendering.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+
+        File[] files = list();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.getName().startsWith(prefix) && !f.getName().endsWith(TMP_SUFFIX)) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the cached file, rendered if needed, null if the cache is not available
+     */
+    private static File get(final SQLiteDatabase db, final long activityId, final Format format) {
+        File dir = sDir;
+        if (dir == null) {
+            return null;
+        }
+        String stamp = getStamp(db, activityId);
+        if (stamp == null) {
+            return null;
+        }
+        final File file = new File(dir, activityId + "-" + format.name() + "-" + stamp + "." + format.suffix);
+        final String name = file.getName();
+        FutureTask<File> task;
+        boolean owner = false;
+        synchronized (ExportCache.class) {
+            if (lookup(activityId, stamp, file)) {
+                return file;
+            }
+            task = sRendering.get(name);
+            if (task == null) {
+                final long generation = sGeneration;
+                task = new FutureTask<>(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        return renderToCache(db, activityId, format, file, generation);
+                    }
+                });
+                sRendering.put(name, task);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            task.run();
+            synchronized (ExportCache.class) {
+                if (sRendering.get(name) == task) {
+                    sRendering.remove(name);
+                }
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to cache " + name + ": " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Render to a temporary file and move it into the cache
+     * @return the cached file, null if invalidated while rendering
+     */
+    private static File renderToCache(SQLiteDatabase db, long activityId, Format format,
+                                      File file, long generation) throws IOException {
+        // Unique name, a render started before invalidate() may still be running
+        File tmp = File.createTempFile(file.getName(), TMP_SUFFIX, file.getParentFile());
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmp), ENCODING), BUFFER_SIZE);
+            try {
+                render(db, activityId, format, writer);
+            } finally {
+                writer.close();
+            }
+            return publish(tmp, file, generation) ? file : null;
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    /**
+     * @return true if file is cached, otherwise remove the files for older
+     * versions of the activity, they cannot be used any longer
+     */
+    private static synchronized boolean lookup(long activityId, String stamp, File file) {
+        if (file.exists()) {
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return true;
+        }
+
+        File[] files = list();
+        if (files == null) {
+            return false;
+        }
+        String prefix = activityId + "-";
+        String current = "-" + stamp + ".";
+        for (File f : files) {
+            String name = f.getName();
+            if (name.startsWith(prefix) && !name.contains(current)
+                    && !name.endsWith(TMP_SUFFIX)) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move a rendered export into the cache
+     * @return false if the activity was invalidated while rendering
+     */
+    private static synchronized boolean publish(File tmp, File file, long generation)
+            throws IOException {
+        if (generation != sGeneration) {
+            return false;
+        }
+        if (!file.exists() && !tmp.renameTo(file)) {
+            throw new IOException("Cannot rename " + tmp);
+        }
+        evict();
+        return true;
+    }
+
+    private static void render(SQLiteDatabase db, long activityId, Format format, Writer writer)
+            throws IOException {
+        switch (format) {
+            case TCX:
+                new TCX(db).export(activityId, writer);
+                break;
+            case GPX:
+                new GPX(db).export(activityId, writer);
+                break;
+            case GPX_EXTENSIONS:
+                new GPX(db, true, true).export(activityId, writer);
+                break;
+            case NIKE_XML:
+                try {
+                    new NikeXML(db).export(activityId, writer);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e.toString());
+                }
+                break;
+            case RUNKEEPER:
+                new RunKeeper(db).export(activityId, writer);
+                break;
+        }
+        writer.flush();
+    }
+
+    /**
+     * The activity has no last modified time, use the fields changed by edits
+     * and ActivityCleaner.recompute()
+     */
+    private static String getStamp(SQLiteDatabase db, long activityId) {
+        String[] cols = new String[]{
+                DB.ACTIVITY.START_TIME, DB.ACTIVITY.TIME, DB.ACTIVITY.DISTANCE,
+                DB.ACTIVITY.SPORT, DB.ACTIVITY.NAME, DB.ACTIVITY.COMMENT
+        };
+        Cursor c = db.query(DB.ACTIVITY.TABLE, cols, "_id = " + activityId,
+                null, null, null, null);
+        String stamp = null;
+        if (c.moveToFirst()) {
+            int hash = 1;
+            for (int i = 0; i < cols.length; i++) {
+                String s = c.getString(i);
+                hash = 31 * hash + (s == null ? 0 : s.hashCode());
+            }
+            stamp = Integer.toHexString(hash);
+        }
+        c.close();
+        return stamp;
+    }
+
+    private static File[] list() {
+        return sDir == null ? null : sDir.listFiles();
+    }
+
+    /**
+     * Remove least recently used files until the cache is below MAX_SIZE
+     */
+    private static void evict() {
+        File[] files = list();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File f : files) {
+            size += f.length();
+        }
+        if (size <= MAX_SIZE) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long t1 = f1.lastModified();
+                long t2 = f2.lastModified();
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        for (File f : files) {
+            if (size <= MAX_SIZE) {
+                break;
+            }
+            if (f.getName().endsWith(TMP_SUFFIX)) {
+                // Being rendered
+                continue;
+            }
+            size -= f.length();
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+    }
+}
@@ -22,18 +22,25 @@ import android.database.sqlite.SQLiteDatabase;
 
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.util.KXmlSerializer;
+import org.runnerup.util.UtcTimeFormatter;
 import org.runnerup.workout.Sport;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 
 
 public class GPX {
 
+    // 7 decimals is about 1 cm
+    private static final int COORDINATE_DECIMALS = 7;
+    private static final int ALTITUDE_DECIMALS = 2;
+    private static final int CADENCE_DECIMALS = 1;
+    private static final int TEMPERATURE_DECIMALS = 1;
+    private static final int PRESSURE_DECIMALS = 2;
+    private static final int ACCURACY_DECIMALS = 1;
+    private static final int BEARING_DECIMALS = 1;
+    private static final int SPEED_DECIMALS = 2;
+
     enum RestLapMode {
         EMPTY_TRKSEG,
         START_STOP_TRKSEG
@@ -43,7 +50,7 @@ public class GPX {
 
     private SQLiteDatabase mDB = null;
     private KXmlSerializer mXML = null;
-    private SimpleDateFormat simpleDateFormat = null;
+    private final char[] timeBuffer = new char[UtcTimeFormatter.LENGTH];
     final private boolean mGarminExt; //Also Cluetrust
     private final boolean mAccuracyExtensions;
 
@@ -53,14 +60,17 @@ public class GPX {
 
     public GPX(SQLiteDatabase mDB, boolean garminExt, boolean accuracyExtensions) {
         this.mDB = mDB;
-        simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
         this.mGarminExt = garminExt;
         this.mAccuracyExtensions = accuracyExtensions;
     }
 
     private String formatTime(long time) {
-        return simpleDateFormat.format(new Date(time));
+        return UtcTimeFormatter.format(time);
+    }
+
+    private void textTime(long time) throws IOException {
+        int len = UtcTimeFormatter.format(time, timeBuffer, 0);
+        mXML.text(timeBuffer, 0, len);
     }
 
     /**
@@ -178,17 +188,17 @@ public class GPX {
                 }
                 mXML.startTag("", "trkseg");
                 if (pok && cLocation.getLong(0) == lap) {
-                    float last_lat = 0;
-                    float last_longi = 0;
+                    double last_lat = 0;
+                    double last_longi = 0;
                     long last_time = 0;
                     while (pok && cLocation.getLong(0) == lap) {
                         long time = cLocation.getLong(1);
-                        float lat = cLocation.getFloat(2);
-                        float longi = cLocation.getFloat(3);
+                        double lat = cLocation.getDouble(2);
+                        double longi = cLocation.getDouble(3);
                         if (!(time == last_time && lat == last_lat && longi != last_longi)) {
                             mXML.startTag("", "trkpt");
-                            mXML.attribute("", "lon", Float.toString(longi));
-                            mXML.attribute("", "lat", Float.toString(lat));
+                            mXML.attribute("", "lon", longi, COORDINATE_DECIMALS);
+                            mXML.attribute("", "lat", lat, COORDINATE_DECIMALS);
                             Float ele = null;
                             if (mAccuracyExtensions && !cLocation.isNull(14)) {
                                 //raw elevation
@@ -199,11 +209,11 @@ public class GPX {
                             }
                             if (ele != null) {
                                 mXML.startTag("", "ele");
-                                mXML.text("" + ele);
+                                mXML.text(ele, ALTITUDE_DECIMALS);
                                 mXML.endTag("", "ele");
                             }
                             mXML.startTag("", "time");
-                            mXML.text(formatTime(time));
+                            textTime(time);
                             mXML.endTag("", "time");
 
                             {
@@ -228,8 +238,7 @@ public class GPX {
                                 if (isHr) {
                                     //Same ns for Garmin/Cluetrust extensions
                                     mXML.startTag("", "gpxtpx:hr");
-                                    String bpm = Integer.toString(cLocation.getInt(6));
-                                    mXML.text(bpm);
+                                    mXML.text(cLocation.getInt(6));
                                     mXML.endTag("", "gpxtpx:hr");
                                 }
                                 if (isCad) {
@@ -241,8 +250,7 @@ public class GPX {
                                         ns = "gpxtpx:cadence";
                                     }
                                     mXML.startTag("", ns);
-                                    String val = Float.toString(cLocation.getFloat(7));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(7), CADENCE_DECIMALS);
                                     mXML.endTag("", ns);
                                 }
                                 if (isTemp) {
@@ -253,39 +261,33 @@ public class GPX {
                                         ns = "gpxtpx:temp";
                                     }
                                     mXML.startTag("", ns);
-                                    String val = Float.toString(cLocation.getFloat(8));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(8), TEMPERATURE_DECIMALS);
                                     mXML.endTag("", ns);
                                 }
                                 if (isPres) {
                                     //private extension, not recorded by default
                                     mXML.startTag("", "pressure");
-                                    String val = Float.toString(cLocation.getFloat(9));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(9), PRESSURE_DECIMALS);
                                     mXML.endTag("", "pressure");
                                 }
                                 if (isAccuracy) {
                                     mXML.startTag("", "accuracy");
-                                    String val = Float.toString(cLocation.getFloat(10));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(10), ACCURACY_DECIMALS);
                                     mXML.endTag("", "accuracy");
                                 }
                                 if (isBearing) {
                                     mXML.startTag("", "bearing");
-                                    String val = Float.toString(cLocation.getFloat(11));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(11), BEARING_DECIMALS);
                                     mXML.endTag("", "bearing");
                                 }
                                 if (isSpeed) {
                                     mXML.startTag("", "speed");
-                                    String val = Float.toString(cLocation.getFloat(12));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getFloat(12), SPEED_DECIMALS);
                                     mXML.endTag("", "speed");
                                 }
                                 if (isSats) {
                                     mXML.startTag("", "sat");
-                                    String val = Float.toString(cLocation.getInt(13));
-                                    mXML.text(val);
+                                    mXML.text(cLocation.getInt(13));
                                     mXML.endTag("", "sat");
                                 }
 
@@ -324,36 +326,36 @@ public class GPX {
                             mXML.startTag("", "trkseg");
 
                             long time_0 = cStart.getLong(1);
-                            float lat_0 = cStart.getFloat(2);
-                            float longi_0 = cStart.getFloat(3);
+                            double lat_0 = cStart.getDouble(2);
+                            double longi_0 = cStart.getDouble(3);
 
                             long time_1 = cEnd.getLong(1);
-                            float lat_1 = cEnd.getFloat(2);
-                            float longi_1 = cEnd.getFloat(3);
+                            double lat_1 = cEnd.getDouble(2);
+                            double longi_1 = cEnd.getDouble(3);
 
                             mXML.startTag("", "trkpt");
-                            mXML.attribute("", "lon", Float.toString(longi_0));
-                            mXML.attribute("", "lat", Float.toString(lat_0));
+                            mXML.attribute("", "lon", longi_0, COORDINATE_DECIMALS);
+                            mXML.attribute("", "lat", lat_0, COORDINATE_DECIMALS);
                             if (!cStart.isNull(4)) {
                                 mXML.startTag("", "ele");
-                                mXML.text("" + cStart.getLong(4));
+                                mXML.text(cStart.getLong(4));
                                 mXML.endTag("", "ele");
                             }
                             mXML.startTag("", "time");
-                            mXML.text(formatTime(time_0));
+                            textTime(time_0);
                             mXML.endTag("", "time");
                             mXML.endTag("", "trkpt");
 
                             mXML.startTag("", "trkpt");
-                            mXML.attribute("", "lon", Float.toString(longi_1));
-                            mXML.attribute("", "lat", Float.toString(lat_1));
+                            mXML.attribute("", "lon", longi_1, COORDINATE_DECIMALS);
+                            mXML.attribute("", "lat", lat_1, COORDINATE_DECIMALS);
                             if (!cEnd.isNull(4)) {
                                 mXML.startTag("", "ele");
-                                mXML.text("" + cEnd.getLong(4));
+                                mXML.text(cEnd.getLong(4));
                                 mXML.endTag("", "ele");
                             }
                             mXML.startTag("", "time");
-                            mXML.text(formatTime(time_1));
+                            textTime(time_1);
                             mXML.endTag("", "time");
                             mXML.endTag("", "trkpt");
 
@@ -49,6 +49,8 @@ public class GoogleFitData {
     private static final int SECONDS_TO_MILLIS = 1000;
     private static final int MICRO_TO_NANOS = 1000000;
     private static final int SECONDS_TO_NANOS = 1000000000;
+    // fpVal is written with fixed precision, enough for coordinates (about 1 cm)
+    private static final int FP_VAL_DECIMALS = 7;
     private static final Map<Sport, Integer> ACTIVITY_TYPE;
     static {
         Map<Sport, Integer> aMap = new HashMap<>();
@@ -399,7 +401,7 @@ public class GoogleFitData {
             if (field.getFormatDataPointValue().equals("intVal")) {
                 w.value(cursor.getInt(cursor.getColumnIndex(field.getColumn())));
             } else if (field.getFormatDataPointValue().equals("fpVal")) {
-                w.value(cursor.getDouble(cursor.getColumnIndex(field.getColumn())));
+                w.value(cursor.getDouble(cursor.getColumnIndex(field.getColumn())), FP_VAL_DECIMALS);
             }
             w.endObject();
         }
@@ -40,6 +40,7 @@ import java.util.Vector;
 public class NikeXML {
 
     private static final String DEVICE = "iPod";
+    private static final int KM_DECIMALS = 3; // distance in km, rounded to meters
 
     private SQLiteDatabase mDB = null;
     private KXmlSerializer mXML = null;
@@ -92,7 +93,7 @@ public class NikeXML {
             mXML.text(formatTime(startTime));
             mXML.endTag("", "time");
             mXML.startTag("", "duration");
-            mXML.text(Long.toString(duration * 1000)); // in ms
+            mXML.text(duration * 1000); // in ms
             mXML.endTag("", "duration");
             mXML.startTag("", "distance");
             mXML.attribute("", "unit", "km");
@@ -220,7 +221,7 @@ public class NikeXML {
 
             mXML.startTag("", "heartrate");
             mXML.startTag("", "average");
-            mXML.text(Integer.toString(avgHR));
+            mXML.text(avgHR);
             mXML.endTag("", "average");
 
             emitHRPosition(mID, "minimum", minHR);
@@ -292,7 +293,7 @@ public class NikeXML {
             } while (c.moveToNext());
             mXML.startTag("", string);
             mXML.startTag("", "duration");
-            mXML.text(Long.toString(sumTime)); // ms
+            mXML.text(sumTime); // ms
             mXML.endTag("", "duration");
 
             mXML.startTag("", "distance");
@@ -307,11 +308,11 @@ public class NikeXML {
                 if (sumDist != 0)
                     pace = sumTime / sumDist;
             }
-            mXML.text(Long.toString(Math.round(1000.0d * pace)));
+            mXML.text(Math.round(1000.0d * pace));
             mXML.endTag("", "pace");
 
             mXML.startTag("", "bpm");
-            mXML.text(Integer.toString(hrVal));
+            mXML.text(hrVal);
             mXML.endTag("", "bpm");
 
             mXML.endTag("", string);
@@ -343,11 +344,11 @@ public class NikeXML {
             if (event != null)
                 mXML.attribute("", "event", event);
             mXML.startTag("", "duration");
-            mXML.text(Long.toString(p.sumTime));
+            mXML.text(p.sumTime);
             mXML.endTag("", "duration");
 
             mXML.startTag("", "distance");
-            mXML.text(Double.toString(Math.round(1000.0 * p.sumDistance / 1000.0) / 1000.0d));
+            mXML.text(p.sumDistance / 1000.0d, KM_DECIMALS);
             mXML.endTag("", "distance");
 
             mXML.startTag("", "pace");
@@ -363,13 +364,13 @@ public class NikeXML {
             if (deltaDist != 0) {
                 pace = 1000d * deltaTime / deltaDist;
             }
-            mXML.text(Long.toString(Math.round(pace)));
+            mXML.text(Math.round(pace));
             mXML.endTag("", "pace");
 
             if (deltaHR > 0 && deltaTime > 0) {
                 double avgHR = deltaHR / deltaTime;
                 mXML.startTag("", "bpm");
-                mXML.text(Long.toString(Math.round(avgHR)));
+                mXML.text(Math.round(avgHR));
                 mXML.endTag("", "bpm");
             }
 
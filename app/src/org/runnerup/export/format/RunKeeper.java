@@ -17,8 +17,12 @@
 
 package org.runnerup.export.format;
 
+import android.annotation.TargetApi;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import org.json.JSONArray;
@@ -28,25 +32,22 @@ import org.runnerup.common.util.Constants;
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.db.entities.ActivityEntity;
 import org.runnerup.db.entities.LapEntity;
-import org.runnerup.db.entities.LocationEntity;
+import org.runnerup.db.entities.LocationArrays;
 import org.runnerup.export.RunKeeperSynchronizer;
+import org.runnerup.export.util.SyncHelper;
 import org.runnerup.util.JsonWriter;
 import org.runnerup.workout.Sport;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Writer;
-import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -57,6 +58,10 @@ import java.util.concurrent.TimeUnit;
 
 public class RunKeeper {
 
+    // 7 decimals is about 1 cm
+    private static final int COORDINATE_DECIMALS = 7;
+    private static final int ALTITUDE_DECIMALS = 2;
+
     private SQLiteDatabase mDB = null;
 
     public RunKeeper(SQLiteDatabase db) {
@@ -147,10 +152,10 @@ public class RunKeeper {
                 w.beginObject();
                 w.name("timestamp").value(
                         (cursor.getLong(0) - startTime) / 1000);
-                w.name("latitude").value(cursor.getDouble(1));
-                w.name("longitude").value(cursor.getDouble(2));
+                w.name("latitude").value(cursor.getDouble(1), COORDINATE_DECIMALS);
+                w.name("longitude").value(cursor.getDouble(2), COORDINATE_DECIMALS);
                 if (!cursor.isNull(3)) {
-                    w.name("altitude").value(cursor.getDouble(3));
+                    w.name("altitude").value(cursor.getDouble(3), ALTITUDE_DECIMALS);
                 }
                 if (cursor.getLong(4) == DB.LOCATION.TYPE_START) {
                     w.name("type").value("start");
@@ -172,142 +177,377 @@ public class RunKeeper {
         cursor.close();
     }
 
+    /**
+     * Samples of one of the activity arrays (distance, path or heart_rate), the time
+     * (ms since start) and a fixed number of values per sample, NaN if not available.
+     */
+    private static class Samples {
+        final int columns;
+        int count = 0;
+        long[] time = new long[256];
+        double[] values;
+
+        Samples(int columns) {
+            this.columns = columns;
+            this.values = new double[time.length * columns];
+        }
+
+        int add() {
+            if (count == time.length) {
+                long[] t = new long[2 * count];
+                System.arraycopy(time, 0, t, 0, count);
+                time = t;
+                double[] v = new double[2 * count * columns];
+                System.arraycopy(values, 0, v, 0, count * columns);
+                values = v;
+            }
+            time[count] = 0;
+            for (int c = 0; c < columns; c++) {
+                values[count * columns + c] = Double.NaN;
+            }
+            return count++;
+        }
+
+        void removeLast() {
+            count--;
+        }
+
+        double get(int i, int column) {
+            return values[i * columns + column];
+        }
+
+        void set(int i, int column, double value) {
+            values[i * columns + column] = value;
+        }
+
+        /**
+         * Stable sort on time, a linear scan if the samples are already sorted
+         */
+        void sort() {
+            double[] row = new double[columns];
+            for (int i = 1; i < count; i++) {
+                final long t = time[i];
+                if (t >= time[i - 1]) {
+                    continue;
+                }
+                System.arraycopy(values, i * columns, row, 0, columns);
+                int j = i;
+                while (j > 0 && time[j - 1] > t) {
+                    time[j] = time[j - 1];
+                    System.arraycopy(values, (j - 1) * columns, values, j * columns, columns);
+                    j--;
+                }
+                time[j] = t;
+                System.arraycopy(row, 0, values, j * columns, columns);
+            }
+        }
+    }
+
+    private static final String[] DISTANCE_FIELDS = {"distance"};
+    private static final String[] HR_FIELDS = {"heart_rate"};
+    private static final String[] PATH_FIELDS = {"latitude", "longitude", "altitude", "type"};
+    private static final int PATH_LATITUDE = 0;
+    private static final int PATH_LONGITUDE = 1;
+    private static final int PATH_ALTITUDE = 2;
+    private static final int PATH_TYPE = 3;
+
+    /**
+     * The fields of a fitness activity used when importing
+     */
+    private static class ActivityData {
+        String type = null;
+        String notes = null;
+        String startTime = null;
+        double duration = Double.NaN;
+        double totalDistance = Double.NaN;
+        final Samples distance = new Samples(DISTANCE_FIELDS.length);
+        final Samples path = new Samples(PATH_FIELDS.length);
+        final Samples hr = new Samples(HR_FIELDS.length);
+    }
+
+    private static int indexOf(String[] fields, String name) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double pointType(String type) {
+        Integer value = RunKeeperSynchronizer.POINT_TYPE.get(type);
+        return value == null ? Double.NaN : value;
+    }
+
+    /**
+     * Parse a fitness activity, streamed with JsonReader where available
+     */
+    public static ActivityEntity parseToActivity(InputStream input, double unitMeters) throws IOException, JSONException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            try {
+                return toActivity(readActivity(input), unitMeters);
+            } catch (IllegalStateException | NumberFormatException e) {
+                throw new JSONException(e.getMessage());
+            }
+        }
+        return parseToActivity(SyncHelper.parse(input), unitMeters);
+    }
+
     public static ActivityEntity parseToActivity(JSONObject response, double unitMeters) throws JSONException {
-        ActivityEntity newActivity = new ActivityEntity();
-        newActivity.setSport(RunKeeperSynchronizer.runkeeper2sportMap.get(response.getString("type")).getDbValue());
+        ActivityData data = new ActivityData();
+        data.type = response.getString("type");
         if (response.has("notes")) {
-            newActivity.setComment(response.getString("notes"));
+            data.notes = response.getString("notes");
+        }
+        data.duration = response.getDouble("duration");
+        data.totalDistance = response.getDouble("total_distance");
+        data.startTime = response.getString("start_time");
+        readSamples(response.optJSONArray("distance"), data.distance, DISTANCE_FIELDS);
+        readSamples(response.optJSONArray("path"), data.path, PATH_FIELDS);
+        readSamples(response.optJSONArray("heart_rate"), data.hr, HR_FIELDS);
+        return toActivity(data, unitMeters);
+    }
+
+    private static void readSamples(JSONArray array, Samples samples, String[] fields) throws JSONException {
+        if (array == null) {
+            return;
+        }
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject o = array.getJSONObject(i);
+            if (o.isNull("timestamp")) {
+                continue;
+            }
+            int row = samples.add();
+            samples.time[row] = TimeUnit.SECONDS.toMillis((long) o.getDouble("timestamp"));
+            for (int c = 0; c < fields.length; c++) {
+                if (o.isNull(fields[c])) {
+                    continue;
+                }
+                samples.set(row, c, fields == PATH_FIELDS && c == PATH_TYPE ?
+                        pointType(o.getString(fields[c])) : o.getDouble(fields[c]));
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static ActivityData readActivity(InputStream input) throws IOException {
+        ActivityData data = new ActivityData();
+        JsonReader reader = new JsonReader(new InputStreamReader(input, "UTF-8"));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else if (name.equals("type")) {
+                    data.type = reader.nextString();
+                } else if (name.equals("notes")) {
+                    data.notes = reader.nextString();
+                } else if (name.equals("duration")) {
+                    data.duration = reader.nextDouble();
+                } else if (name.equals("total_distance")) {
+                    data.totalDistance = reader.nextDouble();
+                } else if (name.equals("start_time")) {
+                    data.startTime = reader.nextString();
+                } else if (name.equals("distance")) {
+                    readSamples(reader, data.distance, DISTANCE_FIELDS);
+                } else if (name.equals("path")) {
+                    readSamples(reader, data.path, PATH_FIELDS);
+                } else if (name.equals("heart_rate")) {
+                    readSamples(reader, data.hr, HR_FIELDS);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return data;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void readSamples(JsonReader reader, Samples samples, String[] fields) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int row = samples.add();
+            boolean hasTime = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                int c = indexOf(fields, name);
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else if (name.equals("timestamp")) {
+                    samples.time[row] = TimeUnit.SECONDS.toMillis((long) reader.nextDouble());
+                    hasTime = true;
+                } else if (c < 0) {
+                    reader.skipValue();
+                } else if (fields == PATH_FIELDS && c == PATH_TYPE) {
+                    samples.set(row, c, pointType(reader.nextString()));
+                } else {
+                    samples.set(row, c, reader.nextDouble());
+                }
+            }
+            reader.endObject();
+            if (!hasTime) {
+                samples.removeLast();
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Rounded up (away from zero) to 2 decimals
+     */
+    private static float roundUp(float value) {
+        double v = (double) value * 100;
+        return (float) ((v >= 0 ? Math.ceil(v) : -Math.ceil(-v)) / 100);
+    }
+
+    private static void finishLap(LapEntity lap, double distance, long time,
+                                  boolean hasHr, int maxHr, int sumHr, int count) {
+        lap.setDistance((float) distance - lap.getDistance());
+        lap.setTime((int) TimeUnit.MILLISECONDS.toSeconds(time) - lap.getTime());
+        if (hasHr && count > 0) {
+            lap.setMaxHr(maxHr);
+            lap.setAvgHr(sumHr / count);
+        }
+    }
+
+    /**
+     * Create the activity, merging the distance, path and heart_rate samples
+     * on time in one pass. A location is created for the times with distance and position.
+     */
+    private static ActivityEntity toActivity(ActivityData data, double unitMeters) {
+        Sport sport = data.type == null ? null : RunKeeperSynchronizer.runkeeper2sportMap.get(data.type);
+        if (sport == null || data.startTime == null) {
+            Log.e(Constants.LOG, "Unknown activity type " + data.type + " or start time " + data.startTime);
+            return null;
+        }
+        ActivityEntity newActivity = new ActivityEntity();
+        newActivity.setSport(sport.getDbValue());
+        if (data.notes != null) {
+            newActivity.setComment(data.notes);
+        }
+        if (!Double.isNaN(data.duration)) {
+            newActivity.setTime((long) data.duration);
+        }
+        if (!Double.isNaN(data.totalDistance)) {
+            newActivity.setDistance((float) data.totalDistance);
         }
-        newActivity.setTime((long) Float.parseFloat(response.getString("duration")));
-        newActivity.setDistance(Float.parseFloat(response.getString("total_distance")));
 
-        String startTime = response.getString("start_time");
         SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss", Locale.US);
         try {
-            newActivity.setStartTime(format.parse(startTime));
+            newActivity.setStartTime(format.parse(data.startTime));
         } catch (ParseException e) {
             Log.e(Constants.LOG, e.getMessage());
             return null;
         }
+        final long startTime = TimeUnit.SECONDS.toMillis(newActivity.getStartTime());
 
-        List<LapEntity> laps = new ArrayList<>();
-        List<LocationEntity> locations = new ArrayList<>();
-
-        JSONArray distance = response.getJSONArray("distance");
-        JSONArray path = response.getJSONArray("path");
-        JSONArray hr = response.getJSONArray("heart_rate");
+        final Samples distance = data.distance;
+        final Samples path = data.path;
+        final Samples hr = data.hr;
+        distance.sort();
+        path.sort();
+        hr.sort();
+        final boolean hasHr = hr.count > 0;
 
-        SortedMap<Long, HashMap<String, String>> pointsValueMap = createPointsMap(distance, path, hr);
-        Iterator<Map.Entry<Long, HashMap<String, String>>> points = pointsValueMap.entrySet().iterator();
+        List<LapEntity> laps = new ArrayList<>();
+        LocationArrays locations = new LocationArrays(Math.min(distance.count, path.count));
 
         //lap hr
         int maxHr = 0;
         int sumHr = 0;
         int count = 0;
         //point speed
-        long time = 0;
-        float meters = 0.0f;
+        long prevTime = 0;
+        double prevDist = 0;
         //activity hr
         int maxHrOverall = 0;
         int sumHrOverall = 0;
         int countOverall = 0;
 
-        while (points.hasNext()) {
-            Map.Entry<Long, HashMap<String, String>> timePoint = points.next();
-            HashMap<String, String> values = timePoint.getValue();
-
-            LocationEntity lv = new LocationEntity();
-            lv.setActivityId(newActivity.getId());
-            lv.setTime(TimeUnit.SECONDS.toMillis(newActivity.getStartTime()) + timePoint.getKey());
-
-            String dist = values.get("distance");
-            if (dist == null) {
-                continue;
+        int d = 0, p = 0, h = 0;
+        while (d < distance.count && p < path.count) {
+            final long time = Math.min(distance.time[d], path.time[p]);
+            // the last sample wins if there are several for the same time
+            int di = -1, pi = -1, hi = -1;
+            while (d < distance.count && distance.time[d] == time) {
+                di = d++;
             }
-            String lat = values.get("latitude");
-            String lon = values.get("longitude");
-            String alt = values.get("altitude");
-            String heart = values.get("heart_rate");
-            String type = values.get("type");
-
-            if (lat == null || lon == null) {
+            while (p < path.count && path.time[p] == time) {
+                pi = p++;
+            }
+            while (h < hr.count && hr.time[h] <= time) {
+                if (hr.time[h] == time) {
+                    hi = h;
+                }
+                h++;
+            }
+            if (di < 0 || pi < 0) {
                 continue;
-            } else {
-                lv.setLatitude(Double.valueOf(lat));
-                lv.setLongitude(Double.valueOf(lon));
             }
-            if (alt != null) {
-                lv.setAltitude(Double.valueOf(alt));
+            final double dist = distance.get(di, 0);
+            final double lat = path.get(pi, PATH_LATITUDE);
+            final double lon = path.get(pi, PATH_LONGITUDE);
+            if (Double.isNaN(dist) || Double.isNaN(lat) || Double.isNaN(lon)) {
+                continue;
             }
+            final double type = path.get(pi, PATH_TYPE);
 
-            if (pointsValueMap.firstKey().equals(timePoint.getKey())) {
-                lv.setType(DB.LOCATION.TYPE_START);
-            } else if (!points.hasNext()) {
-                lv.setType(DB.LOCATION.TYPE_END);
-            } else if (type != null) {
-                lv.setType(RunKeeperSynchronizer.POINT_TYPE.get(type));
-            }
             // lap and activity max and avg hr
-            if (heart != null) {
-                lv.setHr(Integer.valueOf(heart));
-                maxHr = Math.max(maxHr, lv.getHr());
-                maxHrOverall = Math.max(maxHrOverall, lv.getHr());
-                sumHr += lv.getHr();
-                sumHrOverall += lv.getHr();
+            int heart = LocationArrays.NO_HR;
+            if (hi >= 0 && !Double.isNaN(hr.get(hi, 0))) {
+                heart = (int) hr.get(hi, 0);
+                maxHr = Math.max(maxHr, heart);
+                maxHrOverall = Math.max(maxHrOverall, heart);
+                sumHr += heart;
+                sumHrOverall += heart;
                 count++;
                 countOverall++;
             }
 
-            meters = Float.valueOf(dist) - meters;
-            time = timePoint.getKey() - time;
-            if (time > 0) {
-                float speed = meters / (float)TimeUnit.MILLISECONDS.toSeconds(time);
-                BigDecimal s = new BigDecimal(speed);
-                s = s.setScale(2, BigDecimal.ROUND_UP);
-                lv.setSpeed(s.floatValue());
+            float speed = Float.NaN;
+            if (locations.size() > 0 && time > prevTime) {
+                speed = roundUp((float) ((dist - prevDist) * 1000 / (time - prevTime)));
             }
 
             // create lap if distance greater than configured lap distance
-
-            if (Float.valueOf(dist) >= unitMeters * laps.size()) {
+            if (dist >= unitMeters * laps.size()) {
                 LapEntity newLap = new LapEntity();
                 newLap.setLap(laps.size());
-                newLap.setDistance(Float.valueOf(dist));
-                newLap.setTime((int) TimeUnit.MILLISECONDS.toSeconds(timePoint.getKey()));
-                newLap.setActivityId(newActivity.getId());
+                newLap.setDistance((float) dist);
+                newLap.setTime((int) TimeUnit.MILLISECONDS.toSeconds(time));
                 laps.add(newLap);
 
                 // update previous lap with duration and distance
                 if (laps.size() > 1) {
-                    LapEntity previousLap = laps.get(laps.size() - 2);
-                    previousLap.setDistance(Float.valueOf(dist) - previousLap.getDistance());
-                    previousLap.setTime((int) TimeUnit.MILLISECONDS.toSeconds(timePoint.getKey()) - previousLap.getTime());
-
-                    if (hr != null && hr.length() > 0) {
-                        previousLap.setMaxHr(maxHr);
-                        previousLap.setAvgHr(sumHr / count);
-                    }
+                    finishLap(laps.get(laps.size() - 2), dist, time, hasHr, maxHr, sumHr, count);
                     maxHr = 0;
                     sumHr = 0;
                     count = 0;
                 }
             }
-            // update last lap with duration and distance
-            if (!points.hasNext()) {
-                LapEntity previousLap = laps.get(laps.size() - 1);
-                previousLap.setDistance(Float.valueOf(dist) - previousLap.getDistance());
-                previousLap.setTime((int) TimeUnit.MILLISECONDS.toSeconds(timePoint.getKey()) - previousLap.getTime());
-
-                if (hr != null && hr.length() > 0) {
-                    previousLap.setMaxHr(maxHr);
-                    previousLap.setAvgHr(sumHr / count);
-                }
-            }
 
-            lv.setLap(laps.size()-1);
+            locations.add(startTime + time, lat, lon, path.get(pi, PATH_ALTITUDE), heart, speed,
+                    Double.isNaN(type) ? DB.LOCATION.TYPE_GPS : (int) type, laps.size() - 1);
+            prevTime = time;
+            prevDist = dist;
+        }
 
-            locations.add(lv);
+        if (!laps.isEmpty()) {
+            // update last lap with duration and distance
+            finishLap(laps.get(laps.size() - 1), prevDist, prevTime, hasHr, maxHr, sumHr, count);
+        }
+        if (locations.size() > 0) {
+            locations.setType(0, DB.LOCATION.TYPE_START);
+            if (locations.size() > 1) {
+                locations.setType(locations.size() - 1, DB.LOCATION.TYPE_END);
+            }
         }
+
         // calculate avg and max hr
         // update the activity
         newActivity.setMaxHr(maxHrOverall);
@@ -315,58 +555,9 @@ public class RunKeeper {
             newActivity.setAvgHr(sumHrOverall / countOverall);
         }
 
-        newActivity.putPoints(locations);
+        newActivity.putLocationArrays(locations);
         newActivity.putLaps(laps);
 
         return newActivity;
     }
-
-    private static SortedMap<Long, HashMap<String, String>> createPointsMap(JSONArray distance, JSONArray path, JSONArray hr) throws JSONException {
-        SortedMap<Long, HashMap<String, String>> result = new TreeMap<>();
-
-        if (distance != null && distance.length() > 0) {
-            for (int i = 0; i < distance.length(); i++) {
-                JSONObject o = distance.getJSONObject(i);
-                Long key = TimeUnit.SECONDS.toMillis((long) Float.parseFloat(o.getString("timestamp")));
-                HashMap<String, String> value = new HashMap<>();
-                String valueMapKey = "distance";
-                String valueMapValue = o.getString(valueMapKey);
-                value.put(valueMapKey, valueMapValue);
-                result.put(key, value);
-            }
-        }
-
-        if (path != null && path.length() > 0) {
-            for (int i = 0; i < path.length(); i++) {
-                JSONObject o = path.getJSONObject(i);
-                Long key = TimeUnit.SECONDS.toMillis((long)Float.parseFloat(o.getString("timestamp")));
-                HashMap<String, String> value = result.get(key);
-                if (value == null) {
-                    value = new HashMap<>();
-                }
-                String[] attrs = new String[] {"latitude", "longitude", "altitude", "type"};
-                for (String valueMapKey : attrs) {
-                    String valueMapValue = o.getString(valueMapKey);
-                    value.put(valueMapKey, valueMapValue);
-                }
-                result.put(key, value);
-            }
-        }
-
-        if (hr != null && hr.length() > 0) {
-            for (int i = 0; i < hr.length(); i++) {
-                JSONObject o = hr.getJSONObject(i);
-                Long key = TimeUnit.SECONDS.toMillis((long)Float.parseFloat(o.getString("timestamp")));
-                HashMap<String, String> value = result.get(key);
-                if (value == null) {
-                    value = new HashMap<>();
-                }
-                String valueMapKey = "heart_rate";
-                String valueMapValue = o.getString(valueMapKey);
-                value.put(valueMapKey, valueMapValue);
-                result.put(key, value);
-            }
-        }
-        return result;
-    }
 }
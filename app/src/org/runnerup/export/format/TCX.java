@@ -24,14 +24,11 @@ import android.util.Pair;
 
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.util.KXmlSerializer;
+import org.runnerup.util.UtcTimeFormatter;
 import org.runnerup.workout.Sport;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
 /**
  * TCX - export an activity in TCX format
  *
@@ -45,22 +42,29 @@ import java.util.TimeZone;
 
 public class TCX {
 
+    // 7 decimals is about 1 cm
+    private static final int COORDINATE_DECIMALS = 7;
+    private static final int DISTANCE_DECIMALS = 2;
+
     private SQLiteDatabase mDB = null;
     private KXmlSerializer mXML = null;
     private String notes = null;
-    private SimpleDateFormat simpleDateFormat = null;
+    private final char[] timeBuffer = new char[UtcTimeFormatter.LENGTH];
     private Sport sport = null;
 
     private boolean addGratuitousTrack = false;
 
     public TCX(SQLiteDatabase mDB) {
         this.mDB = mDB;
-        simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
 
     private String formatTime(long time) {
-        return simpleDateFormat.format(new Date(time));
+        return UtcTimeFormatter.format(time);
+    }
+
+    private void textTime(long time) throws IOException {
+        int len = UtcTimeFormatter.format(time, timeBuffer, 0);
+        mXML.text(timeBuffer, 0, len);
     }
 
     public String export(long activityId, Writer writer) throws IOException {
@@ -189,10 +193,10 @@ public class TCX {
                     mXML.attribute("", "StartTime", formatTime(startTime));
                 }
                 mXML.startTag("", "TotalTimeSeconds");
-                mXML.text("" + cLap.getLong(2));
+                mXML.text(cLap.getLong(2));
                 mXML.endTag("", "TotalTimeSeconds");
                 mXML.startTag("", "DistanceMeters");
-                mXML.text("" + cLap.getFloat(1));
+                mXML.text(cLap.getFloat(1), DISTANCE_DECIMALS);
                 mXML.endTag("", "DistanceMeters");
                 mXML.startTag("", "Calories");
                 mXML.text("0");
@@ -209,8 +213,8 @@ public class TCX {
                 int cntTrackpoints = 0;
 
                 if (pok && cLocation.getLong(0) == lap) {
-                    float last_lat = 0;
-                    float last_longi = 0;
+                    double last_lat = 0;
+                    double last_longi = 0;
                     long last_time = 0;
                     while (pok && cLocation.getLong(0) == lap) {
                         int lapType = cLocation.getInt(5);
@@ -222,26 +226,26 @@ public class TCX {
                             mXML.startTag("", "Track");
                         }
                         long time = cLocation.getLong(2);
-                        float lat = cLocation.getFloat(4);
-                        float longi = cLocation.getFloat(5);
+                        double lat = cLocation.getDouble(4);
+                        double longi = cLocation.getDouble(5);
                         if (time != last_time) {
                             cntTrackpoints++;
 
                             mXML.startTag("", "Trackpoint");
                             mXML.startTag("", "Time");
-                            mXML.text(formatTime(time));
+                            textTime(time);
                             mXML.endTag("", "Time");
                             mXML.startTag("", "Position");
                             mXML.startTag("", "LatitudeDegrees");
-                            mXML.text("" + lat);
+                            mXML.text(lat, COORDINATE_DECIMALS);
                             mXML.endTag("", "LatitudeDegrees");
                             mXML.startTag("", "LongitudeDegrees");
-                            mXML.text("" + longi);
+                            mXML.text(longi, COORDINATE_DECIMALS);
                             mXML.endTag("", "LongitudeDegrees");
                             mXML.endTag("", "Position");
                             if (!cLocation.isNull(6)) {
                                 mXML.startTag("", "AltitudeMeters");
-                                mXML.text("" + cLocation.getLong(6));
+                                mXML.text(cLocation.getLong(6));
                                 mXML.endTag("", "AltitudeMeters");
                             }
                             if (!cLocation.isNull(3)) {
@@ -259,7 +263,7 @@ public class TCX {
                                 totalDistance += d[0];
                             }
                             mXML.startTag("", "DistanceMeters");
-                            mXML.text("" + totalDistance);
+                            mXML.text(totalDistance, DISTANCE_DECIMALS);
                             mXML.endTag("", "DistanceMeters");
                             if (!cLocation.isNull(7)) {
                                 int hr = cLocation.getInt(7);
@@ -270,8 +274,7 @@ public class TCX {
 
                                     mXML.startTag("", "HeartRateBpm");
                                     mXML.startTag("", "Value");
-                                    String bpm = Integer.toString(hr);
-                                    mXML.text(bpm);
+                                    mXML.text(hr);
                                     mXML.endTag("", "Value");
                                     mXML.endTag("", "HeartRateBpm");
                                 }
@@ -287,8 +290,7 @@ public class TCX {
                             if (isBikeCad) {
                                 int val = cLocation.getInt(8);
                                 mXML.startTag("", "Cadence");
-                                String sval = Integer.toString(val);
-                                mXML.text(sval);
+                                mXML.text(val);
                                 mXML.endTag("", "Cadence");
                             }
                             if (isRunCad) {
@@ -301,8 +303,7 @@ public class TCX {
                             if (isRunCad) {
                                 int val = cLocation.getInt(8);
                                 mXML.startTag("", "RunCadence");
-                                String sval = Integer.toString(val);
-                                mXML.text(sval);
+                                mXML.text(val);
                                 mXML.endTag("", "RunCadence");
                                 // Not including "CadenceSensor Footpod" etc
                             }
@@ -343,7 +344,7 @@ public class TCX {
                     mXML.startTag("", "Track");
                     mXML.startTag("", "Trackpoint");
                     mXML.startTag("", "Time");
-                    mXML.text(formatTime(startTime));
+                    textTime(startTime);
                     mXML.endTag("", "Time");
                     mXML.endTag("", "Trackpoint");
                     mXML.endTag("", "Track");
@@ -352,13 +353,13 @@ public class TCX {
                 if (cntHR > 0) {
                     mXML.startTag("", "AverageHeartRateBpm");
                     mXML.startTag("", "Value");
-                    mXML.text(Integer.toString((int) (sumHR / cntHR)));
+                    mXML.text((int) (sumHR / cntHR));
                     mXML.endTag("", "Value");
                     mXML.endTag("", "AverageHeartRateBpm");
 
                     mXML.startTag("", "MaximumHeartRateBpm");
                     mXML.startTag("", "Value");
-                    mXML.text(Integer.toString(maxHR));
+                    mXML.text(maxHR);
                     mXML.endTag("", "Value");
                     mXML.endTag("", "MaximumHeartRateBpm");
                 }
@@ -47,6 +47,12 @@ public class FormValues extends HashMap<String, String> implements Writable {
         }
     }
 
+    @Override
+    public long getContentLength() {
+        // url encoded, so one byte per char
+        return queryString().length();
+    }
+
     public String queryString() {
         StringBuilder buf = new StringBuilder();
         boolean first = true;
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.export.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compressed content that is generated while it is written, for instance
+ * an exported activity. The content is never held in memory, so the length is
+ * not known up front, see {@link SyncHelper#postMulti}.
+ */
+public abstract class GzipWritable implements Writable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * A gzip stream that can release the deflater without closing the underlying stream
+     */
+    private static class GzipStream extends GZIPOutputStream {
+        GzipStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * Generate the (uncompressed) content
+     */
+    protected abstract void writeContent(Writer writer) throws IOException;
+
+    public void write(OutputStream out) throws IOException {
+        GzipStream gzip = new GzipStream(out);
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, "UTF-8"), BUFFER_SIZE);
+            writeContent(writer);
+            writer.flush();
+            // finish() writes the trailer, out is left open for the next part
+            gzip.finish();
+        } finally {
+            // the native memory of the deflater is otherwise held until finalization
+            gzip.end();
+        }
+    }
+
+    public long getContentLength() {
+        return UNKNOWN_LENGTH;
+    }
+}
@@ -35,4 +35,8 @@ public class StringWritable implements Writable {
     public void write(OutputStream out) throws IOException {
         out.write(s);
     }
+
+    public long getContentLength() {
+        return s.length;
+    }
 }
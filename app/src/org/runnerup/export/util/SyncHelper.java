@@ -73,8 +73,15 @@ public final class SyncHelper {
                 + "*****";
         conn.setRequestProperty("Content-Type",
                 "multipart/form-data; boundary=" + boundary);
+        for (Part<?> part : parts) {
+            if (part != null && part.getValue().getContentLength() == Writable.UNKNOWN_LENGTH) {
+                // Length not known up front, stream instead of buffering the request
+                conn.setChunkedStreamingMode(0);
+                break;
+            }
+        }
         DataOutputStream outputStream = new DataOutputStream(
-                conn.getOutputStream());
+                new BufferedOutputStream(conn.getOutputStream()));
         for (Part<?> part : parts) {
             if (part == null) {
                 continue;
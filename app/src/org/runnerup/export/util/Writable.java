@@ -21,5 +21,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 interface Writable {
+    /**
+     * Content length when the content is generated while written
+     */
+    long UNKNOWN_LENGTH = -1;
+
     void write(OutputStream out) throws IOException;
+
+    /**
+     * @return the number of bytes written by write(), or UNKNOWN_LENGTH
+     */
+    long getContentLength();
 }
@@ -5,6 +5,8 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.content.Context;
 import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
 
 import org.runnerup.R;
 
@@ -12,6 +14,13 @@ import org.runnerup.R;
 public class NotificationStateManager {
     private static final int NOTIFICATION_ID = 1;
     private final NotificationDisplayStrategy strategy;
+    private final Handler handler = new Handler();
+
+    private long minUpdateIntervalMillis = 0;
+    private long lastDisplayTime = 0;
+    private NotificationState lastState = null;
+    private Notification lastNotification = null;
+    private NotificationState pendingState = null;
 
     private static NotificationChannel mChannel;
     /**
@@ -43,14 +52,66 @@ public class NotificationStateManager {
         this.strategy = strategy;
     }
 
+    /**
+     * Min time between updates with updateNotificationState()
+     */
+    public void setMinUpdateInterval(long millis) {
+        minUpdateIntervalMillis = millis;
+    }
+
+    /**
+     * Display the state now, for instance at state changes or new laps.
+     * Nothing is posted if the state returns the same notification as last time.
+     */
     public void displayNotificationState(NotificationState state) {
         if (state == null) throw new IllegalArgumentException("state is null");
 
+        handler.removeCallbacks(pendingUpdate);
+        pendingState = null;
+        lastDisplayTime = SystemClock.elapsedRealtime();
+
         Notification notification = state.createNotification();
+        if (state == lastState && notification == lastNotification) {
+            return;
+        }
+        lastState = state;
+        lastNotification = notification;
         strategy.notify(NOTIFICATION_ID, notification);
     }
 
+    /**
+     * Display the state at most once per update interval,
+     * updates in between are coalesced to one update at the end of the interval.
+     */
+    public void updateNotificationState(NotificationState state) {
+        if (state == null) throw new IllegalArgumentException("state is null");
+
+        long delay = lastDisplayTime + minUpdateIntervalMillis - SystemClock.elapsedRealtime();
+        if (delay <= 0) {
+            displayNotificationState(state);
+            return;
+        }
+        if (pendingState == null) {
+            handler.postDelayed(pendingUpdate, delay);
+        }
+        pendingState = state;
+    }
+
+    private final Runnable pendingUpdate = new Runnable() {
+        @Override
+        public void run() {
+            NotificationState state = pendingState;
+            if (state != null) {
+                displayNotificationState(state);
+            }
+        }
+    };
+
     public void cancelNotification() {
+        handler.removeCallbacks(pendingUpdate);
+        pendingState = null;
+        lastState = null;
+        lastNotification = null;
         strategy.cancel(NOTIFICATION_ID);
     }
 }
@@ -21,6 +21,10 @@ public class OngoingState implements NotificationState {
     private final Context context;
     private final NotificationCompat.Builder builder;
 
+    // The notification is only rebuilt when the content changes
+    private String lastContent = null;
+    private Notification lastNotification = null;
+
     public OngoingState(Formatter formatter, WorkoutInfo workoutInfo, Context context) {
         this.formatter = formatter;
         this.workoutInfo = workoutInfo;
@@ -57,6 +61,9 @@ public class OngoingState implements NotificationState {
                 context.getString(R.string.distance), distance,
                 context.getString(R.string.time), time,
                 context.getString(R.string.pace), pace);
+        if (lastNotification != null && content.equals(lastContent)) {
+            return lastNotification;
+        }
         builder.setContentText(content);
 
         NotificationCompat.BigTextStyle bigTextStyle = new NotificationCompat.BigTextStyle(builder);
@@ -67,6 +74,8 @@ public class OngoingState implements NotificationState {
                 context.getString(R.string.pace), pace));
         builder.setStyle(bigTextStyle);
 
-        return builder.build();
+        lastContent = content;
+        lastNotification = builder.build();
+        return lastNotification;
     }
 }
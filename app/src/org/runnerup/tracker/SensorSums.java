@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.tracker;
+
+import org.runnerup.workout.Dimension;
+
+/**
+ * Time weighted sums (value * ms) of the sensor values, and the time with values,
+ * since the start of the activity, updated for each location like the heartbeats.
+ *
+ * The average for a lap or step is the difference to the sums at the start of the
+ * lap/step, so any scope is calculated in constant time.
+ */
+public final class SensorSums {
+
+    public static final SensorSums ZERO = new SensorSums(0, 0, 0, 0, 0, 0);
+
+    private final double cadence;
+    private final double cadenceMillis;
+    private final double temperature;
+    private final double temperatureMillis;
+    private final double pressure;
+    private final double pressureMillis;
+
+    private SensorSums(double cadence, double cadenceMillis,
+                       double temperature, double temperatureMillis,
+                       double pressure, double pressureMillis) {
+        this.cadence = cadence;
+        this.cadenceMillis = cadenceMillis;
+        this.temperature = temperature;
+        this.temperatureMillis = temperatureMillis;
+        this.pressure = pressure;
+        this.pressureMillis = pressureMillis;
+    }
+
+    /**
+     * @return the sums with the values (null if not available) added for timeDiff ms
+     */
+    SensorSums add(Float cadValue, Float temperatureValue, Float pressureValue, long timeDiff) {
+        if (timeDiff <= 0 || (cadValue == null && temperatureValue == null && pressureValue == null)) {
+            return this;
+        }
+        return new SensorSums(
+                cadValue == null ? cadence : cadence + cadValue * timeDiff,
+                cadValue == null ? cadenceMillis : cadenceMillis + timeDiff,
+                temperatureValue == null ? temperature : temperature + temperatureValue * timeDiff,
+                temperatureValue == null ? temperatureMillis : temperatureMillis + timeDiff,
+                pressureValue == null ? pressure : pressure + pressureValue * timeDiff,
+                pressureValue == null ? pressureMillis : pressureMillis + timeDiff);
+    }
+
+    /**
+     * Average of CAD, TEMPERATURE or PRESSURE since start
+     *
+     * @return NaN if there are no values
+     */
+    public double getAverage(Dimension dimension, SensorSums start) {
+        double sum, millis;
+        switch (dimension) {
+            case CAD:
+                sum = cadence - start.cadence;
+                millis = cadenceMillis - start.cadenceMillis;
+                break;
+            case TEMPERATURE:
+                sum = temperature - start.temperature;
+                millis = temperatureMillis - start.temperatureMillis;
+                break;
+            case PRESSURE:
+                sum = pressure - start.pressure;
+                millis = pressureMillis - start.pressureMillis;
+                break;
+            default:
+                return Double.NaN;
+        }
+        if (millis <= 0) {
+            return Double.NaN;
+        }
+        return sum / millis;
+    }
+}
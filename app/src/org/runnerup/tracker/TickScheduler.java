@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.tracker;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import org.runnerup.util.TickListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodic ticks for the workout, UI and wearables, from one timer.
+ *
+ * Ticks are scheduled at absolute (uptime) times from the first registration, so they
+ * do not drift. Every subscriber period is a multiple of BASE_PERIOD and the subscribers
+ * are ticked in phase, in registration order, so the device is woken up once per tick.
+ * The listeners are called on the thread of the handler.
+ */
+public class TickScheduler {
+
+    public static final long BASE_PERIOD = 500;
+
+    private static class Subscriber {
+        final TickListener listener;
+        long ticks;
+
+        Subscriber(TickListener listener, long ticks) {
+            this.listener = listener;
+            this.ticks = ticks;
+        }
+    }
+
+    private final Handler handler;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long epoch = 0;
+    private long tickCount = 0;
+    // Incremented when the ticks are (re)started
+    private int generation = 0;
+
+    public TickScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Register the listener, or change the period of a registered listener.
+     * The period is rounded up to a multiple of BASE_PERIOD.
+     */
+    public void register(TickListener listener, long period) {
+        long ticks = Math.max(1, (period + BASE_PERIOD - 1) / BASE_PERIOD);
+        for (Subscriber s : subscribers) {
+            if (s.listener == listener) {
+                s.ticks = ticks;
+                return;
+            }
+        }
+        subscribers.add(new Subscriber(listener, ticks));
+        if (subscribers.size() == 1) {
+            // The first tick is now
+            epoch = SystemClock.uptimeMillis();
+            tickCount = 0;
+            generation++;
+            handler.removeCallbacks(tick);
+            handler.postAtTime(tick, epoch);
+        }
+    }
+
+    public void unregister(TickListener listener) {
+        for (int i = 0; i < subscribers.size(); i++) {
+            if (subscribers.get(i).listener == listener) {
+                subscribers.remove(i);
+                break;
+            }
+        }
+        if (subscribers.isEmpty()) {
+            handler.removeCallbacks(tick);
+        }
+    }
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            // Listeners may register or unregister when ticked
+            Subscriber[] list = subscribers.toArray(new Subscriber[subscribers.size()]);
+            long count = tickCount;
+            int gen = generation;
+            for (Subscriber s : list) {
+                if (count % s.ticks == 0 && subscribers.contains(s)) {
+                    s.listener.onTick();
+                }
+            }
+            if (subscribers.isEmpty() || gen != generation) {
+                // Stopped, or restarted by a listener
+                return;
+            }
+
+            tickCount++;
+            long now = SystemClock.uptimeMillis();
+            if (epoch + tickCount * BASE_PERIOD <= now) {
+                // Ticks were delayed, skip them but keep the phase
+                tickCount = (now - epoch) / BASE_PERIOD + 1;
+            }
+            handler.postAtTime(tick, epoch + tickCount * BASE_PERIOD);
+        }
+    };
+}
@@ -29,7 +29,9 @@ import android.location.LocationListener;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.PowerManager;
 import android.preference.PreferenceManager;
 import android.util.Log;
@@ -42,6 +44,8 @@ import org.runnerup.common.util.ValueModel;
 import org.runnerup.db.DBHelper;
 import org.runnerup.export.SyncManager;
 import org.runnerup.hr.HRProvider;
+import org.runnerup.hr.HRSample;
+import org.runnerup.hr.HRSampleBuffer;
 import org.runnerup.notification.ForegroundNotificationDisplayStrategy;
 import org.runnerup.notification.NotificationState;
 import org.runnerup.notification.NotificationStateManager;
@@ -57,14 +61,17 @@ import org.runnerup.tracker.component.TrackerTemperature;
 import org.runnerup.tracker.component.TrackerPressure;
 import org.runnerup.tracker.component.TrackerWear;
 import org.runnerup.tracker.filter.PersistentGpsLoggerListener;
+import org.runnerup.tracker.filter.PersistentHRSampleLogger;
 import org.runnerup.util.Formatter;
 import org.runnerup.util.HRZones;
+import org.runnerup.util.SafeParse;
 import org.runnerup.workout.Scope;
 import org.runnerup.workout.Workout;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * GpsTracker - this class tracks Location updates
@@ -72,6 +79,12 @@ import java.util.List;
  * TODO: rename this class into ActivityTracker and factor out Gps stuff into own class
  *       that should be handled much like hrm (e.g as a sensor among others)
  *
+ * Location updates, sensor events and the DB writer run on a dedicated tracking thread,
+ * so fixes are not delayed by UI work. The UI and the workout read the values through
+ * an immutable Snapshot, published by the tracking thread for each fix.
+ * Commands from the UI (start, pause etc) change the state on the calling thread and
+ * hand the recording part to the tracking thread, so the fix processing is not locked.
+ *
  * @author jonas.oreland@gmail.com
  */
 
@@ -79,16 +92,22 @@ import java.util.List;
 public class Tracker extends android.app.Service implements
         LocationListener, Constants {
     private static final int MAX_HR_AGE = 3000; // 3s
+    private static final long BUFFER_FLUSH_MILLIS = 30000; // write buffered locations and HR samples at least every 30s
 
     private final Handler handler = new Handler();
+    private final TickScheduler tickScheduler = new TickScheduler(handler);
+
+    // Started before the components, they deliver their events on this thread
+    private final HandlerThread trackerThread = startTrackerThread();
+    private final Handler trackerHandler = new Handler(trackerThread.getLooper());
 
     private final TrackerComponentCollection components = new TrackerComponentCollection();
     //Some trackers may select separate sensors depending on sport, handled in onBind()
     private final TrackerGPS trackerGPS = (TrackerGPS) components.addComponent(new TrackerGPS(this));
     private final TrackerHRM trackerHRM = (TrackerHRM) components.addComponent(new TrackerHRM());
-    private final TrackerCadence trackerCadence = (TrackerCadence) components.addComponent(new TrackerCadence());
-    private final TrackerTemperature trackerTemperature = (TrackerTemperature) components.addComponent(new TrackerTemperature());
-    private final TrackerPressure trackerPressure = (TrackerPressure) components.addComponent(new TrackerPressure());
+    private final TrackerCadence trackerCadence = (TrackerCadence) components.addComponent(new TrackerCadence(trackerHandler));
+    private final TrackerTemperature trackerTemperature = (TrackerTemperature) components.addComponent(new TrackerTemperature(trackerHandler));
+    private final TrackerPressure trackerPressure = (TrackerPressure) components.addComponent(new TrackerPressure(trackerHandler));
     private final TrackerElevation trackerElevation = (TrackerElevation) components.addComponent(new TrackerElevation(this, trackerGPS, trackerPressure));
     private TrackerWear trackerWear; // created if version is sufficient
     private TrackerPebble trackerPebble; // created if version is sufficient
@@ -105,10 +124,39 @@ public class Tracker extends android.app.Service implements
     private double mHeartbeats = 0;
     private double mHeartbeatMillis = 0; // since we might loose HRM connectivity...
     private long mMaxHR = 0;
-    private Double mCurrentSpeed = 0.0;
+    private double mCurrentSpeed = 0.0;
+    private SensorSums mSensorSums = SensorSums.ZERO;
+
+    /**
+     * The tracked values, as seen by the UI and workout
+     */
+    private static final class Snapshot {
+        final long elapsedTimeMillis;
+        final double elapsedDistance;
+        final double heartbeats;
+        final SensorSums sensorSums;
+        final double currentSpeed;
+        final Location lastLocation;
+        final long systemToGpsDiffTimeMillis;
+
+        Snapshot(long elapsedTimeMillis, double elapsedDistance, double heartbeats, SensorSums sensorSums,
+                 double currentSpeed, Location lastLocation, long systemToGpsDiffTimeMillis) {
+            this.elapsedTimeMillis = elapsedTimeMillis;
+            this.elapsedDistance = elapsedDistance;
+            this.heartbeats = heartbeats;
+            this.sensorSums = sensorSums;
+            this.currentSpeed = currentSpeed;
+            this.lastLocation = lastLocation;
+            this.systemToGpsDiffTimeMillis = systemToGpsDiffTimeMillis;
+        }
+    }
+
+    private volatile Snapshot mSnapshot = new Snapshot(0, 0, 0, SensorSums.ZERO, 0, null, 0);
 
     private TrackerState nextState;
     private final ValueModel<TrackerState> state = new ValueModel<>(TrackerState.INIT);
+    // Locations are saved, the state as seen by the tracking thread
+    private boolean mRecording = false;
     private int mLocationType = DB.LOCATION.TYPE_START;
 
     // Last location given by LocationManager
@@ -121,6 +169,7 @@ public class Tracker extends android.app.Service implements
 
     private SQLiteDatabase mDB = null;
     private PersistentGpsLoggerListener mDBWriter = null;
+    private PersistentHRSampleLogger mHRSampleWriter = null;
     private PowerManager.WakeLock mWakeLock = null;
     private final List<WorkoutObserver> liveLoggers = new ArrayList<>();
 
@@ -155,12 +204,40 @@ public class Tracker extends android.app.Service implements
 
     @Override
     public void onDestroy() {
-        if (mDB != null) {
-            DBHelper.closeDB(mDB);
-            mDB = null;
-        }
-
         reset();
+
+        // After the commands already posted
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                flushLocations();
+                if (mDB != null) {
+                    DBHelper.closeDB(mDB);
+                    mDB = null;
+                }
+                trackerThread.quit();
+            }
+        }, false);
+    }
+
+    private static HandlerThread startTrackerThread() {
+        HandlerThread thread = new HandlerThread("Tracker");
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Periodic ticks on the main thread, shared by the workout, UI and wearables
+     */
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    /**
+     * The looper of the tracking thread, for location updates
+     */
+    public Looper getLooper() {
+        return trackerThread.getLooper();
     }
 
     public void setup() {
@@ -313,6 +390,11 @@ public class Tracker extends android.app.Service implements
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         boolean logGpxAccuracy = prefs.getBoolean(res.getString(R.string.pref_log_gpx_accuracy), false);
         mCurrentSpeedFromGpsPoints = prefs.getBoolean(res.getString(R.string.pref_speed_from_gps_points), false);
+        int locationBufferSize = SafeParse.parseInt(prefs.getString(
+                res.getString(R.string.pref_location_write_buffer), "10"), 10);
+        int notificationInterval = SafeParse.parseInt(prefs.getString(
+                res.getString(R.string.pref_notification_update_interval), "5"), 5);
+        notificationStateManager.setMinUpdateInterval(notificationInterval * 1000);
 
         //Create an Activity instance
         ContentValues tmp = new ContentValues();
@@ -322,14 +404,95 @@ public class Tracker extends android.app.Service implements
         tmp.clear();
         tmp.put(DB.LOCATION.ACTIVITY, mActivityId);
         tmp.put(DB.LOCATION.LAP, 0); // always start with lap 0
-        mDBWriter = new PersistentGpsLoggerListener(mDB, DB.LOCATION.TABLE, tmp, logGpxAccuracy);
+        mDBWriter = new PersistentGpsLoggerListener(mDB, DB.LOCATION.TABLE, tmp, logGpxAccuracy,
+                locationBufferSize, BUFFER_FLUSH_MILLIS);
+
+        // Samples at the rate received from the HRM, if supported
+        HRProvider hrProvider = trackerHRM.getHrProvider();
+        HRSampleBuffer hrSamples = hrProvider == null ? null : hrProvider.getHRSamples();
+        if (hrSamples != null) {
+            mHRSampleWriter = new PersistentHRSampleLogger(mDB, mActivityId, hrSamples);
+            mHRSampleWriter.clear();
+        }
         return mActivityId;
     }
 
+    private void flushLocations() {
+        if (mDBWriter != null) {
+            mDBWriter.flush();
+        }
+        if (mHRSampleWriter != null) {
+            mHRSampleWriter.flush();
+        }
+    }
+
+    private final Runnable bufferFlusher = new Runnable() {
+        @Override
+        public void run() {
+            flushBuffers();
+        }
+    };
+
+    /**
+     * Write the buffered locations and HR samples periodically while started, on the tracker thread.
+     * The location buffer is otherwise only checked when a new location is received.
+     */
+    private void flushBuffers() {
+        if (mRecording) {
+            flushLocations();
+            trackerHandler.postDelayed(bufferFlusher, BUFFER_FLUSH_MILLIS);
+        }
+    }
+
     public void setWorkout(Workout workout) {
         this.workout = workout;
     }
 
+    /**
+     * Run the recording part of a command on the tracking thread, in order with the fixes
+     * @param wait return when run, for commands where the caller reads the result
+     */
+    private void runOnTrackerThread(final Runnable command, boolean wait) {
+        if (Looper.myLooper() == trackerThread.getLooper()) {
+            command.run();
+            return;
+        }
+        if (!wait) {
+            if (!trackerHandler.post(command)) {
+                // The tracking thread has quit
+                command.run();
+            }
+            return;
+        }
+
+        final CountDownLatch done = new CountDownLatch(1);
+        if (!trackerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    command.run();
+                } finally {
+                    done.countDown();
+                }
+            }
+        })) {
+            command.run();
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void start() {
         if (BuildConfig.DEBUG && state.get() != TrackerState.CONNECTED) {
             throw new AssertionError();
@@ -357,16 +520,26 @@ public class Tracker extends android.app.Service implements
         // Let components know we're starting
         components.onStart();
 
-        mElapsedTimeMillis = 0;
-        mElapsedDistance = 0;
-        mHeartbeats = 0;
-        mHeartbeatMillis = 0;
-        mMaxHR = 0;
-        // TODO: check if mLastLocation is recent enough
-        mActivityLastLocation = null;
-
-        // New location update will be tagged with START
-        setNextLocationType(DB.LOCATION.TYPE_START);
+        // The workout reads the values when started
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                mElapsedTimeMillis = 0;
+                mElapsedDistance = 0;
+                mHeartbeats = 0;
+                mHeartbeatMillis = 0;
+                mMaxHR = 0;
+                mSensorSums = SensorSums.ZERO;
+                // TODO: check if mLastLocation is recent enough
+                mActivityLastLocation = null;
+                publish();
+
+                // New location update will be tagged with START
+                setNextLocationType(DB.LOCATION.TYPE_START);
+                mRecording = true;
+                trackerHandler.postDelayed(bufferFlusher, BUFFER_FLUSH_MILLIS);
+            }
+        }, true);
 
         state.set(TrackerState.STARTED);
 
@@ -394,19 +567,34 @@ public class Tracker extends android.app.Service implements
     }
 
     public void newLap(ContentValues tmp) {
-        tmp.put(DB.LAP.ACTIVITY, mActivityId);
-        mLapId = mDB.insert(DB.LAP.TABLE, null, tmp);
-        ContentValues key = mDBWriter.getKey();
-        key.put(DB.LOCATION.LAP, tmp.getAsLong(DB.LAP.LAP));
-        mDBWriter.setKey(key);
+        final ContentValues values = new ContentValues(tmp);
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                values.put(DB.LAP.ACTIVITY, mActivityId);
+                mLapId = mDB.insert(DB.LAP.TABLE, null, values);
+                ContentValues key = mDBWriter.getKey();
+                key.put(DB.LOCATION.LAP, values.getAsLong(DB.LAP.LAP));
+                mDBWriter.setKey(key);
+            }
+        }, false);
+        if (activityOngoingState != null) {
+            displayNotificationState(true);
+        }
     }
 
     public void saveLap(ContentValues tmp) {
-        tmp.put(DB.LAP.ACTIVITY, mActivityId);
-        String key[] = {
-                Long.toString(mLapId)
-        };
-        mDB.update(DB.LAP.TABLE, tmp, "_id = ?", key);
+        final ContentValues values = new ContentValues(tmp);
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                values.put(DB.LAP.ACTIVITY, mActivityId);
+                String key[] = {
+                        Long.toString(mLapId)
+                };
+                mDB.update(DB.LAP.TABLE, values, "_id = ?", key);
+            }
+        }, false);
     }
 
     public void pause() {
@@ -425,13 +613,7 @@ public class Tracker extends android.app.Service implements
                 break;
         }
         state.set(TrackerState.PAUSED);
-        setNextLocationType(DB.LOCATION.TYPE_PAUSE);
-        if (mActivityLastLocation != null) {
-            // This saves mLastLocation as a PAUSE location
-            internalOnLocationChanged(mActivityLastLocation);
-        }
-
-        saveActivity();
+        runOnTrackerThread(stopRecording, false);
         components.onPause();
     }
 
@@ -451,16 +633,26 @@ public class Tracker extends android.app.Service implements
                 break;
         }
         state.set(TrackerState.STOPPED);
-        setNextLocationType(DB.LOCATION.TYPE_PAUSE);
-        if (mActivityLastLocation != null) {
-            // This saves mLastLocation as a PAUSE location
-            internalOnLocationChanged(mActivityLastLocation);
-        }
-
-        saveActivity();
+        // The activity is shown from the DB when stopped
+        runOnTrackerThread(stopRecording, true);
         components.onPause(); // TODO add new callback for this
     }
 
+    private final Runnable stopRecording = new Runnable() {
+        @Override
+        public void run() {
+            mRecording = false;
+            setNextLocationType(DB.LOCATION.TYPE_PAUSE);
+            if (mActivityLastLocation != null) {
+                // This saves mLastLocation as a PAUSE location
+                internalOnLocationChanged(mActivityLastLocation);
+            }
+            flushLocations();
+
+            saveActivity();
+        }
+    };
+
     private void internalOnLocationChanged(Location arg0) {
         long save = mBug23937Delta;
         mBug23937Delta = 0;
@@ -488,14 +680,26 @@ public class Tracker extends android.app.Service implements
                 return;
         }
 
-        // TODO: check is mLastLocation is recent enough
-        mActivityLastLocation = mLastLocation;
         state.set(TrackerState.STARTED);
-        setNextLocationType(DB.LOCATION.TYPE_RESUME);
-        if (mActivityLastLocation != null) {
-            // save last know location as resume location
-            internalOnLocationChanged(mActivityLastLocation);
-        }
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                // TODO: check is mLastLocation is recent enough
+                mActivityLastLocation = mLastLocation;
+                setNextLocationType(DB.LOCATION.TYPE_RESUME);
+                mRecording = true;
+                if (mHRSampleWriter != null) {
+                    // Samples while paused are not saved, like the locations
+                    mHRSampleWriter.clear();
+                }
+                trackerHandler.removeCallbacks(bufferFlusher);
+                trackerHandler.postDelayed(bufferFlusher, BUFFER_FLUSH_MILLIS);
+                if (mActivityLastLocation != null) {
+                    // save last know location as resume location
+                    internalOnLocationChanged(mActivityLastLocation);
+                }
+            }
+        }, false);
     }
 
     public void reset() {
@@ -551,30 +755,44 @@ public class Tracker extends android.app.Service implements
         }
     };
 
-    public void completeActivity(boolean save) {
+    public void completeActivity(final boolean save) {
         if (BuildConfig.DEBUG &&
                 state.get() != TrackerState.PAUSED &&
                 state.get() != TrackerState.STOPPED) {
             throw new AssertionError();
         }
 
-        setNextLocationType(DB.LOCATION.TYPE_END);
-        if (mActivityLastLocation != null) {
-            internalOnLocationChanged(mActivityLastLocation);
-        }
+        // The activity is written before the caller continues
+        runOnTrackerThread(new Runnable() {
+            @Override
+            public void run() {
+                setNextLocationType(DB.LOCATION.TYPE_END);
+                if (mActivityLastLocation != null) {
+                    internalOnLocationChanged(mActivityLastLocation);
+                }
+                trackerHandler.removeCallbacks(bufferFlusher);
+                mDBWriter.close();
+                if (mHRSampleWriter != null) {
+                    // Flushed when paused/stopped
+                    mHRSampleWriter.clear();
+                    mHRSampleWriter.close();
+                    mHRSampleWriter = null;
+                }
 
-        if (save) {
-            saveActivity();
-            liveLog(DB.LOCATION.TYPE_END);
-        } else {
-            ContentValues tmp = new ContentValues();
-            tmp.put("deleted", 1);
-            String key[] = {
-                    Long.toString(mActivityId)
-            };
-            mDB.update(DB.ACTIVITY.TABLE, tmp, "_id = ?", key);
-            liveLog(DB.LOCATION.TYPE_DISCARD);
-        }
+                if (save) {
+                    saveActivity();
+                } else {
+                    ContentValues tmp = new ContentValues();
+                    tmp.put("deleted", 1);
+                    String key[] = {
+                            Long.toString(mActivityId)
+                    };
+                    mDB.update(DB.ACTIVITY.TABLE, tmp, "_id = ?", key);
+                }
+            }
+        }, true);
+
+        liveLog(save ? DB.LOCATION.TYPE_END : DB.LOCATION.TYPE_DISCARD);
         components.onComplete(!save);
         notificationStateManager.cancelNotification();
         reset();
@@ -589,7 +807,7 @@ public class Tracker extends android.app.Service implements
         if (mMaxHR > 0)
             tmp.put(Constants.DB.ACTIVITY.MAX_HR, mMaxHR);
         tmp.put(Constants.DB.ACTIVITY.DISTANCE, mElapsedDistance);
-        tmp.put(Constants.DB.ACTIVITY.TIME, getTime()); // time should be updated last for conditionalRecompute
+        tmp.put(Constants.DB.ACTIVITY.TIME, mElapsedTimeMillis / 1000); // time should be updated last for conditionalRecompute
         if (TrackerPressure.isAvailable(this)) {
             final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
             boolean enabled = prefs.getBoolean(this.getString(org.runnerup.R.string.pref_use_pressure_sensor), false);
@@ -612,20 +830,30 @@ public class Tracker extends android.app.Service implements
         mLocationType = newType;
     }
 
+    /**
+     * Publish the tracked values to the UI and workout
+     */
+    private void publish() {
+        // The tracking thread and location providers may modify their Location
+        mSnapshot = new Snapshot(mElapsedTimeMillis, mElapsedDistance, mHeartbeats, mSensorSums,
+                mCurrentSpeed, mLastLocation == null ? null : new Location(mLastLocation),
+                mSystemToGpsDiffTimeMillis);
+    }
+
     public long getTime() {
-        return mElapsedTimeMillis / 1000;
+        return mSnapshot.elapsedTimeMillis / 1000;
     }
 
     public long getTimeMs() {
-        return mElapsedTimeMillis;
+        return mSnapshot.elapsedTimeMillis;
     }
 
     public double getDistance() {
-        return mElapsedDistance;
+        return mSnapshot.elapsedDistance;
     }
 
     public Location getLastKnownLocation() {
-        return mLastLocation;
+        return mSnapshot.lastLocation;
     }
 
     public long getActivityId() {
@@ -665,7 +893,7 @@ public class Tracker extends android.app.Service implements
             arg0.setTime(arg0.getTime() + mBug23937Delta);
         }
 
-        if (internal || state.get() == TrackerState.STARTED) {
+        if (internal || mRecording) {
             Integer hrValue = getCurrentHRValue(arg0.getTime(), MAX_HR_AGE);
             Double eleValue = getCurrentElevation();
             Float cadValue = getCurrentCadence();
@@ -706,6 +934,7 @@ public class Tracker extends android.app.Service implements
                     mHeartbeatMillis += timeDiff; // TODO handle loss of HRM connection
                     mMaxHR = Math.max(hrValue, mMaxHR);
                 }
+                mSensorSums = mSensorSums.add(cadValue, temperatureValue, pressureValue, timeDiff);
             }
             mActivityLastLocation = arg0;
 
@@ -729,18 +958,62 @@ public class Tracker extends android.app.Service implements
             }
             liveLog(mLocationType);
 
-            notificationStateManager.displayNotificationState(activityOngoingState);
+            displayNotificationState(internal);
         }
         mLast2Location = mLastLocation;
         mLastLocation = arg0;
+        publish();
     }
 
-    private void liveLog(int type) {
+    /**
+     * The live loggers and the notification use the workout, that is owned by the main thread.
+     * Events from the tracking thread are posted, the workout is null after reset().
+     */
+    private boolean postToMainThread(Runnable r) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            return false;
+        }
+        handler.post(r);
+        return true;
+    }
+
+    private void liveLog(final int type) {
+        if (postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (workout != null) {
+                    liveLog(type);
+                }
+            }
+        })) {
+            return;
+        }
         for (WorkoutObserver l : liveLoggers) {
             l.workoutEvent(workout, type);
         }
     }
 
+    /**
+     * @param now display now (state changes, laps), otherwise rate limited
+     */
+    private void displayNotificationState(final boolean now) {
+        if (postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                if (workout != null) {
+                    displayNotificationState(now);
+                }
+            }
+        })) {
+            return;
+        }
+        if (now) {
+            notificationStateManager.displayNotificationState(activityOngoingState);
+        } else {
+            notificationStateManager.updateNotificationState(activityOngoingState);
+        }
+    }
+
     @Override
     public void onProviderDisabled(String arg0) {
     }
@@ -843,15 +1116,19 @@ public class Tracker extends android.app.Service implements
 
     private Integer getCurrentHRValue(long now, long maxAge) {
         HRProvider hrProvider = trackerHRM.getHrProvider();
-        if (hrProvider == null ||
-                now > hrProvider.getHRValueTimestamp() + maxAge)
+        if (hrProvider == null)
+            return null;
+
+        // value and timestamp from the same sample
+        HRSample sample = hrProvider.getHRSample();
+        if (now > sample.timestamp + maxAge)
             return null;
 
-        return hrProvider.getHRValue();
+        return sample.hrValue;
     }
 
     public Integer getCurrentHRValue() {
-        return getCurrentHRValue(System.currentTimeMillis() - mSystemToGpsDiffTimeMillis, 3000);
+        return getCurrentHRValue(System.currentTimeMillis() - mSnapshot.systemToGpsDiffTimeMillis, 3000);
     }
 
     public Float getCurrentCadence() {
@@ -871,22 +1148,27 @@ public class Tracker extends android.app.Service implements
     }
 
     public Double getCurrentSpeed() {
-        if (mLastLocation == null ||
-                System.currentTimeMillis() - mSystemToGpsDiffTimeMillis > mLastLocation.getTime() + 3000) {
+        Snapshot snapshot = mSnapshot;
+        if (snapshot.lastLocation == null ||
+                System.currentTimeMillis() - snapshot.systemToGpsDiffTimeMillis > snapshot.lastLocation.getTime() + 3000) {
             return null;
         }
-        return mCurrentSpeed;
+        return snapshot.currentSpeed;
     }
 
     public double getHeartbeats() {
-        return mHeartbeats;
+        return mSnapshot.heartbeats;
+    }
+
+    public SensorSums getSensorSums() {
+        return mSnapshot.sensorSums;
     }
 
     public Integer getCurrentBatteryLevel() {
         HRProvider hrProvider = trackerHRM.getHrProvider();
         if (hrProvider == null)
             return null;
-        return hrProvider.getBatteryLevel();
+        return hrProvider.getHRSample().batteryLevel;
     }
 
     public Workout getWorkout() {
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.tracker.component;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.preference.PreferenceManager;
+
+import org.runnerup.util.SafeParse;
+
+/**
+ * Register the phone sensors with a sampling period and, where the sensor has a
+ * FIFO, a max report latency so the events are delivered in batches.
+ * The values are only used when a location is saved, so there is no need to wake
+ * up the CPU for every sensor event.
+ */
+class SensorBatching {
+
+    private static final int DEFAULT_SAMPLE_PERIOD_MS = 1000;
+
+    /**
+     * Sensor sampling period in us, from preferences
+     */
+    static int getSamplePeriodUs(Context context) {
+        final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        int ms = SafeParse.parseInt(prefs.getString(
+                context.getString(org.runnerup.R.string.pref_sensor_sample_period), null),
+                DEFAULT_SAMPLE_PERIOD_MS);
+        return Math.max(1, ms) * 1000;
+    }
+
+    /**
+     * @param handler events are delivered on the thread of the handler, null for the main thread
+     * @return the max report latency actually used, 0 if not batched
+     */
+    static int registerListener(SensorManager sensorManager, SensorEventListener listener,
+                                Sensor sensor, int samplePeriodUs, int maxReportLatencyUs,
+                                Handler handler) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && registerBatched(sensorManager, listener, sensor, samplePeriodUs, maxReportLatencyUs, handler)) {
+            return maxReportLatencyUs;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            // Period in us supported, no batching
+            sensorManager.registerListener(listener, sensor, samplePeriodUs, handler);
+        } else {
+            sensorManager.registerListener(listener, sensor, SensorManager.SENSOR_DELAY_NORMAL, handler);
+        }
+        return 0;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static boolean registerBatched(SensorManager sensorManager, SensorEventListener listener,
+                                           Sensor sensor, int samplePeriodUs, int maxReportLatencyUs,
+                                           Handler handler) {
+        return sensor.getFifoMaxEventCount() > 0
+                && sensorManager.registerListener(listener, sensor, samplePeriodUs, maxReportLatencyUs, handler);
+    }
+}
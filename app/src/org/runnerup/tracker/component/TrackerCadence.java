@@ -21,6 +21,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.hardware.*;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.preference.PreferenceManager;
 
@@ -41,14 +43,75 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
 
     private SensorManager mSensorManager = null;
 
+    //Sensor events are delivered on the thread of this handler, null for the main thread
+    private final Handler mHandler;
+
+    public TrackerCadence() {
+        this(null);
+    }
+
+    public TrackerCadence(Handler handler) {
+        mHandler = handler;
+    }
+
+    /**
+     * Cadence published by the sensor thread, read by getValue()
+     */
+    private static final class Snapshot {
+        final float cadence;
+        final long time;
+
+        Snapshot(float cadence, long time) {
+            this.cadence = cadence;
+            this.time = time;
+        }
+    }
+
     //For debug builds, use random if sensor is unavailable
     private static boolean isMockSensor = false;
 
-    private boolean isSportEnabled = true;
-    private boolean isStarted = true;
-    private Float mPrevVal = null;
+    //The sensor is batched, steps are delivered at most this late
+    private static final int MAX_REPORT_LATENCY_US = 2000000;
+
+    // If no data (assume no movement) report lower value
+    // Cut-off at 3s corresponds to 60/2/3 => 10 rpm (or 20 steps per minute)
+    private static final int CUT_OFF_TIME = 3;
+    private static final long NANO_SEC = 1000000000L;
+
+    private volatile boolean isSportEnabled = true;
+    private volatile boolean isStarted = true;
+    private volatile long mReportLatencyNs = 0;
+
+    //Only accessed on the sensor thread
+    private Handler mSensorHandler = null;
+    private float mPrevVal = 0;
     private long mPrevTime = -1;
-    private Float mCurrentCadence = null;
+    //NaN if no value
+    private float mCurrentCadence = Float.NaN;
+    //Latest event of the batch being delivered
+    private float mBatchVal = 0;
+    private long mBatchTime = -1;
+    private boolean mFoldPending = false;
+
+    //null if no value
+    private volatile Snapshot mSnapshot = null;
+
+    //Forget the cadence when no steps are reported, after getValue() has reported 0 once
+    private final Runnable mExpire = new Runnable() {
+        @Override
+        public void run() {
+            mCurrentCadence = Float.NaN;
+            mSnapshot = null;
+        }
+    };
+
+    private final Runnable mFold = new Runnable() {
+        @Override
+        public void run() {
+            mFoldPending = false;
+            fold();
+        }
+    };
 
     public Float getValue() {
         if (!isSportEnabled) {
@@ -58,26 +121,25 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
             return (new Random()).nextFloat() * 120;
         }
 
-        if (mCurrentCadence == null) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             return null;
         }
 
-        // If no data (assume no movement) report lower value
-        // Cut-off at 3s corresponds to 60/2/3 => 10 rpm (or 20 steps per minute)
-        final int cutOffTime = 3;
-        final long nanoSec = 1000000000L;
+        final int cutOffTime = CUT_OFF_TIME;
+        final long nanoSec = NANO_SEC;
         long now;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
             now = SystemClock.elapsedRealtimeNanos();
         } else {
             now = SystemClock.elapsedRealtime() * nanoSec / 1000;
         }
-        long timeDiff = now - mPrevTime;
-        Float res = mCurrentCadence;
+        // Batched events are delayed, do not count that as missing data
+        long timeDiff = now - snapshot.time - mReportLatencyNs;
+        float res = snapshot.cadence;
         if (timeDiff > cutOffTime*nanoSec) {
-            mCurrentCadence = null;
             res = 0.0f;
-        } else if (timeDiff > nanoSec*(1+ 1.5*60/ mCurrentCadence /2)) {
+        } else if (timeDiff > nanoSec*(1+ 1.5*60/ snapshot.cadence /2)) {
             // sensors update every sec in addition to time between updates
             // Decrease reported value if no update in (just over) expected time
             res = res * (1-(float)(timeDiff/cutOffTime)/nanoSec);
@@ -89,23 +151,57 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (event.values != null && event.values.length > 0) {
-            float latestVal = event.values[0];
-            long latestTime = event.timestamp;
-            if (mPrevTime == latestTime || mPrevTime < 0 || mPrevVal == null || !isStarted) {
-                mCurrentCadence = null;
+            // The events in a FIFO batch are dispatched in one looper callback,
+            // the posted fold runs when the batch has been delivered
+            mBatchVal = event.values[0];
+            mBatchTime = event.timestamp;
+            if (!mFoldPending) {
+                mFoldPending = true;
+                getSensorHandler().post(mFold);
+            }
+        }
+    }
+
+    /**
+     * Fold the batch into the cadence: the step counter is cumulative,
+     * so the rate over the batch is from the previous fold to the latest event
+     */
+    private void fold() {
+        float latestVal = mBatchVal;
+        long latestTime = mBatchTime;
+        if (mPrevTime == latestTime || mPrevTime < 0 || !isStarted) {
+            mCurrentCadence = Float.NaN;
+        } else {
+            float val = (latestVal - mPrevVal) / 2 * 60 * NANO_SEC / (latestTime - mPrevTime);
+            if (Float.isNaN(mCurrentCadence)) {
+                mCurrentCadence = val;
             } else {
-                final long nanoSec = 1000000000L;
-                Float val = (latestVal - mPrevVal) / 2 * 60 * nanoSec / (latestTime - mPrevTime);
-                if (mCurrentCadence == null) {
-                    mCurrentCadence = val;
-                } else {
-                    //Low pass filter
-                    final float alpha = 0.4f;
-                    mCurrentCadence = val * alpha + (1 - alpha) * mCurrentCadence;
-                }
+                //Low pass filter
+                final float alpha = 0.4f;
+                mCurrentCadence = val * alpha + (1 - alpha) * mCurrentCadence;
             }
-            mPrevTime = latestTime;
-            mPrevVal = latestVal;
+        }
+        mPrevTime = latestTime;
+        mPrevVal = latestVal;
+        publish();
+    }
+
+    private Handler getSensorHandler() {
+        if (mSensorHandler == null) {
+            mSensorHandler = new Handler(Looper.myLooper());
+        }
+        return mSensorHandler;
+    }
+
+    private void publish() {
+        getSensorHandler().removeCallbacks(mExpire);
+        if (Float.isNaN(mCurrentCadence)) {
+            mSnapshot = null;
+        } else {
+            mSnapshot = new Snapshot(mCurrentCadence, mPrevTime);
+            // Let getValue() poll (every second) the cut-off value before expiring
+            mSensorHandler.postDelayed(mExpire,
+                    (CUT_OFF_TIME * NANO_SEC + mReportLatencyNs) / 1000000 + 1000);
         }
     }
 
@@ -160,7 +256,8 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
         } else {
             Sensor sensor = getSensor(context);
             if (sensor != null) {
-                mSensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_FASTEST);
+                mReportLatencyNs = 1000L * SensorBatching.registerListener(mSensorManager, this, sensor,
+                        SensorBatching.getSamplePeriodUs(context), MAX_REPORT_LATENCY_US, mHandler);
                 res = ResultCode.RESULT_OK;
             } else if (isMockSensor) {
                 res = ResultCode.RESULT_OK;
@@ -191,7 +288,6 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
         if (sport == Constants.DB.ACTIVITY.SPORT_BIKING) {
             //Not used, disconnect sensor so nothing is returned
             isSportEnabled = false;
-            mPrevVal = null;
             mSensorManager = null;
             isMockSensor = false;
         } else {
@@ -239,6 +335,10 @@ public class TrackerCadence extends DefaultTrackerComponent implements SensorEve
         isStarted = false;
         if (mSensorManager != null) { mSensorManager.unregisterListener(this); }
         mSensorManager = null;
+        if (mSensorHandler != null) {
+            mSensorHandler.removeCallbacks(mExpire);
+            mSensorHandler.removeCallbacks(mFold);
+        }
         isMockSensor = false;
 
         return ResultCode.RESULT_OK;
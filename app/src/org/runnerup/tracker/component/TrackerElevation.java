@@ -31,6 +31,7 @@ import org.runnerup.BuildConfig;
 import org.runnerup.R;
 import org.runnerup.tracker.Tracker;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.matthiaszimmermann.location.egm96.Geoid;
@@ -66,7 +67,8 @@ public class TrackerElevation extends DefaultTrackerComponent implements SensorE
         // "static" constructor in subclass
         GeoidAdjust GetAltitudeAdjust(Context context) {
             try {
-                Geoid.init(context.getAssets().open("egm96-delta.dat"));
+                Geoid.init(context.getAssets().open("egm96-delta.dat"),
+                        new File(context.getCacheDir(), "egm96.grid"));
                 return new GeoidAdjust();
             } catch (IOException e) {
                 Log.e("TrackerElevation", "Altitude correction " + e);
@@ -90,7 +90,8 @@ public class TrackerGPS extends DefaultTrackerComponent implements TickListener
                 lm.requestLocationUpdates(GPS_PROVIDER,
                         frequency_ms,
                         Integer.valueOf(frequency_meters),
-                        tracker);
+                        tracker,
+                        tracker.getLooper());
                 mGpsStatus = new GpsStatus(context);
                 mGpsStatus.start(this);
                 mConnectCallback = callback;
@@ -113,7 +114,7 @@ public class TrackerGPS extends DefaultTrackerComponent implements TickListener
                     mLastLocation.removeAccuracy();
                     mLastLocation.removeBearing();
                 }
-                gpsLessLocationProvider.run();
+                new Handler(tracker.getLooper()).post(gpsLessLocationProvider);
                 return ResultCode.RESULT_OK;
             }
 
@@ -153,7 +154,8 @@ public class TrackerGPS extends DefaultTrackerComponent implements TickListener
     private final Runnable gpsLessLocationProvider = new Runnable() {
 
         Location location = null;
-        final Handler handler = new Handler();
+        // Locations are delivered on the tracking thread, like from LocationManager
+        Handler handler = null;
 
         @Override
         public void run() {
@@ -175,7 +177,11 @@ public class TrackerGPS extends DefaultTrackerComponent implements TickListener
                     /* continue looping */
                     break;
             }
-            tracker.onLocationChanged(location);
+            // The tracker keeps the location, a new one is reported every time
+            tracker.onLocationChanged(new Location(location));
+            if (handler == null) {
+                handler = new Handler(tracker.getLooper());
+            }
             handler.postDelayed(this, frequency_ms);
         }
     };
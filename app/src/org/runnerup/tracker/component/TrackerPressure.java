@@ -20,6 +20,7 @@ package org.runnerup.tracker.component;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.hardware.*;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 
 import java.util.Random;
@@ -35,25 +36,40 @@ public class TrackerPressure extends DefaultTrackerComponent implements SensorEv
 
     private SensorManager sensorManager = null;
 
+    //Sensor events are delivered on the thread of this handler, null for the main thread
+    private final Handler mHandler;
+
+    public TrackerPressure() {
+        this(null);
+    }
+
+    public TrackerPressure(Handler handler) {
+        mHandler = handler;
+    }
+
     private static boolean isMockSensor = false;
 
-    //The sensor fires continuously, use the last available values (no smoothing)
+    //The sensor is batched, values are delivered at most this late
+    private static final int MAX_REPORT_LATENCY_US = 5000000;
+
+    //The sensor fires continuously, use the last available values (smoothed)
     @SuppressWarnings("unused")
     private boolean isStarted = true;
-    private Float latestVal = null;
+    //NaN if no value
+    private volatile float latestVal = Float.NaN;
 
     public Float getValue() {
         if (isMockSensor) {
             latestVal = (new Random()).nextFloat() * 0.2f + 1013.25f/*SensorManager.PRESSURE_STANDARD_ATMOSPHERE*/;
             //latestTime = SystemClock.elapsedRealtime()*1000000;
         }
-        return latestVal;
+        return Float.isNaN(latestVal) ? null : latestVal;
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (event.values != null && event.values.length > 0) {
-            if (latestVal == null) {
+            if (Float.isNaN(latestVal)) {
                 latestVal = event.values[0];
             } else {
                 final float alpha = 0.5f;
@@ -109,7 +125,8 @@ public class TrackerPressure extends DefaultTrackerComponent implements SensorEv
         if (enabled) {
             Sensor sensor = getSensor(context);
             if (sensor != null) {
-                sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_FASTEST);
+                SensorBatching.registerListener(sensorManager, this, sensor,
+                        SensorBatching.getSamplePeriodUs(context), MAX_REPORT_LATENCY_US, mHandler);
                 res = ResultCode.RESULT_OK;
             } else if (isMockSensor) {
                 res = ResultCode.RESULT_OK;
@@ -22,6 +22,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.hardware.*;
 import android.os.Build;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 
 import java.util.Random;
@@ -37,11 +38,26 @@ public class TrackerTemperature extends DefaultTrackerComponent implements Senso
 
     private SensorManager sensorManager = null;
 
+    //Sensor events are delivered on the thread of this handler, null for the main thread
+    private final Handler mHandler;
+
+    public TrackerTemperature() {
+        this(null);
+    }
+
+    public TrackerTemperature(Handler handler) {
+        mHandler = handler;
+    }
+
     private static boolean isMockSensor = false;
 
+    //The sensor is batched, values are delivered at most this late
+    private static final int MAX_REPORT_LATENCY_US = 5000000;
+
     @SuppressWarnings("unused")
     private boolean isStarted = true;
-    private Float latestVal = null;
+    //NaN if no value
+    private volatile float latestVal = Float.NaN;
     //private long latestTime = -1;
 
     public Float getValue(){
@@ -49,15 +65,19 @@ public class TrackerTemperature extends DefaultTrackerComponent implements Senso
             latestVal = (new Random()).nextFloat()*20+15;
             //latestTime = SystemClock.elapsedRealtime()*1000000;
         }
-        return latestVal;
+        return Float.isNaN(latestVal) ? null : latestVal;
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
         if(event.values!=null && event.values.length>0) {
-            final float alpha = 0.3f;
-            latestVal = event.values[0] * alpha + (1 - alpha) * latestVal;
-            //latestTime = event.timestamp;
+            if (Float.isNaN(latestVal)) {
+                latestVal = event.values[0];
+            } else {
+                final float alpha = 0.3f;
+                latestVal = event.values[0] * alpha + (1 - alpha) * latestVal;
+                //latestTime = event.timestamp;
+            }
         }
     }
 
@@ -112,7 +132,8 @@ public class TrackerTemperature extends DefaultTrackerComponent implements Senso
         if (enabled) {
             Sensor sensor = getSensor(context);
             if (sensor != null) {
-                sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_UI);
+                SensorBatching.registerListener(sensorManager, this, sensor,
+                        SensorBatching.getSamplePeriodUs(context), MAX_REPORT_LATENCY_US, mHandler);
                 res = ResultCode.RESULT_OK;
             } else if (isMockSensor) {
                 res = ResultCode.RESULT_OK;
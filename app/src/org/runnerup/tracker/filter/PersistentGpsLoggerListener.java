@@ -19,9 +19,12 @@ package org.runnerup.tracker.filter;
 
 import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.location.Location;
+import android.os.SystemClock;
 
 import org.runnerup.common.util.Constants;
+import org.runnerup.db.DBHelper;
 import org.runnerup.tracker.LocationListenerBase;
 
 
@@ -33,20 +36,103 @@ public class PersistentGpsLoggerListener extends LocationListenerBase implements
     private ContentValues mKey;
     private final boolean mLogGpxAccuracy;
 
+    /**
+     * Buffered mode: fixes are kept in primitive arrays and written in one
+     * transaction with a precompiled statement when the buffer is full or
+     * the oldest buffered fix is older than mMaxBufferMillis (checked when a fix
+     * is added, the owner should also call flush() periodically).
+     * Fixes are only buffered when the key has an activity, others are written directly.
+     * Null values are stored as NaN (real columns) or -1 (integer columns).
+     */
+    private final int mBufferSize;
+    private final long mMaxBufferMillis;
+    private SQLiteStatement mInsertStatement = null;
+    private int mBufferCount = 0;
+    private long mBufferStartMillis = 0;
+    private long[] mBufActivity;
+    private long[] mBufLap;
+    private int[] mBufType;
+    private long[] mBufTime;
+    private double[] mBufLatitude;
+    private double[] mBufLongitude;
+    private double[] mBufAltitude;
+    private float[] mBufAccuracy;
+    private double[] mBufGpsAltitude;
+    private float[] mBufSpeed;
+    private float[] mBufBearing;
+    private int[] mBufSatellites;
+    private float[] mBufPressure;
+    private long[] mBufElapsed;
+    private double[] mBufDistance;
+    private int[] mBufHr;
+    private float[] mBufCadence;
+    private float[] mBufTemperature;
+
+    // Primitive copy of the key, used in buffered mode
+    private long mKeyActivity = -1;
+    private long mKeyLap = 0;
+    private int mKeyType = 0;
+
+    private static final String[] INSERT_COLUMNS = {
+            DB.LOCATION.ACTIVITY, DB.LOCATION.LAP, DB.LOCATION.TYPE, DB.LOCATION.TIME,
+            DB.LOCATION.LATITUDE, DB.LOCATION.LONGITUDE, DB.LOCATION.ALTITUDE,
+            DB.LOCATION.ACCURANCY, DB.LOCATION.GPS_ALTITUDE, DB.LOCATION.SPEED,
+            DB.LOCATION.BEARING, DB.LOCATION.SATELLITES, DB.LOCATION.PRESSURE,
+            DB.LOCATION.ELAPSED, DB.LOCATION.DISTANCE, DB.LOCATION.HR,
+            DB.LOCATION.CADENCE, DB.LOCATION.TEMPERATURE
+    };
+
     public PersistentGpsLoggerListener(SQLiteDatabase _db, String _table,
             ContentValues _key, boolean logGpxAccuracy) {
+        this(_db, _table, _key, logGpxAccuracy, 1, 0);
+    }
+
+    /**
+     * @param bufferSize max number of fixes to keep before writing, 1 or less disables buffering
+     * @param maxBufferMillis max age of the oldest buffered fix before writing, 0 for no limit
+     */
+    public PersistentGpsLoggerListener(SQLiteDatabase _db, String _table,
+            ContentValues _key, boolean logGpxAccuracy, int bufferSize, long maxBufferMillis) {
         this.mLock = new java.lang.Object();
         this.mDB = _db;
         this.mTable = _table;
         this.mLogGpxAccuracy = logGpxAccuracy;
+        this.mBufferSize = bufferSize;
+        this.mMaxBufferMillis = maxBufferMillis;
+        if (isBuffered()) {
+            mBufActivity = new long[bufferSize];
+            mBufLap = new long[bufferSize];
+            mBufType = new int[bufferSize];
+            mBufTime = new long[bufferSize];
+            mBufLatitude = new double[bufferSize];
+            mBufLongitude = new double[bufferSize];
+            mBufAltitude = new double[bufferSize];
+            mBufAccuracy = new float[bufferSize];
+            mBufGpsAltitude = new double[bufferSize];
+            mBufSpeed = new float[bufferSize];
+            mBufBearing = new float[bufferSize];
+            mBufSatellites = new int[bufferSize];
+            mBufPressure = new float[bufferSize];
+            mBufElapsed = new long[bufferSize];
+            mBufDistance = new double[bufferSize];
+            mBufHr = new int[bufferSize];
+            mBufCadence = new float[bufferSize];
+            mBufTemperature = new float[bufferSize];
+        }
         setKey(_key);
     }
 
+    private boolean isBuffered() {
+        return mBufferSize > 1;
+    }
+
     public SQLiteDatabase getDB() {
         return mDB;
     }
 
     public void setDB(SQLiteDatabase _db) {
+        flush();
+        closeStatement();
         mDB = _db;
     }
 
@@ -55,6 +141,8 @@ public class PersistentGpsLoggerListener extends LocationListenerBase implements
     }
 
     public void setTable(String _tab) {
+        flush();
+        closeStatement();
         mTable = _tab;
     }
 
@@ -68,15 +156,34 @@ public class PersistentGpsLoggerListener extends LocationListenerBase implements
 
     public void setKey(ContentValues key) {
         synchronized (mLock) {
-            if (key == null)
+            if (key == null) {
                 mKey = null;
-            else
+                mKeyActivity = -1;
+                mKeyLap = 0;
+                mKeyType = 0;
+            } else {
                 mKey = new ContentValues(key);
+                Long val = key.getAsLong(DB.LOCATION.ACTIVITY);
+                mKeyActivity = (val == null) ? -1 : val;
+                val = key.getAsLong(DB.LOCATION.LAP);
+                mKeyLap = (val == null) ? 0 : val;
+                Integer type = key.getAsInteger(DB.LOCATION.TYPE);
+                mKeyType = (type == null) ? 0 : type;
+            }
         }
     }
 
     public void onLocationChanged(Location arg0, Double eleValue, Long elapsed, Double distance,
         Integer hrValue, Float cadValue, Float temperatureValue, Float pressureValue) {
+        if (isBuffered()) {
+            if (bufferLocation(arg0, eleValue, elapsed, distance, hrValue, cadValue,
+                    temperatureValue, pressureValue)) {
+                return;
+            }
+            // keep the order of the fixes
+            flush();
+        }
+
         ContentValues values;
         synchronized (mLock) {
             if (mKey == null)
@@ -139,4 +246,154 @@ public class PersistentGpsLoggerListener extends LocationListenerBase implements
             mDB.insert(mTable, null, values);
         }
     }
+
+    /**
+     * @return false if the fix was not buffered as there is no activity in the key
+     */
+    private boolean bufferLocation(Location arg0, Double eleValue, Long elapsed, Double distance,
+        Integer hrValue, Float cadValue, Float temperatureValue, Float pressureValue) {
+        boolean full;
+        synchronized (mLock) {
+            if (mKeyActivity < 0) {
+                return false;
+            }
+            final int i = mBufferCount;
+            if (i == 0) {
+                mBufferStartMillis = SystemClock.elapsedRealtime();
+            }
+            mBufActivity[i] = mKeyActivity;
+            mBufLap[i] = mKeyLap;
+            mBufType[i] = mKeyType;
+            mBufTime[i] = arg0.getTime();
+            mBufLatitude[i] = arg0.getLatitude();
+            mBufLongitude[i] = arg0.getLongitude();
+            mBufAltitude[i] = (eleValue != null) ? eleValue : Double.NaN;
+            mBufAccuracy[i] = arg0.hasAccuracy() ? arg0.getAccuracy() : Float.NaN;
+            mBufGpsAltitude[i] = Double.NaN;
+            mBufSpeed[i] = Float.NaN;
+            mBufBearing[i] = Float.NaN;
+            mBufSatellites[i] = -1;
+            mBufPressure[i] = Float.NaN;
+            if (this.mLogGpxAccuracy) {
+                if (arg0.hasAltitude()) {
+                    mBufGpsAltitude[i] = arg0.getAltitude();
+                }
+                if (arg0.hasSpeed()) {
+                    mBufSpeed[i] = arg0.getSpeed();
+                }
+                if (arg0.hasBearing()) {
+                    mBufBearing[i] = arg0.getBearing();
+                }
+                if (arg0.getExtras() != null) {
+                    mBufSatellites[i] = arg0.getExtras().getInt("satellites", -1);
+                }
+                if (pressureValue != null) {
+                    mBufPressure[i] = pressureValue;
+                }
+            }
+            mBufElapsed[i] = (elapsed != null) ? elapsed : -1;
+            mBufDistance[i] = (distance != null) ? distance : Double.NaN;
+            mBufHr[i] = (hrValue != null) ? hrValue : -1;
+            mBufCadence[i] = (cadValue != null) ? cadValue : Float.NaN;
+            mBufTemperature[i] = (temperatureValue != null) ? temperatureValue : Float.NaN;
+            mBufferCount = i + 1;
+
+            full = mBufferCount >= mBufferSize ||
+                    (mMaxBufferMillis > 0 &&
+                            SystemClock.elapsedRealtime() - mBufferStartMillis >= mMaxBufferMillis);
+        }
+        if (full) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Write all buffered fixes to the database in one transaction.
+     * Must be called before the recorded data is read, like when the activity is paused or stopped.
+     */
+    public void flush() {
+        synchronized (mLock) {
+            if (mBufferCount == 0 || mDB == null) {
+                return;
+            }
+            if (mInsertStatement == null) {
+                StringBuilder sql = new StringBuilder("insert into " + mTable + " (");
+                StringBuilder params = new StringBuilder();
+                for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+                    if (i > 0) {
+                        sql.append(", ");
+                        params.append(", ");
+                    }
+                    sql.append(INSERT_COLUMNS[i]);
+                    params.append("?");
+                }
+                sql.append(") values (").append(params).append(")");
+                mInsertStatement = mDB.compileStatement(sql.toString());
+            }
+
+            final SQLiteStatement stmt = mInsertStatement;
+            DBHelper.beginTransaction(mDB);
+            try {
+                for (int i = 0; i < mBufferCount; i++) {
+                    stmt.clearBindings();
+                    stmt.bindLong(1, mBufActivity[i]);
+                    stmt.bindLong(2, mBufLap[i]);
+                    stmt.bindLong(3, mBufType[i]);
+                    stmt.bindLong(4, mBufTime[i]);
+                    stmt.bindDouble(5, mBufLatitude[i]);
+                    stmt.bindDouble(6, mBufLongitude[i]);
+                    bindDouble(stmt, 7, mBufAltitude[i]);
+                    bindDouble(stmt, 8, mBufAccuracy[i]);
+                    bindDouble(stmt, 9, mBufGpsAltitude[i]);
+                    bindDouble(stmt, 10, mBufSpeed[i]);
+                    bindDouble(stmt, 11, mBufBearing[i]);
+                    bindLong(stmt, 12, mBufSatellites[i]);
+                    bindDouble(stmt, 13, mBufPressure[i]);
+                    bindLong(stmt, 14, mBufElapsed[i]);
+                    bindDouble(stmt, 15, mBufDistance[i]);
+                    bindLong(stmt, 16, mBufHr[i]);
+                    bindDouble(stmt, 17, mBufCadence[i]);
+                    bindDouble(stmt, 18, mBufTemperature[i]);
+                    stmt.executeInsert();
+                }
+                mDB.setTransactionSuccessful();
+            } finally {
+                mDB.endTransaction();
+                mBufferCount = 0;
+            }
+            // checkpoint in the background rather than when committing
+            DBHelper.requestCheckpoint(mDB);
+        }
+    }
+
+    /**
+     * Flush buffered fixes and release the precompiled statement.
+     */
+    public void close() {
+        flush();
+        closeStatement();
+    }
+
+    private void closeStatement() {
+        synchronized (mLock) {
+            if (mInsertStatement != null) {
+                mInsertStatement.close();
+                mInsertStatement = null;
+            }
+        }
+    }
+
+    private static void bindDouble(SQLiteStatement stmt, int index, double value) {
+        // null values are not written (consistent with the ContentValues insert)
+        if (!Double.isNaN(value)) {
+            stmt.bindDouble(index, value);
+        }
+    }
+
+    private static void bindLong(SQLiteStatement stmt, int index, long value) {
+        if (value >= 0) {
+            stmt.bindLong(index, value);
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.tracker.filter;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.runnerup.common.util.Constants;
+import org.runnerup.db.DBHelper;
+import org.runnerup.hr.HRSampleBuffer;
+
+/**
+ * Write the heart rate samples (and R-R intervals) received from the device
+ * to DB.HR_SAMPLE for an activity.
+ * The samples are drained from the provider buffer and written in one transaction
+ * with a precompiled statement, so flush() should be called periodically.
+ */
+public class PersistentHRSampleLogger implements Constants {
+
+    private final SQLiteDatabase mDB;
+    private final long mActivityId;
+    private final HRSampleBuffer mBuffer;
+    private SQLiteStatement mInsertStatement = null;
+    private long mDropped;
+
+    private final long[] mTime;
+    private final int[] mHr;
+    private final int[] mRr;
+
+    public PersistentHRSampleLogger(SQLiteDatabase db, long activityId, HRSampleBuffer buffer) {
+        mDB = db;
+        mActivityId = activityId;
+        mBuffer = buffer;
+        mDropped = buffer.getDropped();
+        mTime = new long[buffer.capacity()];
+        mHr = new int[buffer.capacity()];
+        mRr = new int[buffer.capacity()];
+    }
+
+    /**
+     * Discard the samples received since the last flush, like when paused
+     */
+    public synchronized void clear() {
+        mBuffer.clear();
+    }
+
+    /**
+     * Write the samples received since the last flush
+     */
+    public synchronized void flush() {
+        int cnt = mBuffer.drainTo(mTime, mHr, mRr);
+        long dropped = mBuffer.getDropped();
+        if (dropped != mDropped) {
+            Log.w(getClass().getName(), "Dropped HR samples: " + (dropped - mDropped));
+            mDropped = dropped;
+        }
+        if (cnt == 0) {
+            return;
+        }
+
+        if (mInsertStatement == null) {
+            mInsertStatement = mDB.compileStatement("insert into " + DB.HR_SAMPLE.TABLE
+                    + " (" + DB.HR_SAMPLE.ACTIVITY + ", " + DB.HR_SAMPLE.TIME + ", "
+                    + DB.HR_SAMPLE.HR + ", " + DB.HR_SAMPLE.RR + ") values (?, ?, ?, ?)");
+        }
+        final SQLiteStatement stmt = mInsertStatement;
+        DBHelper.beginTransaction(mDB);
+        try {
+            for (int i = 0; i < cnt; i++) {
+                stmt.clearBindings();
+                stmt.bindLong(1, mActivityId);
+                stmt.bindLong(2, mTime[i]);
+                stmt.bindLong(3, mHr[i]);
+                if (mRr[i] != HRSampleBuffer.NO_RR) {
+                    stmt.bindLong(4, mRr[i]);
+                }
+                stmt.executeInsert();
+            }
+            mDB.setTransactionSuccessful();
+        } finally {
+            mDB.endTransaction();
+        }
+        DBHelper.requestCheckpoint(mDB);
+    }
+
+    /**
+     * Flush the samples and release the precompiled statement.
+     */
+    public synchronized void close() {
+        flush();
+        if (mInsertStatement != null) {
+            mInsertStatement.close();
+            mInsertStatement = null;
+        }
+    }
+}
@@ -41,7 +41,7 @@ import com.jjoe64.graphview.series.Series;
 
 import org.runnerup.R;
 import org.runnerup.common.util.Constants;
-import org.runnerup.db.entities.LocationEntity;
+import org.runnerup.db.TrackColumns;
 import org.runnerup.view.HRZonesBar;
 
 import java.util.ArrayList;
@@ -184,7 +184,7 @@ public class GraphWrapper implements Constants {
             acc_time = 0;
         }
 
-        void addObservation(double delta_time, double delta_distance, double tot_distance, LocationEntity loc) {
+        void addObservation(double delta_time, double delta_distance, double tot_distance, int hr) {
             if (delta_time < 500)
                 return;
 
@@ -197,9 +197,8 @@ public class GraphWrapper implements Constants {
             this.time[p] = delta_time;
             this.distance[p] = delta_distance;
 
-            if (loc.getHr() != null) {
+            if (hr != TrackColumns.NO_HR) {
                 showHR = true;
-                int hr = loc.getHr();
                 this.hr[p] = hr;
 
                 if (showHRZhist && hr > 0) {
@@ -533,19 +532,18 @@ public class GraphWrapper implements Constants {
         @Override
         protected GraphProducer doInBackground(LoadParam... params) {
 
-            LocationEntity.LocationList<LocationEntity> ll = new LocationEntity.LocationList<>(params[0].mDB, params[0].mID);
-            GraphProducer graphData = new GraphProducer(params[0].context, ll.getCount());
+            TrackColumns track = TrackColumns.load(params[0].mDB, params[0].mID);
+            // The count was previously taken before the locations were read (always 0),
+            // keep that smoothing until it is changed separately
+            GraphProducer graphData = new GraphProducer(params[0].context, 0);
             double lastDistance = 0;
             long lastTime = 0;
             int lastLap = -1;
-            Double tot_distance = 0.0;
-            for (LocationEntity loc : ll) {
-                Long time = loc.getTime();
-                time = time != null ? time : lastTime;
-                Integer lap = loc.getLap();
-                lap = lap != null ? lap : 0;
-                tot_distance = loc.getDistance();
-                tot_distance = tot_distance != null ? tot_distance : lastDistance;
+            double tot_distance = 0.0;
+            for (int i = 0; i < track.count; i++) {
+                long time = track.time[i];
+                int lap = track.lap[i];
+                tot_distance = track.distance[i];
 
                 if (lap != lastLap) {
                     graphData.clearSmooth(tot_distance);
@@ -553,17 +551,12 @@ public class GraphWrapper implements Constants {
                 }
                 if (lastTime > 0) {
                     graphData.addObservation(time - lastTime, tot_distance - lastDistance,
-                            tot_distance, loc);
+                            tot_distance, track.hr[i]);
                 }
                 lastTime = time;
                 lastDistance = tot_distance;
-
             }
             graphData.clearSmooth(tot_distance);
-
-            //    Log.e(getClass().getName(), "Finished loading " + cnt + " points");
-            //}
-            ll.close();
             return graphData;
         }
 
@@ -195,6 +195,9 @@ public final class JsonWriter {
 
     private boolean lenient;
 
+    /** Scratch buffer for numeric values. */
+    private final char[] numberBuffer = new char[NumericText.BUFFER_SIZE];
+
     /**
      * Creates a new instance that writes a JSON-encoded stream to {@code out}.
      * For best performance, ensure {@link Writer} is buffered; wrapping in
@@ -408,7 +411,32 @@ public final class JsonWriter {
      */
     public JsonWriter value(long value) throws IOException {
         beforeValue(false);
-        out.write(Long.toString(value));
+        int len = NumericText.format(value, numberBuffer, 0);
+        out.write(numberBuffer, 0, len);
+        return this;
+    }
+
+    /**
+     * Encodes {@code value} with at most {@code decimals} decimals,
+     * trailing zeros are removed.
+     *
+     * @param value a finite value. May not be {@link Double#isNaN() NaNs} or
+     *            {@link Double#isInfinite() infinities} unless this writer is
+     *            lenient.
+     * @return this writer.
+     */
+    public JsonWriter value(double value, int decimals) throws IOException {
+        if (!lenient && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException(
+                    "Numeric values must be finite, but was " + value);
+        }
+        beforeValue(false);
+        int len = NumericText.format(value, decimals, numberBuffer, 0);
+        if (len < 0) {
+            out.append(Double.toString(value));
+        } else {
+            out.write(numberBuffer, 0, len);
+        }
         return this;
     }
 
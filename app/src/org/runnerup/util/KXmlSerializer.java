@@ -54,6 +54,7 @@ public class KXmlSerializer implements XmlSerializer {
     private boolean[] indent = new boolean[4];
     private boolean unicode;
     private String encoding;
+    private final char[] numberBuffer = new char[NumericText.BUFFER_SIZE];
 
     private void check(boolean close) throws IOException {
         if (!pending)
@@ -432,6 +433,36 @@ public class KXmlSerializer implements XmlSerializer {
         String name,
         String value)
         throws IOException {
+        startAttribute(namespace, name);
+        char q = value.indexOf('"') == -1 ? '"' : '\'';
+        writer.write(q);
+        writeEscaped(value, q);
+        writer.write(q);
+
+        return this;
+    }
+
+    /**
+     * Numeric attribute, see {@link #text(double, int)}
+     */
+    public XmlSerializer attribute(
+        String namespace,
+        String name,
+        double value,
+        int decimals)
+        throws IOException {
+        startAttribute(namespace, name);
+        writer.write('"');
+        writeNumber(value, decimals);
+        writer.write('"');
+
+        return this;
+    }
+
+    private void startAttribute(
+        String namespace,
+        String name)
+        throws IOException {
         if (!pending)
             throw new IllegalStateException("illegal position for attribute");
 
@@ -471,12 +502,6 @@ public class KXmlSerializer implements XmlSerializer {
         }
         writer.write(name);
         writer.write('=');
-        char q = value.indexOf('"') == -1 ? '"' : '\'';
-        writer.write(q);
-        writeEscaped(value, q);
-        writer.write(q);
-
-        return this;
     }
 
     public void flush() throws IOException {
@@ -550,10 +575,50 @@ public class KXmlSerializer implements XmlSerializer {
 
     public XmlSerializer text(char[] text, int start, int len)
         throws IOException {
-        text(new String(text, start, len));
+        for (int i = start; i < start + len; i++) {
+            char c = text[i];
+            if (c < 0x20 || c >= 127 || c == '&' || c == '<' || c == '>') {
+                //Needs escaping or validation
+                text(new String(text, start, len));
+                return this;
+            }
+        }
+        check(false);
+        indent[depth] = false;
+        writer.write(text, start, len);
         return this;
     }
 
+    /**
+     * Write a number without creating a String, no escaping is needed
+     */
+    public XmlSerializer text(long value) throws IOException {
+        check(false);
+        indent[depth] = false;
+        int len = NumericText.format(value, numberBuffer, 0);
+        writer.write(numberBuffer, 0, len);
+        return this;
+    }
+
+    /**
+     * Write a number with at most the number of decimals (trailing zeros are removed)
+     */
+    public XmlSerializer text(double value, int decimals) throws IOException {
+        check(false);
+        indent[depth] = false;
+        writeNumber(value, decimals);
+        return this;
+    }
+
+    private void writeNumber(double value, int decimals) throws IOException {
+        int len = NumericText.format(value, decimals, numberBuffer, 0);
+        if (len < 0) {
+            writer.write(Double.toString(value));
+        } else {
+            writer.write(numberBuffer, 0, len);
+        }
+    }
+
     public void cdsect(String data) throws IOException {
         check(false);
         // BEGIN android-changed: ]]> is not allowed within a CDATA,
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.util;
+
+/**
+ * Format numbers into a char buffer without creating Strings, used by the serializers
+ * for the numeric content in exports.
+ * The output only contains [-0-9.] so it never needs escaping.
+ */
+public class NumericText {
+
+    /**
+     * Buffer size sufficient for all values formatted by this class
+     */
+    public static final int BUFFER_SIZE = 32;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    public static final int MAX_DECIMALS = POW10.length - 1;
+
+    /**
+     * @return number of chars written
+     */
+    public static int format(long value, char[] buf, int offset) {
+        if (value == Long.MIN_VALUE) {
+            // Cannot be negated, not expected in exports
+            String s = Long.toString(value);
+            s.getChars(0, s.length(), buf, offset);
+            return s.length();
+        }
+        int pos = offset;
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        return pos - offset + formatPositive(value, 1, buf, pos);
+    }
+
+    /**
+     * Format with at most the number of decimals, trailing zeros are removed
+     * (like 1.5 and 2, not 1.50 and 2.00).
+     *
+     * @return number of chars written, -1 if the value cannot be formatted
+     *         (NaN, infinite, too large), use Double.toString() then
+     */
+    public static int format(double value, int decimals, char[] buf, int offset) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("decimals: " + decimals);
+        }
+        final long scale = POW10[decimals];
+        final double scaled = Math.abs(value) * scale;
+        if (Double.isNaN(value) || scaled >= Long.MAX_VALUE / 10) {
+            return -1;
+        }
+        long units = Math.round(scaled);
+
+        int pos = offset;
+        if (value < 0 && units != 0) {
+            buf[pos++] = '-';
+        }
+        long intPart = units / scale;
+        long fraction = units % scale;
+        pos += formatPositive(intPart, 1, buf, pos);
+
+        if (fraction != 0) {
+            // remove trailing zeros
+            int digits = decimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            buf[pos++] = '.';
+            pos += formatPositive(fraction, digits, buf, pos);
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Write a non negative value, left padded with zeros to minDigits
+     */
+    private static int formatPositive(long value, int minDigits, char[] buf, int offset) {
+        int len = 1;
+        long v = value;
+        while (v >= 10) {
+            v /= 10;
+            len++;
+        }
+        if (len < minDigits) {
+            len = minDigits;
+        }
+        for (int i = offset + len - 1; i >= offset; i--) {
+            buf[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return len;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Format time as ISO-8601 UTC, "yyyy-MM-dd'T'HH:mm:ss'Z'" like 2018-04-01T12:34:56Z
+ * Same output as a SimpleDateFormat with the pattern and timezone UTC, but without
+ * allocations per call (except for the String variant).
+ *
+ * The date part is cached as long as consecutive timestamps are on the same day,
+ * the cache is immutable so the formatter can be shared between threads.
+ */
+public class UtcTimeFormatter {
+
+    public static final int LENGTH = 20;
+
+    private static final long MILLIS_PER_DAY = 24 * 3600 * 1000L;
+
+    private static final class Day {
+        final long day;
+        final char[] date = new char[10];
+
+        Day(long day) {
+            this.day = day;
+            civilFromDays(day, date);
+        }
+    }
+
+    private static volatile Day sDay = new Day(0);
+
+    /**
+     * Write the formatted time to buf
+     *
+     * @param time ms since epoch
+     * @return number of chars written, always LENGTH
+     */
+    public static int format(long time, char[] buf, int offset) {
+        long day = time / MILLIS_PER_DAY;
+        long ms = time % MILLIS_PER_DAY;
+        if (ms < 0) {
+            day--;
+            ms += MILLIS_PER_DAY;
+        }
+        Day d = sDay;
+        if (d.day != day) {
+            d = new Day(day);
+            sDay = d;
+        }
+        System.arraycopy(d.date, 0, buf, offset, 10);
+
+        int secs = (int) (ms / 1000);
+        int hh = secs / 3600;
+        int mm = (secs / 60) % 60;
+        int ss = secs % 60;
+        buf[offset + 10] = 'T';
+        put2(buf, offset + 11, hh);
+        buf[offset + 13] = ':';
+        put2(buf, offset + 14, mm);
+        buf[offset + 16] = ':';
+        put2(buf, offset + 17, ss);
+        buf[offset + 19] = 'Z';
+        return LENGTH;
+    }
+
+    public static void format(long time, Writer writer) throws IOException {
+        char[] buf = new char[LENGTH];
+        format(time, buf, 0);
+        writer.write(buf, 0, LENGTH);
+    }
+
+    public static String format(long time) {
+        char[] buf = new char[LENGTH];
+        format(time, buf, 0);
+        return new String(buf);
+    }
+
+    private static void put2(char[] buf, int pos, int val) {
+        buf[pos] = (char) ('0' + val / 10);
+        buf[pos + 1] = (char) ('0' + val % 10);
+    }
+
+    /**
+     * Days since 1970-01-01 to yyyy-MM-dd in the proleptic Gregorian calendar
+     * (algorithm from http://howardhinnant.github.io/date_algorithms.html)
+     */
+    private static void civilFromDays(long z, char[] date) {
+        z += 719468;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final int d = (int) (doy - (153 * mp + 2) / 5 + 1);
+        final int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        final long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+
+        int year = (int) y;
+        date[0] = (char) ('0' + (year / 1000) % 10);
+        date[1] = (char) ('0' + (year / 100) % 10);
+        date[2] = (char) ('0' + (year / 10) % 10);
+        date[3] = (char) ('0' + year % 10);
+        date[4] = '-';
+        put2(date, 5, m);
+        date[7] = '-';
+        put2(date, 8, d);
+    }
+}
@@ -63,6 +63,7 @@ import org.runnerup.db.DBHelper;
 import org.runnerup.export.SyncManager;
 import org.runnerup.export.Synchronizer;
 import org.runnerup.export.Synchronizer.Feature;
+import org.runnerup.export.format.ExportCache;
 import org.runnerup.util.Bitfield;
 import org.runnerup.util.Formatter;
 import org.runnerup.util.GraphWrapper;
@@ -680,6 +681,7 @@ public class DetailActivity extends AppCompatActivity implements Constants {
                 Long.toString(mID)
         };
         mDB.update(DB.ACTIVITY.TABLE, tmp, "_id = ?", whereArgs);
+        ExportCache.invalidate(mID);
     }
 
     private final OnLongClickListener clearUploadClick = new OnLongClickListener() {
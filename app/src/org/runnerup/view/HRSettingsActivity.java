@@ -49,19 +49,17 @@ import com.jjoe64.graphview.series.DataPoint;
 import com.jjoe64.graphview.series.LineGraphSeries;
 
 import org.runnerup.R;
-import org.runnerup.hr.HRData;
 import org.runnerup.hr.HRDeviceRef;
 import org.runnerup.hr.HRManager;
 import org.runnerup.hr.HRProvider;
 import org.runnerup.hr.HRProvider.HRClient;
+import org.runnerup.hr.HRSample;
 import org.runnerup.util.Formatter;
 import org.runnerup.widget.WidgetUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
 
 
 public class HRSettingsActivity extends AppCompatActivity implements HRClient {
@@ -102,7 +100,7 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
     private final OnClickListener scanButtonClick = new OnClickListener() {
         public void onClick(View v) {
             clear();
-            stopTimer();
+            stopHRUpdates();
 
             close();
             mIsScanning = true;
@@ -167,7 +165,7 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
         super.onDestroy();
 
         close();
-        stopTimer();
+        stopHRUpdates();
     }
 
     @Override
@@ -448,7 +446,7 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
     }
 
     private void connect() {
-        stopTimer();
+        stopHRUpdates();
         if (hrProvider == null || btName == null || btAddress == null) {
             updateView();
             return;
@@ -497,29 +495,41 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
         return btAddress;
     }
 
-    private Timer hrReader = null;
+    // The provider the samples are pushed from
+    private HRProvider hrSampleSource = null;
 
-    private void startTimer() {
-        hrReader = new Timer();
-        hrReader.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                handler.post(new Runnable() {
-                    public void run() {
-                        readHR();
-                    }
-                });
-            }
-        }, 0, 500);
+    private final Runnable hrReader = new Runnable() {
+        @Override
+        public void run() {
+            readHR();
+        }
+    };
+
+    private final HRProvider.HRSampleListener hrSampleListener = new HRProvider.HRSampleListener() {
+        @Override
+        public void onHRSample(HRSample sample) {
+            // Called on the thread of the device, update the view on the main thread
+            handler.post(hrReader);
+        }
+    };
+
+    private void startHRUpdates() {
+        stopHRUpdates();
+        if (hrProvider == null)
+            return;
+
+        hrSampleSource = hrProvider;
+        hrSampleSource.addHRSampleListener(hrSampleListener);
+        readHR();
     }
 
-    private void stopTimer() {
-        if (hrReader == null)
+    private void stopHRUpdates() {
+        if (hrSampleSource == null)
             return;
 
-        hrReader.cancel();
-        hrReader.purge();
-        hrReader = null;
+        hrSampleSource.removeHRSampleListener(hrSampleListener);
+        hrSampleSource = null;
+        handler.removeCallbacks(hrReader);
     }
 
     private long lastTimestamp = 0;
@@ -527,12 +537,10 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
 
     private void readHR() {
         if (hrProvider != null) {
-            HRData data = hrProvider.getHRData();
-            if(data != null) {
-                long age = data.timestamp;
-                long hrValue = 0;
-                if(data.hasHeartRate)
-                    hrValue = data.hrValue;
+            HRSample sample = hrProvider.getHRSample();
+            if (sample.hrValue > 0) {
+                long age = sample.timestamp;
+                long hrValue = sample.hrValue;
 
                 tvHR.setText(String.format(Locale.getDefault(), "%d", hrValue));
 
@@ -596,7 +604,7 @@ public class HRSettingsActivity extends AppCompatActivity implements HRClient {
                 tvBatteryLevel.setText(String.format(Locale.getDefault(), "%s: %d%%",
                         getResources().getText(R.string.Battery_level), hrProvider.getBatteryLevel()));
             }
-            startTimer();
+            startHRUpdates();
         }
         updateView();
     }
@@ -57,6 +57,7 @@ import android.widget.Toast;
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
 import org.runnerup.db.DBHelper;
+import org.runnerup.export.SyncService;
 import org.runnerup.util.FileUtil;
 import org.runnerup.util.Formatter;
 
@@ -170,6 +171,11 @@ public class MainLayout extends TabActivity
         //Import workouts/schemes. No permission needed
         handleBundled(getApplicationContext().getAssets(), "bundled", getFilesDir().getPath() + "/..");
 
+        //Continue uploads that failed before the app was stopped
+        SQLiteDatabase mDB = DBHelper.getWritableDatabase(this);
+        SyncService.startIfQueued(this, mDB);
+        DBHelper.closeDB(mDB);
+
         // if we were called from an intent-filter because user opened "runnerup.db.export", load it
         final Uri data = getIntent().getData();
         if (data != null) {
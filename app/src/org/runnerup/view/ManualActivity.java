@@ -33,6 +33,7 @@ import android.widget.EditText;
 
 import org.runnerup.R;
 import org.runnerup.common.util.Constants.DB;
+import org.runnerup.db.BulkInserter;
 import org.runnerup.db.DBHelper;
 import org.runnerup.util.Formatter;
 import org.runnerup.util.SafeParse;
@@ -204,15 +205,26 @@ public class ManualActivity extends AppCompatActivity {
         save.put(DB.ACTIVITY.START_TIME, start_time);
 
         save.put(DB.ACTIVITY.SPORT, sport);
-        long id = mDB.insert(DB.ACTIVITY.TABLE, null, save);
-
-        ContentValues lap = new ContentValues();
-        lap.put(DB.LAP.ACTIVITY, id);
-        lap.put(DB.LAP.LAP, 0);
-        lap.put(DB.LAP.INTENSITY, DB.INTENSITY.ACTIVE);
-        lap.put(DB.LAP.TIME, secs);
-        lap.put(DB.LAP.DISTANCE, dist);
-        mDB.insert(DB.LAP.TABLE, null, lap);
+
+        // the activity and its lap are saved together
+        BulkInserter inserter = new BulkInserter(mDB);
+        inserter.begin();
+        try {
+            long id = inserter.insert(DB.ACTIVITY.TABLE, null, save);
+            if (id != -1) {
+                ContentValues lap = new ContentValues();
+                lap.put(DB.LAP.ACTIVITY, id);
+                lap.put(DB.LAP.LAP, 0);
+                lap.put(DB.LAP.INTENSITY, DB.INTENSITY.ACTIVE);
+                lap.put(DB.LAP.TIME, secs);
+                lap.put(DB.LAP.DISTANCE, dist);
+                if (inserter.insert(DB.LAP.TABLE, null, lap) != -1) {
+                    inserter.setTransactionSuccessful();
+                }
+            }
+        } finally {
+            inserter.end();
+        }
 
         finish();
     }
@@ -27,7 +27,6 @@ import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.location.Location;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.IBinder;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -55,14 +54,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Timer;
-import java.util.TimerTask;
 
 
 public class RunActivity extends Activity implements TickListener {
     private Workout workout = null;
     private Tracker mTracker = null;
-    private final Handler handler = new Handler();
 
     private Button pauseButton = null;
     private Button newLapButton = null;
@@ -155,8 +151,8 @@ public class RunActivity extends Activity implements TickListener {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        unbindGpsTracker();
         stopTimer();
+        unbindGpsTracker();
 
     }
 
@@ -213,27 +209,22 @@ public class RunActivity extends Activity implements TickListener {
         //}
     }
 
-    private Timer timer = null;
+    private static final long TICK_PERIOD = 500;
+    private boolean ticking = false;
 
     private void startTimer() {
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                RunActivity.this.handler.post(new Runnable() {
-                    public void run() {
-                        RunActivity.this.onTick();
-                    }
-                });
-            }
-        }, 0, 500);
+        if (mTracker != null) {
+            mTracker.getTickScheduler().register(this, TICK_PERIOD);
+            ticking = true;
+        }
     }
 
     private void stopTimer() {
-        if (timer != null) {
-            timer.cancel();
-            timer.purge();
-            timer = null;
+        if (ticking) {
+            if (mTracker != null) {
+                mTracker.getTickScheduler().unregister(this);
+            }
+            ticking = false;
         }
     }
 
@@ -255,9 +246,9 @@ public class RunActivity extends Activity implements TickListener {
 
     private final OnClickListener stopButtonClick = new OnClickListener() {
         public void onClick(View v) {
-            if (timer != null) {
+            if (ticking) {
                 workout.onStop(workout);
-                stopTimer(); // set timer=null;
+                stopTimer(); // set ticking=false;
                 mTracker.stopForeground(true); // remove notification
                 Intent intent = new Intent(RunActivity.this, DetailActivity.class);
                 /*
@@ -38,6 +38,7 @@ import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.app.AlertDialog;
 import android.util.Log;
+import android.widget.Toast;
 
 import org.runnerup.BuildConfig;
 import org.runnerup.R;
@@ -206,6 +207,7 @@ public class SettingsActivity extends PreferenceActivity
                 String from = DBHelper.getDbPath(getApplicationContext());
                 String to = dstdir + "/runnerup.db.export";
                 try {
+                    DBHelper.checkpointDatabase(getApplicationContext());
                     int cnt = FileUtil.copyFile(to, from);
                     builder.setMessage("Copied " + cnt + " bytes");
                     builder.setPositiveButton(getString(R.string.Great), listener);
@@ -255,10 +257,13 @@ public class SettingsActivity extends PreferenceActivity
             final ProgressDialog dialog = new ProgressDialog(SettingsActivity.this);
             dialog.setTitle(R.string.Pruning_deleted_activities_from_database);
             dialog.show();
-            DBHelper.purgeDeletedActivities(SettingsActivity.this, dialog, new Runnable() {
+            DBHelper.purgeDeletedActivities(SettingsActivity.this, new DBHelper.PurgeListener() {
                 @Override
-                public void run() {
+                public void onPurged(int activities, long bytesReclaimed) {
                     dialog.dismiss();
+                    Toast.makeText(SettingsActivity.this, getResources().getQuantityString(
+                            R.plurals.Pruned_activities, activities, activities, bytesReclaimed / 1024),
+                            Toast.LENGTH_LONG).show();
                 }
             });
             return false;
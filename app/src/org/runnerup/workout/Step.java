@@ -21,6 +21,7 @@ import android.content.ContentValues;
 
 import org.runnerup.BuildConfig;
 import org.runnerup.common.util.Constants.DB;
+import org.runnerup.tracker.SensorSums;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -183,20 +184,24 @@ public class Step implements TickComponent {
     private double stepStartTime = 0;
     private double stepStartDistance = 0;
     private double stepStartHeartbeats = 0;
+    private SensorSums stepStartSensorSums = SensorSums.ZERO;
     private double lapStartTime = 0;
     private double lapStartDistance = 0;
     private double lapStartHeartbeats = 0;
+    private SensorSums lapStartSensorSums = SensorSums.ZERO;
 
     @Override
     public void onStart(Scope what, Workout s) {
         double time = s.getTime(Scope.ACTIVITY);
         double dist = s.getDistance(Scope.ACTIVITY);
         double beats = s.getHeartbeats(Scope.ACTIVITY);
+        SensorSums sensorSums = s.getSensorSums();
 
         if (what == Scope.STEP) {
             stepStartTime = time;
             stepStartDistance = dist;
             stepStartHeartbeats = beats;
+            stepStartSensorSums = sensorSums;
             if (s.isPaused())
                 s.tracker.pause();
             else
@@ -205,6 +210,7 @@ public class Step implements TickComponent {
             lapStartTime = time;
             lapStartDistance = dist;
             lapStartHeartbeats = beats;
+            lapStartSensorSums = sensorSums;
             ContentValues tmp = new ContentValues();
             tmp.put(DB.LAP.INTENSITY, intensity.getValue());
             if (durationType != null) {
@@ -401,6 +407,16 @@ public class Step implements TickComponent {
         return 0;
     }
 
+    public double getSensorAverage(Workout w, Scope s, Dimension dimension) {
+        SensorSums sums = w.getSensorSums();
+        if (s == Scope.STEP) {
+            return sums.getAverage(dimension, stepStartSensorSums);
+        } else if (s == Scope.LAP) {
+            return sums.getAverage(dimension, lapStartSensorSums);
+        }
+        return Double.NaN;
+    }
+
     public double getDuration(Dimension dimension) {
         if (durationType == dimension)
             return durationValue;
@@ -38,10 +38,7 @@ public class TargetTrigger extends Trigger {
     Range range = null;
 
     private int cntMeasures = 0;
-    private double[] measure = null;
-    @SuppressWarnings("FieldCanBeLocal")
-    private int skip_values = 1;
-    private double[] sort_measure = null;
+    private TrimmedMeanWindow measure = null;
     private double lastTimestamp = 0;
 
     private double[] measure_time = null;
@@ -55,8 +52,7 @@ public class TargetTrigger extends Trigger {
 
     public TargetTrigger(Dimension dim, int movingAverageSeconds, int graceSeconds) {
         dimension = dim;
-        measure = new double[movingAverageSeconds];
-        sort_measure = new double[movingAverageSeconds];
+        measure = new TrimmedMeanWindow(movingAverageSeconds);
 
         if (dimension == Dimension.HRZ)
             dimension = Dimension.HR;
@@ -65,8 +61,6 @@ public class TargetTrigger extends Trigger {
         measure_distance = new double[movingAverageSeconds];
 
         minGraceCount = graceSeconds;
-        skip_values = (5 * movingAverageSeconds) / 100; // ignore 5% lowest and
-                                                        // 5% higest values
 
         reset();
     }
@@ -133,37 +127,24 @@ public class TargetTrigger extends Trigger {
     }
 
     private void addObservation(double val_now) {
-        int pos = cntMeasures % measure.length;
-        measure[pos] = val_now;
+        measure.add(val_now);
         cntMeasures++;
     }
 
+    /**
+     * Moving average, ignoring the 5% lowest and 5% highest values
+     */
     public double getValue() {
         if (cntMeasures == lastValCnt)
             return lastVal;
 
-        //not all values in the measure array are meaningful when
-        //cntMeasures is small so we adjust for it.
-        int meaningful_length = Math.min(cntMeasures,measure.length);
-        //should the percentage of values skipped be a variable of the class?
-        int meaningful_skip_values = (5*meaningful_length)/100;
-        System.arraycopy(measure, 0, sort_measure, 0, meaningful_length);
-        java.util.Arrays.sort(sort_measure,0,meaningful_length);
-        double cnt = 0;
-        double val = 0;
-        for (int i = meaningful_skip_values; i < meaningful_length - meaningful_skip_values; i++) {
-            val += sort_measure[i];
-            cnt++;
-        }
-        lastVal = val / cnt;
+        lastVal = measure.getMean();
         lastValCnt = cntMeasures;
         return lastVal;
     }
 
     private void reset() {
-        for (int i = 0; i < measure.length; i++) {
-            measure[i] = 0;
-        }
+        measure.clear();
         inited = false;
         cntMeasures = 0;
         graceCount = initialGrace;
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.workout;
+
+/**
+ * Trimmed mean of the last values in a sliding window, ignoring the 5% lowest
+ * and 5% highest values.
+ *
+ * The window slots are also the nodes of a treap (a randomized balanced search tree)
+ * kept in primitive arrays, with the size and the sum of the finite values of each
+ * subtree. Adding a value and evicting the oldest is O(log window), the trimmed sum
+ * is two O(log window) prefix sums and getMean() returns the mean computed on add().
+ * Values are ordered as in Arrays.sort(double[]) (NaN highest), non finite values
+ * are counted so that the mean is the same as summing them.
+ */
+class TrimmedMeanWindow {
+
+    private static final int SKIP_PERCENT = 5;
+    private static final int NIL = -1;
+
+    private final double[] window;
+    private int count = 0;
+
+    // Treap nodes, indexed by window slot
+    private final int[] left;
+    private final int[] right;
+    private final int[] priority;
+    private final int[] size;
+    private final double[] sum;
+    private int root = NIL;
+
+    private int cntNaN = 0;
+    private int cntPosInf = 0;
+    private int cntNegInf = 0;
+
+    private double mean = Double.NaN;
+
+    TrimmedMeanWindow(int size) {
+        window = new double[size];
+        left = new int[size];
+        right = new int[size];
+        priority = new int[size];
+        this.size = new int[size];
+        sum = new double[size];
+
+        // Fixed pseudo random priorities (xorshift), independent of the values
+        int seed = 0x2545F491;
+        for (int i = 0; i < size; i++) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            priority[i] = seed;
+        }
+    }
+
+    void clear() {
+        count = 0;
+        root = NIL;
+        cntNaN = 0;
+        cntPosInf = 0;
+        cntNegInf = 0;
+        mean = Double.NaN;
+    }
+
+    void add(double val) {
+        int pos = count % window.length;
+        if (count >= window.length) {
+            root = remove(root, pos);
+            updateCount(window[pos], -1);
+        }
+        window[pos] = val;
+        count++;
+        left[pos] = NIL;
+        right[pos] = NIL;
+        update(pos);
+        root = insert(root, pos);
+        updateCount(val, 1);
+        mean = computeMean();
+    }
+
+    /**
+     * @return the trimmed mean, NaN if there are no values
+     */
+    double getMean() {
+        return mean;
+    }
+
+    private double computeMean() {
+        int n = Math.min(count, window.length);
+        int skip = (SKIP_PERCENT * n) / 100;
+        int lo = skip;
+        int hi = n - skip;
+
+        // The sorted window is -Inf, finite values, +Inf, NaN
+        boolean negInf = overlaps(lo, hi, 0, cntNegInf);
+        boolean posInf = overlaps(lo, hi, n - cntNaN - cntPosInf, n - cntNaN);
+        if (overlaps(lo, hi, n - cntNaN, n) || (negInf && posInf)) {
+            return Double.NaN;
+        } else if (posInf) {
+            return Double.POSITIVE_INFINITY;
+        } else if (negInf) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return (prefixSum(hi) - prefixSum(lo)) / (hi - lo);
+    }
+
+    private static boolean overlaps(int lo, int hi, int start, int end) {
+        return Math.max(lo, start) < Math.min(hi, end);
+    }
+
+    private void updateCount(double val, int cnt) {
+        if (Double.isNaN(val)) {
+            cntNaN += cnt;
+        } else if (val == Double.POSITIVE_INFINITY) {
+            cntPosInf += cnt;
+        } else if (val == Double.NEGATIVE_INFINITY) {
+            cntNegInf += cnt;
+        }
+    }
+
+    /**
+     * Sum of the finite values among the k lowest
+     */
+    private double prefixSum(int k) {
+        double res = 0;
+        int t = root;
+        while (t != NIL && k > 0) {
+            int leftSize = sizeOf(left[t]);
+            if (k <= leftSize) {
+                t = left[t];
+            } else {
+                res += sumOf(left[t]) + finite(window[t]);
+                k -= leftSize + 1;
+                t = right[t];
+            }
+        }
+        return res;
+    }
+
+    private boolean less(int a, int b) {
+        int c = Double.compare(window[a], window[b]);
+        return c < 0 || (c == 0 && a < b);
+    }
+
+    private int insert(int t, int x) {
+        if (t == NIL) {
+            return x;
+        }
+        if (less(x, t)) {
+            left[t] = insert(left[t], x);
+            if (priority[left[t]] > priority[t]) {
+                t = rotateRight(t);
+            }
+        } else {
+            right[t] = insert(right[t], x);
+            if (priority[right[t]] > priority[t]) {
+                t = rotateLeft(t);
+            }
+        }
+        update(t);
+        return t;
+    }
+
+    private int remove(int t, int x) {
+        if (t == x) {
+            return merge(left[t], right[t]);
+        }
+        if (less(x, t)) {
+            left[t] = remove(left[t], x);
+        } else {
+            right[t] = remove(right[t], x);
+        }
+        update(t);
+        return t;
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int rotateRight(int t) {
+        int l = left[t];
+        left[t] = right[l];
+        right[l] = t;
+        update(t);
+        update(l);
+        return l;
+    }
+
+    private int rotateLeft(int t) {
+        int r = right[t];
+        right[t] = left[r];
+        left[r] = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    private void update(int t) {
+        size[t] = 1 + sizeOf(left[t]) + sizeOf(right[t]);
+        sum[t] = finite(window[t]) + sumOf(left[t]) + sumOf(right[t]);
+    }
+
+    private int sizeOf(int t) {
+        return t == NIL ? 0 : size[t];
+    }
+
+    private double sumOf(int t) {
+        return t == NIL ? 0 : sum[t];
+    }
+
+    private static double finite(double val) {
+        return Double.isNaN(val) || Double.isInfinite(val) ? 0 : val;
+    }
+}
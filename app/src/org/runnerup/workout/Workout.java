@@ -24,6 +24,7 @@ import android.location.Location;
 import org.runnerup.BuildConfig;
 import org.runnerup.common.util.Constants;
 import org.runnerup.common.util.Constants.DB;
+import org.runnerup.tracker.SensorSums;
 import org.runnerup.tracker.Tracker;
 import org.runnerup.tracker.component.TrackerHRM;
 import org.runnerup.tracker.component.TrackerCadence;
@@ -425,6 +426,30 @@ public class Workout implements WorkoutComponent, WorkoutInfo {
         return 0.0;
     }
 
+    /**
+     * Time weighted average of a sensor dimension for LAP, STEP or ACTIVITY
+     *
+     * @return NaN if there are no values
+     */
+    private double getSensorAverage(Scope scope, Dimension dimension) {
+        switch (scope) {
+            case ACTIVITY:
+                return tracker.getSensorSums().getAverage(dimension, SensorSums.ZERO);
+            case STEP:
+            case LAP:
+                if (currentStep != null)
+                    return currentStep.getSensorAverage(this, scope, dimension);
+                return Double.NaN;
+            case CURRENT:
+                break;
+        }
+        return Double.NaN;
+    }
+
+    SensorSums getSensorSums() {
+        return tracker.getSensorSums();
+    }
+
     @Override
     public double getCadence(Scope scope) {
         switch (scope) {
@@ -440,15 +465,11 @@ public class Workout implements WorkoutComponent, WorkoutInfo {
                 break;
         }
 
-        double t = getTime(scope); // in seconds
-        double b = -1; //TODO get steps for scope
-
-        //TODO
-        if (BuildConfig.DEBUG) { throw new AssertionError(); }
-        if (t != 0) {
-            return (60 * b)/ 2 / t; // bpm
+        double val = getSensorAverage(scope, Dimension.CAD);
+        if (Double.isNaN(val)) {
+            return 0;
         }
-        return 0.0;
+        return val;
     }
 
     @Override
@@ -466,9 +487,11 @@ public class Workout implements WorkoutComponent, WorkoutInfo {
                 break;
         }
 
-        //TODO
-        if (BuildConfig.DEBUG) { throw new AssertionError(); }
-        return 0.0;
+        double val = getSensorAverage(scope, Dimension.TEMPERATURE);
+        if (Double.isNaN(val)) {
+            return -1;
+        }
+        return val;
     }
 
     @Override
@@ -486,9 +509,11 @@ public class Workout implements WorkoutComponent, WorkoutInfo {
                 break;
         }
 
-        //TODO
-        if (BuildConfig.DEBUG) { throw new AssertionError(); }
-        return 0.0;
+        double val = getSensorAverage(scope, Dimension.PRESSURE);
+        if (Double.isNaN(val)) {
+            return -1;
+        }
+        return val;
     }
 
     @Override
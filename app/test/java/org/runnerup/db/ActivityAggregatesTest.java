@@ -0,0 +1,215 @@
+package org.runnerup.db;
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.runnerup.common.util.Constants.DB;
+import org.runnerup.util.GeoDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Hint: Local Unit Test can use System.out.print for printouts
+
+public class ActivityAggregatesTest {
+
+    private static class Row {
+        final long lap;
+        final int type;
+        final long time;
+        final double latitude;
+        final double longitude;
+        final int hr;
+
+        Row(long lap, int type, long time, double latitude, double longitude, int hr) {
+            this.lap = lap;
+            this.type = type;
+            this.time = time;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.hr = hr;
+        }
+    }
+
+    /**
+     * The per lap aggregation previously used in ActivityCleaner,
+     * one pass over the locations for each lap
+     */
+    private static class PerLap {
+        final double[] distance;
+        final long[] time;
+        final long[] sumHr;
+        final int[] maxHr;
+        final int[] count;
+
+        PerLap(List<Row> rows, long[] laps) {
+            distance = new double[laps.length];
+            time = new long[laps.length];
+            sumHr = new long[laps.length];
+            maxHr = new int[laps.length];
+            count = new int[laps.length];
+            for (int i = 0; i < laps.length; i++) {
+                Row last = null;
+                for (Row r : rows) {
+                    if (r.lap != laps[i]) {
+                        continue;
+                    }
+                    switch (r.type) {
+                        case DB.LOCATION.TYPE_START:
+                        case DB.LOCATION.TYPE_RESUME:
+                            last = r;
+                            break;
+                        case DB.LOCATION.TYPE_END:
+                        case DB.LOCATION.TYPE_PAUSE:
+                        case DB.LOCATION.TYPE_GPS:
+                            if (last == null) {
+                                last = r;
+                                break;
+                            }
+                            distance[i] += GeoDistance.distanceBetween(r.latitude, r.longitude,
+                                    last.latitude, last.longitude);
+                            time[i] += r.time - last.time;
+                            sumHr[i] += r.hr;
+                            maxHr[i] = Math.max(maxHr[i], r.hr);
+                            count[i]++;
+                            last = r;
+                            break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An activity with laps every 1000 points, pauses and a few discarded points
+     */
+    private static List<Row> activity(int points, Random random) {
+        List<Row> rows = new ArrayList<>(points);
+        long time = 1500000000000L;
+        double lat = 59.3;
+        double lon = 18.0;
+        rows.add(new Row(0, DB.LOCATION.TYPE_START, time, lat, lon, 0));
+        for (int i = 1; i < points - 1; i++) {
+            time += 1000;
+            lat += 0.00003 * random.nextGaussian();
+            lon += 0.00003 * random.nextGaussian();
+            int r = random.nextInt(500);
+            int type = r == 0 ? DB.LOCATION.TYPE_PAUSE
+                    : r == 1 ? DB.LOCATION.TYPE_RESUME
+                    : r == 2 ? DB.LOCATION.TYPE_DISCARD
+                    : DB.LOCATION.TYPE_GPS;
+            int hr = random.nextInt(10) == 0 ? 0 : 120 + random.nextInt(60);
+            rows.add(new Row(i / 1000, type, time, lat, lon, hr));
+        }
+        rows.add(new Row((points - 1) / 1000, DB.LOCATION.TYPE_END, time + 1000, lat, lon, 150));
+        return rows;
+    }
+
+    private static ActivityAggregates aggregate(List<Row> rows, long[] laps) {
+        ActivityAggregates aggregates = new ActivityAggregates(laps);
+        for (Row r : rows) {
+            aggregates.add(r.lap, r.type, r.time, r.latitude, r.longitude, r.hr);
+        }
+        return aggregates;
+    }
+
+    private static long[] laps(int points) {
+        long[] laps = new long[(points - 1) / 1000 + 1];
+        for (int i = 0; i < laps.length; i++) {
+            laps[i] = i;
+        }
+        return laps;
+    }
+
+    @Test
+    public void shouldMatchKnownDistances() {
+        assertEquals(0, GeoDistance.distanceBetween(10, 20, 10, 20), 0);
+        assertEquals(110574.39, GeoDistance.distanceBetween(0, 0, 1, 0), 0.1);
+        assertEquals(111319.49, GeoDistance.distanceBetween(0, 0, 0, 1), 0.1);
+        assertEquals(GeoDistance.distanceBetween(59.3, 18.0, 57.7, 11.97),
+                GeoDistance.distanceBetween(57.7, 11.97, 59.3, 18.0), 0.01);
+    }
+
+    @Test
+    public void shouldEqualPerLapAggregates() {
+        final int points = 10000;
+        List<Row> rows = activity(points, new Random(4711));
+        // A lap without locations and one lap missing in the lap table
+        long[] laps = laps(points);
+        laps[3] = 100;
+
+        PerLap expected = new PerLap(rows, laps);
+        ActivityAggregates sut = aggregate(rows, laps);
+        long totalSumHr = 0;
+        int totalCount = 0;
+        int totalMaxHr = 0;
+        for (int i = 0; i < laps.length; i++) {
+            int j = sut.indexOf(laps[i]);
+            assertEquals(expected.distance[i], sut.distance[j], 1e-6);
+            assertEquals(expected.time[i], sut.time[j]);
+            assertEquals(expected.sumHr[i], sut.sumHr[j]);
+            assertEquals(expected.maxHr[i], sut.maxHr[j]);
+            assertEquals(expected.count[i], sut.count[j]);
+            totalSumHr += expected.sumHr[i];
+            totalCount += expected.count[i];
+            totalMaxHr = Math.max(totalMaxHr, expected.maxHr[i]);
+        }
+        assertEquals(0, sut.count[sut.indexOf(100)]);
+        assertEquals(totalSumHr, sut.totalSumHr);
+        assertEquals(totalCount, sut.totalCount);
+        assertEquals(totalMaxHr, sut.totalMaxHr);
+    }
+
+    /**
+     * Not a strict benchmark, the best of a few rounds for a 50k point activity
+     * (the database reads are not included)
+     */
+    @Ignore("Benchmark, the timing depends on the machine")
+    @Test
+    public void shouldBeFasterThanPerLap() {
+        final int points = 50000;
+        List<Row> rows = activity(points, new Random(17));
+        long[] laps = laps(points);
+
+        long bestPerLap = Long.MAX_VALUE;
+        long bestOnePass = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            PerLap perLap = new PerLap(rows, laps);
+            long t1 = System.nanoTime();
+            ActivityAggregates sut = aggregate(rows, laps);
+            long t2 = System.nanoTime();
+            bestPerLap = Math.min(bestPerLap, t1 - t0);
+            bestOnePass = Math.min(bestOnePass, t2 - t1);
+
+            double d1 = 0;
+            double d2 = 0;
+            for (int i = 0; i < laps.length; i++) {
+                d1 += perLap.distance[i];
+                d2 += sut.distance[sut.indexOf(laps[i])];
+            }
+            assertEquals(d1, d2, 1e-3);
+        }
+        assertTrue("one pass " + bestOnePass + " ns, per lap " + bestPerLap + " ns",
+                bestOnePass < bestPerLap);
+    }
+}
@@ -0,0 +1,278 @@
+package org.runnerup.export;
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//Hint: Local Unit Test can use System.out.print for printouts
+
+public class SyncQueueTest {
+
+    private static final int READ_TIMEOUT_MS = 300;
+
+    // Local HTTP stub for the upload endpoint
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private URL uploadUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    // Requests before this one do not get a response in time
+    private volatile int firstAnswered = 0;
+    private volatile int responseCode = HttpURLConnection.HTTP_OK;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/upload", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                while (in.read() != -1) {
+                    // consume the activity
+                }
+                if (requests.incrementAndGet() < firstAnswered) {
+                    try {
+                        Thread.sleep(3 * READ_TIMEOUT_MS);
+                    } catch (InterruptedException e) {
+                        // stopping
+                    }
+                }
+                byte[] body = "{}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(responseCode, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        uploadUrl = new URL("http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/upload");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * Post an activity to the stub, like the synchronizers do
+     * @return the cause of the failure, null if uploaded
+     */
+    private Exception upload() {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) uploadUrl.openConnection();
+            conn.setConnectTimeout(READ_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setDoOutput(true);
+            conn.setRequestMethod("POST");
+            OutputStream out = conn.getOutputStream();
+            out.write("<TrainingCenterDatabase/>".getBytes("UTF-8"));
+            out.close();
+            int code = conn.getResponseCode();
+            if (code != HttpURLConnection.HTTP_OK) {
+                return new Exception(conn.getResponseMessage());
+            }
+            return null;
+        } catch (IOException e) {
+            return e;
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Run the job like SyncService, with the time advanced to each retry
+     * @return the delays between the attempts
+     */
+    private List<Long> runJob(SyncQueue.Job job) {
+        List<Long> delays = new ArrayList<>();
+        long now = 0;
+        while (true) {
+            Exception ex = upload();
+            long nextAt = SyncQueue.completed(job, ex != null && SyncQueue.isTransient(ex), now);
+            if (nextAt == SyncQueue.NO_RETRY) {
+                return delays;
+            }
+            delays.add(nextAt - now);
+            now = nextAt;
+        }
+    }
+
+    private static SyncQueue.Job job(long id, long accountId) {
+        SyncQueue.Job job = new SyncQueue.Job();
+        job.id = id;
+        job.accountId = accountId;
+        return job;
+    }
+
+    @Test
+    public void backoffShouldDoubleUntilMax() {
+        assertEquals(SyncQueue.INITIAL_BACKOFF, SyncQueue.getBackoff(1));
+        assertEquals(2 * 60 * 1000, SyncQueue.getBackoff(1));
+        long prev = SyncQueue.getBackoff(1);
+        for (int attempts = 2; attempts < 100; attempts++) {
+            long backoff = SyncQueue.getBackoff(attempts);
+            assertEquals("attempts " + attempts, Math.min(2 * prev, SyncQueue.MAX_BACKOFF), backoff);
+            prev = backoff;
+        }
+        assertEquals(SyncQueue.MAX_BACKOFF, SyncQueue.getBackoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void backoffShouldHandleNoAttempts() {
+        assertEquals(SyncQueue.INITIAL_BACKOFF, SyncQueue.getBackoff(0));
+    }
+
+    @Test
+    public void failedUploadShouldBeRetriedWithBackoff() {
+        long now = 1000000;
+        for (int attempts = 1; attempts < SyncQueue.MAX_ATTEMPTS; attempts++) {
+            assertEquals(now + SyncQueue.getBackoff(attempts), SyncQueue.retryAt(attempts, now));
+        }
+    }
+
+    @Test
+    public void failedUploadShouldBeGivenUpAfterMaxAttempts() {
+        long now = 1000000;
+        assertEquals(SyncQueue.NO_RETRY, SyncQueue.retryAt(SyncQueue.MAX_ATTEMPTS, now));
+        assertEquals(SyncQueue.NO_RETRY, SyncQueue.retryAt(SyncQueue.MAX_ATTEMPTS + 1, now));
+    }
+
+    @Test
+    public void retriesShouldSpanHours() {
+        // The retries should cover a longer network outage
+        long total = 0;
+        for (int attempts = 1; SyncQueue.retryAt(attempts, 0) != SyncQueue.NO_RETRY; attempts++) {
+            total += SyncQueue.retryAt(attempts, 0);
+        }
+        assertTrue("total " + total, total >= 12 * 3600 * 1000);
+    }
+
+    @Test
+    public void shouldClassifyTransientErrors() {
+        assertTrue(SyncQueue.isTransient(new SocketTimeoutException()));
+        assertTrue(SyncQueue.isTransient(new UnknownHostException()));
+        assertTrue(SyncQueue.isTransient(new Exception(new java.net.ConnectException())));
+        assertFalse(SyncQueue.isTransient(null));
+        assertFalse(SyncQueue.isTransient(new IOException("Server returned HTTP response code: 400")));
+        assertFalse(SyncQueue.isTransient(new Exception("Bad Request")));
+    }
+
+    @Test
+    public void timeoutsShouldBeRetriedWithBackoff() {
+        firstAnswered = 3;
+        SyncQueue.Job job = job(1, 10);
+
+        List<Long> delays = runJob(job);
+        assertEquals(3, requests.get());
+        assertEquals(2, job.attempts);
+        assertEquals(2, delays.size());
+        assertEquals(SyncQueue.getBackoff(1), (long) delays.get(0));
+        assertEquals(SyncQueue.getBackoff(2), (long) delays.get(1));
+        assertNull(upload());
+    }
+
+    @Test
+    public void httpErrorsShouldNotBeRetried() {
+        responseCode = HttpURLConnection.HTTP_BAD_REQUEST;
+        SyncQueue.Job job = job(1, 10);
+
+        List<Long> delays = runJob(job);
+        assertEquals(1, requests.get());
+        assertEquals(0, job.attempts);
+        assertTrue(delays.isEmpty());
+    }
+
+    @Test
+    public void unreachableServerShouldBeRetriedUntilMaxAttempts() {
+        server.stop(0);
+        SyncQueue.Job job = job(1, 10);
+
+        List<Long> delays = runJob(job);
+        assertEquals(0, requests.get());
+        assertEquals(SyncQueue.MAX_ATTEMPTS, job.attempts);
+        assertEquals(SyncQueue.MAX_ATTEMPTS - 1, delays.size());
+        for (int i = 0; i < delays.size(); i++) {
+            assertEquals(SyncQueue.getBackoff(i + 1), (long) delays.get(i));
+        }
+    }
+
+    @Test
+    public void shouldSelectOneJobPerAccount() {
+        List<SyncQueue.Job> due = new ArrayList<>();
+        due.add(job(1, 10));
+        due.add(job(2, 10));
+        due.add(job(3, 11));
+        due.add(job(4, 11));
+
+        List<SyncQueue.Job> jobs = SyncQueue.selectJobs(due);
+        assertEquals(2, jobs.size());
+        assertEquals(1, jobs.get(0).id);
+        assertEquals(3, jobs.get(1).id);
+    }
+
+    @Test
+    public void shouldLimitParallelJobs() {
+        List<SyncQueue.Job> due = new ArrayList<>();
+        for (int i = 0; i < 2 * SyncQueue.MAX_PARALLEL_UPLOADS; i++) {
+            due.add(job(i, 100 + i));
+        }
+
+        List<SyncQueue.Job> jobs = SyncQueue.selectJobs(due);
+        assertEquals(SyncQueue.MAX_PARALLEL_UPLOADS, jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            // Oldest first
+            assertEquals(i, jobs.get(i).id);
+        }
+    }
+
+    @Test
+    public void shouldSelectNothingWhenEmpty() {
+        assertTrue(SyncQueue.selectJobs(new ArrayList<SyncQueue.Job>()).isEmpty());
+    }
+}
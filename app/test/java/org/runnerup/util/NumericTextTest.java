@@ -0,0 +1,127 @@
+package org.runnerup.util;
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class NumericTextTest {
+
+    private static String format(long value) {
+        char[] buf = new char[NumericText.BUFFER_SIZE];
+        return new String(buf, 0, NumericText.format(value, buf, 0));
+    }
+
+    private static String format(double value, int decimals) {
+        char[] buf = new char[NumericText.BUFFER_SIZE + 2];
+        buf[0] = 'x';
+        int len = NumericText.format(value, decimals, buf, 1);
+        if (len < 0) {
+            return null;
+        }
+        assertEquals('x', buf[0]);
+        return new String(buf, 1, len);
+    }
+
+    /**
+     * The value rounded half up (away from zero), without trailing zeros
+     */
+    private static String expected(double value, int decimals) {
+        String s = new BigDecimal(value).setScale(decimals, RoundingMode.HALF_UP)
+                .stripTrailingZeros().toPlainString();
+        return s.equals("-0") ? "0" : s;
+    }
+
+    private static boolean nearTie(double value, int decimals) {
+        BigDecimal scaled = new BigDecimal(value).abs().movePointRight(decimals);
+        BigDecimal fraction = scaled.subtract(new BigDecimal(scaled.toBigInteger()));
+        return fraction.subtract(new BigDecimal("0.5")).abs().compareTo(new BigDecimal("0.01")) < 0;
+    }
+
+    @Test
+    public void shouldFormatLongs() {
+        assertEquals("0", format(0));
+        assertEquals("7", format(7));
+        assertEquals("-7", format(-7));
+        assertEquals("1000", format(1000));
+        assertEquals("-1234567890123", format(-1234567890123L));
+        assertEquals(Long.toString(Long.MAX_VALUE), format(Long.MAX_VALUE));
+        assertEquals(Long.toString(Long.MIN_VALUE), format(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void shouldRoundAndRemoveTrailingZeros() {
+        assertEquals("0", format(0.0, 2));
+        assertEquals("2", format(2.0, 2));
+        assertEquals("1.5", format(1.50, 2));
+        assertEquals("0.05", format(0.05, 2));
+        assertEquals("0.01", format(0.005, 2));
+        assertEquals("3", format(2.5, 0));
+        assertEquals("1", format(0.99996, 4));
+        assertEquals("59.3293235", format(59.32932351, 7));
+        assertEquals("18.0686", format(18.06860001, 7));
+        assertEquals("12345.679", format(12345.6789, 3));
+    }
+
+    @Test
+    public void shouldFormatNegatives() {
+        assertEquals("-1.5", format(-1.5, 2));
+        assertEquals("-3", format(-2.5, 0));
+        assertEquals("-0.05", format(-0.05, 2));
+        assertEquals("-122.4194155", format(-122.41941550, 7));
+        // rounds to zero, without sign
+        assertEquals("0", format(-0.001, 2));
+        assertEquals("0", format(-0.0, 2));
+    }
+
+    @Test
+    public void shouldNotFormatNonFiniteOrLargeValues() {
+        assertEquals(null, format(Double.NaN, 2));
+        assertEquals(null, format(Double.POSITIVE_INFINITY, 2));
+        assertEquals(null, format(Double.NEGATIVE_INFINITY, 2));
+        assertEquals(null, format(1e18, 2));
+        assertEquals(null, format(-1e18, 2));
+        assertEquals("10000000000", format(1e10, 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTooManyDecimals() {
+        format(1.0, NumericText.MAX_DECIMALS + 1);
+    }
+
+    @Test
+    public void shouldMatchBigDecimal() {
+        Random r = new Random(4711);
+        for (int i = 0; i < 100000; i++) {
+            // values and decimals in the range used by the exports, the scaled
+            // value below 1e12 so the double has more precision than needed
+            int exponent = r.nextInt(7);
+            int decimals = r.nextInt(Math.min(NumericText.MAX_DECIMALS, 12 - exponent) + 1);
+            double value = (r.nextDouble() - 0.5) * Math.pow(10, exponent);
+            if (nearTie(value, decimals)) {
+                // the scaling is not exact, so values close to .5 may round either way
+                continue;
+            }
+            assertEquals(expected(value, decimals), format(value, decimals));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.runnerup.util;
+/*
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UtcTimeFormatterTest {
+
+    private static SimpleDateFormat simpleDateFormat() {
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return f;
+    }
+
+    @Test
+    public void shouldMatchSimpleDateFormat() {
+        SimpleDateFormat f = simpleDateFormat();
+        long[] times = {
+                0, 999, 1000, 86399999L, 86400000L,
+                951782400000L, // 2000-02-29
+                1519862399000L, // 2018-02-28T23:59:59
+                4102444800000L // 2100-01-01
+        };
+        for (long t : times) {
+            assertEquals(f.format(new Date(t)), UtcTimeFormatter.format(t));
+        }
+
+        Random r = new Random(4711);
+        for (int i = 0; i < 100000; i++) {
+            long t = (long) (r.nextDouble() * 4102444800000L);
+            assertEquals(f.format(new Date(t)), UtcTimeFormatter.format(t));
+        }
+    }
+
+    @Test
+    public void shouldHandleConsecutiveTimes() {
+        SimpleDateFormat f = simpleDateFormat();
+        char[] buf = new char[UtcTimeFormatter.LENGTH];
+        // one point per second over midnight
+        long start = 1522540800000L - 3600 * 1000;
+        for (long t = start; t < start + 2 * 3600 * 1000; t += 1000) {
+            UtcTimeFormatter.format(t, buf, 0);
+            assertEquals(f.format(new Date(t)), new String(buf));
+        }
+    }
+
+    @Ignore("Benchmark, the timing depends on the machine")
+    @Test
+    public void shouldBeFasterThanSimpleDateFormat() {
+        // Not a strict benchmark, the best of a few rounds for a 20k point activity
+        final int points = 20000;
+        final long start = 1522540800000L;
+        SimpleDateFormat f = simpleDateFormat();
+        char[] buf = new char[UtcTimeFormatter.LENGTH];
+        long sum = 0;
+        long bestSimpleDateFormat = Long.MAX_VALUE;
+        long bestFormatter = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < points; i++) {
+                sum += f.format(new Date(start + i * 1000L)).length();
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < points; i++) {
+                sum += UtcTimeFormatter.format(start + i * 1000L, buf, 0);
+            }
+            long t2 = System.nanoTime();
+            bestSimpleDateFormat = Math.min(bestSimpleDateFormat, t1 - t0);
+            bestFormatter = Math.min(bestFormatter, t2 - t1);
+        }
+        assertEquals(2 * 5 * points * UtcTimeFormatter.LENGTH, sum);
+        assertTrue("UtcTimeFormatter " + bestFormatter + " ns, SimpleDateFormat "
+                + bestSimpleDateFormat + " ns", bestFormatter < bestSimpleDateFormat);
+    }
+}
@@ -0,0 +1,179 @@
+package org.runnerup.workout;
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//Hint: Local Unit Test can use System.out.print for printouts
+
+public class TrimmedMeanWindowTest {
+
+    /**
+     * The sort based trimmed mean previously used in TargetTrigger
+     */
+    private static class SortedWindow {
+        final double[] measure;
+        final double[] sort_measure;
+        int cntMeasures = 0;
+
+        SortedWindow(int size) {
+            measure = new double[size];
+            sort_measure = new double[size];
+        }
+
+        void add(double val) {
+            measure[cntMeasures % measure.length] = val;
+            cntMeasures++;
+        }
+
+        double getMean() {
+            int meaningful_length = Math.min(cntMeasures, measure.length);
+            int meaningful_skip_values = (5 * meaningful_length) / 100;
+            System.arraycopy(measure, 0, sort_measure, 0, meaningful_length);
+            Arrays.sort(sort_measure, 0, meaningful_length);
+            double cnt = 0;
+            double val = 0;
+            for (int i = meaningful_skip_values; i < meaningful_length - meaningful_skip_values; i++) {
+                val += sort_measure[i];
+                cnt++;
+            }
+            return val / cnt;
+        }
+    }
+
+    private static void assertMatchesReference(double expected, double actual) {
+        if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+            assertEquals(expected, actual, 0);
+        } else {
+            assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)));
+        }
+    }
+
+    private static void compare(int size, Random random, boolean nonFinite) {
+        SortedWindow expected = new SortedWindow(size);
+        TrimmedMeanWindow sut = new TrimmedMeanWindow(size);
+        for (int i = 0; i < 10 * size; i++) {
+            double val;
+            int r = random.nextInt(20);
+            if (nonFinite && r == 0) {
+                val = Double.POSITIVE_INFINITY;
+            } else if (nonFinite && r == 1) {
+                val = Double.NaN;
+            } else if (r < 5) {
+                // duplicates
+                val = random.nextInt(3);
+            } else {
+                val = 150 + 30 * random.nextGaussian();
+            }
+            expected.add(val);
+            sut.add(val);
+            assertMatchesReference(expected.getMean(), sut.getMean());
+        }
+    }
+
+    @Test
+    public void shouldEqualSortedMean() {
+        Random random = new Random(4711);
+        for (int size : new int[]{1, 2, 19, 20, 21, 30, 120, 600}) {
+            compare(size, random, false);
+        }
+    }
+
+    @Test
+    public void shouldEqualSortedMeanWithNonFiniteValues() {
+        Random random = new Random(17);
+        for (int size : new int[]{1, 20, 30, 120, 600}) {
+            compare(size, random, true);
+        }
+    }
+
+    @Test
+    public void shouldBeEmptyAfterClear() {
+        TrimmedMeanWindow sut = new TrimmedMeanWindow(30);
+        assertTrue(Double.isNaN(sut.getMean()));
+        for (int i = 0; i < 100; i++) {
+            sut.add(i);
+        }
+        sut.clear();
+        assertTrue(Double.isNaN(sut.getMean()));
+        sut.add(5);
+        assertMatchesReference(5, sut.getMean());
+    }
+
+    @Test
+    public void shouldEqualSortedMeanForMonotonicValues() {
+        for (int size : new int[]{30, 600}) {
+            SortedWindow expected = new SortedWindow(size);
+            TrimmedMeanWindow sut = new TrimmedMeanWindow(size);
+            for (int i = 0; i < 10 * size; i++) {
+                double val = i < 5 * size ? i : 10 * size - i;
+                expected.add(val);
+                sut.add(val);
+                assertMatchesReference(expected.getMean(), sut.getMean());
+            }
+        }
+    }
+
+    /**
+     * Not a strict benchmark, the best of a few rounds of adding values and getting the mean
+     */
+    @Ignore("Benchmark, the timing depends on the machine")
+    @Test
+    public void shouldBeFasterThanSorting() {
+        final int ticks = 20000;
+        for (int size : new int[]{120, 600}) {
+            Random random = new Random(size);
+            double[] values = new double[ticks];
+            for (int i = 0; i < ticks; i++) {
+                values[i] = 150 + 30 * random.nextGaussian();
+            }
+
+            long bestSorted = Long.MAX_VALUE;
+            long bestWindow = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                SortedWindow sorted = new SortedWindow(size);
+                double sum1 = 0;
+                long t0 = System.nanoTime();
+                for (double v : values) {
+                    sorted.add(v);
+                    sum1 += sorted.getMean();
+                }
+                long t1 = System.nanoTime();
+
+                TrimmedMeanWindow window = new TrimmedMeanWindow(size);
+                double sum2 = 0;
+                for (double v : values) {
+                    window.add(v);
+                    sum2 += window.getMean();
+                }
+                long t2 = System.nanoTime();
+                bestSorted = Math.min(bestSorted, t1 - t0);
+                bestWindow = Math.min(bestWindow, t2 - t1);
+                assertMatchesReference(sum1, sum2);
+            }
+            assertTrue("window " + size + ": TrimmedMeanWindow " + bestWindow + " ns, sorting "
+                    + bestSorted + " ns", bestWindow < bestSorted);
+        }
+    }
+}
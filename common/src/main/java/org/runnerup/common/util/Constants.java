@@ -154,6 +154,26 @@ public interface Constants {
             String EXTRA = "extra";
         }
 
+        interface SYNC_QUEUE {
+            String TABLE = "sync_queue";
+            String ACTIVITY = "activity_id";
+            String ACCOUNT = "account_id";
+            String STATE = "state";
+            String ATTEMPTS = "attempts";
+            String NEXT_AT = "next_at";
+
+            int STATE_PENDING = 0;
+            int STATE_RUNNING = 1;
+        }
+
+        interface HR_SAMPLE {
+            String TABLE = "hr_sample";
+            String ACTIVITY = "activity_id";
+            String TIME = "time";
+            String HR = "hr";
+            String RR = "rr";
+        }
+
         interface AUDIO_SCHEMES {
             String TABLE = "audio_schemes";
             String NAME = "name";
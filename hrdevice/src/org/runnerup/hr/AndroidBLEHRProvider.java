@@ -58,6 +58,8 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
 
     static final String NAME = "AndroidBLE";
     private static final String DISPLAY_NAME = "Bluetooth SMART (BLE)";
+    // About 5 minutes at 3 beats/s, the samples are drained by the tracker
+    private static final int HR_SAMPLE_BUFFER_SIZE = 1024;
 
     private static final UUID[] SCAN_UUIDS = {
         HRP_SERVICE
@@ -80,9 +82,7 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
     private BluetoothAdapter btAdapter = null;
     private BluetoothGatt btGatt = null;
     private BluetoothDevice btDevice = null;
-    private int hrValue = 0;
-    private long hrTimestamp = 0;
-    private int batteryLevel = -1;
+    private final HRSampleBuffer hrSamples = new HRSampleBuffer(HR_SAMPLE_BUFFER_SIZE);
     private boolean hasBatteryService = false;
 
     private boolean mIsScanning = false;
@@ -168,12 +168,17 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
                     return;
                 }
 
-                if (isHeartRateInUINT16(arg0.getValue()[0])) {
+                final byte flags = arg0.getValue()[0];
+                int hrValue;
+                int offset;
+                if (isHeartRateInUINT16(flags)) {
                     hrValue = arg0.getIntValue(
                             BluetoothGattCharacteristic.FORMAT_UINT16, 1);
+                    offset = 3;
                 } else {
                     hrValue = arg0.getIntValue(
                             BluetoothGattCharacteristic.FORMAT_UINT8, 1);
+                    offset = 2;
                 }
 
                 if (hrValue == 0) {
@@ -186,7 +191,9 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
                     return;
                 }
 
-                hrTimestamp = System.currentTimeMillis();
+                long hrTimestamp = System.currentTimeMillis();
+                addHRSamples(arg0, flags, offset, length, hrValue, hrTimestamp);
+                hrPublisher.publishHeartRate(hrValue, hrTimestamp);
 
                 if (mIsConnecting) {
                     reportConnected(true);
@@ -217,7 +224,8 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
                     startHR();
                 } else if (charUuid.equals(BATTERY_LEVEL_CHARAC)) {
                     log("batterylevel: " + arg0);
-                    batteryLevel = arg0.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT8, 0);
+                    int batteryLevel = arg0.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT8, 0);
+                    hrPublisher.publishBatteryLevel(batteryLevel);
                     log("Battery level: " + batteryLevel);
 
                     log(" => startHR()");
@@ -362,6 +370,36 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
             return (b & 1) != 0;
         }
 
+        private boolean isEnergyExpendedPresent(byte b) {
+            return (b & 0x08) != 0;
+        }
+
+        private boolean isRRIntervalPresent(byte b) {
+            return (b & 0x10) != 0;
+        }
+
+        /**
+         * One sample per R-R interval in the measurement (UINT16 in 1/1024 s, following
+         * the heart rate and the optional energy expended), or one without interval.
+         */
+        private void addHRSamples(BluetoothGattCharacteristic arg0, byte flags, int offset, int length,
+                                  int hrValue, long hrTimestamp) {
+            if (isEnergyExpendedPresent(flags)) {
+                offset += 2;
+            }
+            boolean added = false;
+            if (isRRIntervalPresent(flags)) {
+                for (; offset + 1 < length; offset += 2) {
+                    int rr = arg0.getIntValue(BluetoothGattCharacteristic.FORMAT_UINT16, offset);
+                    hrSamples.add(hrTimestamp, hrValue, (int) ((rr * 1000L + 512) / 1024));
+                    added = true;
+                }
+            }
+            if (!added) {
+                hrSamples.add(hrTimestamp, hrValue, HRSampleBuffer.NO_RR);
+            }
+        }
+
         private void startHR() {
             BluetoothGattService mHRP = btGatt.getService(HRP_SERVICE);
             if (mHRP == null) {
@@ -682,34 +720,14 @@ public class AndroidBLEHRProvider extends BtHRBase implements HRProvider {
         hrClient.onDisconnectResult(true);
     }
 
-    @Override
-    public int getHRValue() {
-        return this.hrValue;
-    }
-
-    @Override
-    public long getHRValueTimestamp() {
-        return this.hrTimestamp;
-    }
-
-    @Override
-    public HRData getHRData() {
-
-        if (hrValue <= 0) {
-            return null;
-        }
-
-        return new HRData().setHeartRate(hrValue).setTimestampEstimate(hrTimestamp);
-    }
-
     @Override
     public boolean isBondingDevice() {
         return true;
     }
 
     @Override
-    public int getBatteryLevel() {
-        return this.batteryLevel;
+    public HRSampleBuffer getHRSamples() {
+        return hrSamples;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
@@ -49,8 +49,6 @@ public class AntPlus extends BtHRBase {
     private static final String DISPLAY_NAME = "ANT+";
 
     private final Context context;
-    private int hrValue;
-    private long hrTimestamp;
 
     private HRDeviceRef connectRef = null;
 
@@ -266,8 +264,7 @@ public class AntPlus extends BtHRBase {
                 return;
             }
 
-            hrValue = arg2;
-            hrTimestamp = System.currentTimeMillis();
+            hrPublisher.publishHeartRate(arg2, System.currentTimeMillis());
 
             if (mIsConnecting) {
                 reportConnected(true);
@@ -379,27 +376,8 @@ public class AntPlus extends BtHRBase {
     }
 
     @Override
-    public int getHRValue() {
-        return hrValue;
-    }
-
-    @Override
-    public long getHRValueTimestamp() {
-        return hrTimestamp;
-    }
-
-    @Override
-    public HRData getHRData() {
-        if (hrValue <= 0) {
-            return null;
-        }
-
-        return new HRData().setHeartRate(hrValue).setTimestampEstimate(hrTimestamp);
-    }
-
-    @Override
-    public int getBatteryLevel() {
-        return -1;
+    public HRSampleBuffer getHRSamples() {
+        return null;
     }
 
     /** it seems ANT+ requires Bluetooth too */
@@ -80,9 +80,9 @@ public abstract class Bt20Base extends BtHRBase {
             .fromString("00001101-0000-1000-8000-00805F9B34FB");
     private ConnectThread connectThread;
     private ConnectedThread connectedThread;
+    // Room for the longest frame (255 bytes) and the next read
+    private static final int FRAME_BUFFER_SIZE = 512;
 
-    private int hrValue = 0;
-    private long hrTimestamp = 0;
     private BluetoothAdapter btAdapter = null;
 
     // private Context context = null;
@@ -147,27 +147,8 @@ public abstract class Bt20Base extends BtHRBase {
     }
 
     @Override
-    public int getHRValue() {
-        return hrValue;
-    }
-
-    @Override
-    public long getHRValueTimestamp() {
-        return hrTimestamp;
-    }
-
-    @Override
-    public HRData getHRData() {
-        if (hrValue <= 0) {
-            return null;
-        }
-
-        return new HRData().setHeartRate(hrValue).setTimestampEstimate(hrTimestamp);
-    }
-
-    @Override
-    public int getBatteryLevel() {
-        return -1;
+    public HRSampleBuffer getHRSamples() {
+        return null;
     }
 
     /**
@@ -465,53 +446,27 @@ public abstract class Bt20Base extends BtHRBase {
         }
 
         private void readHR() {
-            Integer hr[] = new Integer[1];
-            final int frameSize = getFrameSize();
-            byte[] buffer = new byte[2 * frameSize];
-            int bytesInBuffer = 0;
+            final Bt20FrameDecoder decoder = new Bt20FrameDecoder(createFrameParser(), FRAME_BUFFER_SIZE);
+            long resyncs = 0;
 
             // Keep listening to the inputStream while connected
             while (true) {
                 try {
                     // Read from the inputStream
-                    int bytesRead = inputStream.read(buffer, bytesInBuffer, buffer.length
-                            - bytesInBuffer);
-
-                    if (bytesRead == -1) {
+                    if (decoder.readFrom(inputStream) == -1) {
                         throw new IOException("EOF reached.");
                     }
 
-                    bytesInBuffer += bytesRead;
-                    int bytesUsed = parseBuffer(buffer, bytesInBuffer, hr);
-                    if (hr[0] != null) {
-                        hrValue = hr[0];
-                        hrTimestamp = System.currentTimeMillis();
-
-                        if (hrValue > 0 && mIsConnecting) {
-                            log("hrValue: " + hrValue + " => reportConnected");
-                            reportConnected(true);
-                        }
-
-                        if (hrValue == 0) {
-                            closeStream(inputStream);
-                            closeSocket(bluetoothSocket);
-                            if (mIsConnecting) {
-                                reportConnected(false);
-                                return;
-                            } else if (mIsConnected) {
-                                reportDisconnected(true);
-                                return;
-                            }
-                            break;
+                    int hrValue;
+                    while ((hrValue = decoder.next()) != Bt20FrameDecoder.NO_HR) {
+                        if (!onHeartRate(hrValue)) {
+                            return;
                         }
                     }
 
-                    if (bytesUsed > 0) {
-                        System.arraycopy(buffer, bytesUsed, buffer, 0, bytesInBuffer - bytesUsed);
-                        bytesInBuffer -= bytesUsed;
-                    } else if (bytesUsed == 0 && bytesInBuffer == buffer.length) {
-                        log("reset");
-                        bytesInBuffer = 0;
+                    if (decoder.getResyncs() != resyncs) {
+                        resyncs = decoder.getResyncs();
+                        log("resync (" + resyncs + ")");
                     }
                 } catch (IOException e) {
                     closeStream(inputStream);
@@ -527,6 +482,30 @@ public abstract class Bt20Base extends BtHRBase {
             closeSocket(bluetoothSocket);
         }
 
+        /**
+         * @return false if disconnected
+         */
+        private boolean onHeartRate(int hrValue) {
+            hrPublisher.publishHeartRate(hrValue, System.currentTimeMillis());
+
+            if (hrValue > 0 && mIsConnecting) {
+                log("hrValue: " + hrValue + " => reportConnected");
+                reportConnected(true);
+            }
+
+            if (hrValue == 0) {
+                closeStream(inputStream);
+                closeSocket(bluetoothSocket);
+                if (mIsConnecting) {
+                    reportConnected(false);
+                } else if (mIsConnected) {
+                    reportDisconnected(true);
+                }
+                return false;
+            }
+            return true;
+        }
+
         /**
          * Cancels this thread.
          */
@@ -556,50 +535,13 @@ public abstract class Bt20Base extends BtHRBase {
         }
     }
 
-    abstract static class Bt20BaseOld extends Bt20Base {
-
-        public Bt20BaseOld(Context ctx) {
-            super(ctx);
-        }
-
-        @Override
-        public int parseBuffer(byte[] buffer, int bytesInBuffer, Integer[] hr) {
-            hr[0] = null;
-            if (bytesInBuffer < getFrameSize())
-                return 0;
-
-            int hrValue = parseBuffer(buffer);
-            if (hrValue > 0) {
-                hr[0] = hrValue;
-                return bytesInBuffer; // use all of buffer
-            } else {
-                int index = findNextAlignment(buffer);
-                if (index < 0)
-                    return bytesInBuffer;
-                return index;
-            }
-        }
-
-        public abstract int getFrameSize();
-
-        public abstract int parseBuffer(byte[] buffer);
-
-        public abstract int findNextAlignment(byte buffer[]);
-    }
-
-    protected abstract int getFrameSize();
-
-    protected abstract int parseBuffer(byte[] buffer, int bytesInBuffer, Integer[] hr);
-
-    public static class ZephyrHRM extends Bt20BaseOld {
+    /**
+     * @return the parser for the frames from the device
+     */
+    abstract Bt20FrameDecoder.FrameParser createFrameParser();
 
-        static final byte ZEPHYR_HXM_BYTE_STX = 0;
-        static final byte ZEPHYR_HXM_BYTE_HR = 12;
-        static final byte ZEPHYR_HXM_BYTE_CRC = 58;
-        static final byte ZEPHYR_HXM_BYTE_ETX = 59;
+    public static class ZephyrHRM extends Bt20Base {
 
-        static final byte ZEPHYR_START_BYTE = 0x02;
-        static final byte ZEPHYR_END_BYTE = 0x03;
         public static final String NAME = "Zephyr";
 
         public ZephyrHRM(Context ctx) {
@@ -617,60 +559,9 @@ public abstract class Bt20Base extends BtHRBase {
         }
 
         @Override
-        public int getFrameSize() {
-            return ZEPHYR_HXM_BYTE_ETX + 1;
-        }
-
-        @Override
-        public int parseBuffer(byte[] buffer) {
-            // Check STX (Start of Text), ETX (End of Text) and CRC Checksum
-            boolean ok = buffer.length > ZEPHYR_HXM_BYTE_ETX
-                    && getByte(buffer[ZEPHYR_HXM_BYTE_STX]) == ZEPHYR_START_BYTE
-                    && getByte(buffer[ZEPHYR_HXM_BYTE_ETX]) == ZEPHYR_END_BYTE
-                    && calcCrc8(buffer, 3, 55) == getByte(buffer[ZEPHYR_HXM_BYTE_CRC]);
-
-            if (!ok) {
-                log("HxM insanity! "
-                        + (buffer.length > ZEPHYR_HXM_BYTE_ETX) + " "
-                        + getByte(buffer[ZEPHYR_HXM_BYTE_STX]) + "=="
-                        + ZEPHYR_START_BYTE + " "
-                        + getByte(buffer[ZEPHYR_HXM_BYTE_ETX]) + "=="
-                        + ZEPHYR_END_BYTE + " " + "calc="
-                        + calcCrc8(buffer, 3, 55) + " " + "given="
-                        + getByte(buffer[ZEPHYR_HXM_BYTE_CRC]));
-                return -1;
-            }
-
-            return getByte(buffer[ZEPHYR_HXM_BYTE_HR]);
-        }
-
-        @Override
-        public int findNextAlignment(byte[] buffer) {
-            for (int i = 0; i < buffer.length - 1; i++) {
-                if (getByte(buffer[i]) == ZEPHYR_END_BYTE &&
-                        getByte(buffer[i + 1]) == ZEPHYR_START_BYTE) {
-                    return i;
-                }
-            }
-            return -1;
+        Bt20FrameDecoder.FrameParser createFrameParser() {
+            return new Bt20Frames.Zephyr();
         }
-
-        private static int calcCrc8(byte buffer[], @SuppressWarnings("SameParameterValue") int start, @SuppressWarnings("SameParameterValue") int length) {
-            int crc = 0x0;
-
-            for (int i = start; i < (start + length); i++) {
-                crc ^= getByte(buffer[i]);
-                for (int b = 0; b <= 7; b++) {
-                    if ((crc & 1) != 0) {
-                        crc = ((crc >> 1) ^ 0x8c);
-                    } else {
-                        crc = (crc >> 1);
-                    }
-                }
-            }
-            return crc;
-        }
-
     }
 
     public static class PolarHRM extends Bt20Base {
@@ -692,56 +583,13 @@ public abstract class Bt20Base extends BtHRBase {
         }
 
         @Override
-        public int getFrameSize() {
-            return 16;
-        }
-
-        private boolean startOfMessage(byte buffer[], int bytesInBuffer, int pos) {
-            if (bytesInBuffer < pos + 4)
-                return false;
-
-            //noinspection PointlessArithmeticExpression
-            int b0 = getByte(buffer[pos + 0]);
-            int b1 = getByte(buffer[pos + 1]); // len
-            int b2 = getByte(buffer[pos + 2]);
-            int b3 = getByte(buffer[pos + 3]);
-            if (b0 != 0xFE) {
-                return false;
-            }
-
-            if ((0xFF - b1) != b2) {
-                return false;
-            }
-
-            if (b3 >= 16) {
-                return false;
-            }
-
-            //noinspection RedundantIfStatement
-            if (bytesInBuffer < pos + b1)
-                return false;
-
-            return true;
-        }
-
-        @Override
-        public int parseBuffer(byte[] buffer, int bytesInBuffer, Integer hrVal[]) {
-            hrVal[0] = null;
-            for (int i = 0; i < bytesInBuffer; i++) {
-                if (startOfMessage(buffer, bytesInBuffer, i)) {
-                    int bytesUsed = getByte(buffer[i + 1]);
-                    hrVal[0] = getByte(buffer[i + 5]);
-                    return bytesUsed;
-                }
-            }
-            return 0;
+        Bt20FrameDecoder.FrameParser createFrameParser() {
+            return new Bt20Frames.Polar();
         }
     }
 
     public static class StHRMv1 extends Bt20Base {
 
-        static final int FRAME_SIZE = 17;
-        static final int START_BYTE = 250;
         public static final String NAME = "SportTracker HRM v1";
 
         public StHRMv1(Context ctx) {
@@ -759,53 +607,11 @@ public abstract class Bt20Base extends BtHRBase {
         }
 
         @Override
-        public int getFrameSize() {
-            return FRAME_SIZE;
-        }
-
-        private boolean startOfMessage(byte buffer[], int bytesInBuffer, int pos) {
-            if (bytesInBuffer < pos + FRAME_SIZE)
-                return false;
-
-            //noinspection PointlessArithmeticExpression
-            int b0 = getByte(buffer[pos + 0]);
-            int b1 = getByte(buffer[pos + 1]);
-            int b2 = getByte(buffer[pos + 2]);
-            if (b0 != START_BYTE) {
-                return false;
-            }
-
-            if ((0xFF - b1) != b2) {
-                return false;
-            }
-
-            int len = b1 >> 2;
-            //noinspection RedundantIfStatement
-            if (bytesInBuffer < pos + len) {
-                return false;
-            }
-
-            return true;
-        }
-
-        @Override
-        public int parseBuffer(byte[] buffer, int bytesInBuffer, Integer hrVal[]) {
-            hrVal[0] = null;
-            for (int i = 0; i < bytesInBuffer; i++) {
-                if (startOfMessage(buffer, bytesInBuffer, i)) {
-                    int bytesUsed = getByte(buffer[i + 1]) >> 2;
-                    hrVal[0] = getByte(buffer[i + 5]);
-                    return bytesUsed;
-                }
-            }
-            return 0;
+        Bt20FrameDecoder.FrameParser createFrameParser() {
+            return new Bt20Frames.StHRMv1();
         }
     }
 
-    private static int getByte(byte b) {
-        return b & 0xFF;
-    }
-
     public static HRDeviceRef createDeviceRef(String providerName, BluetoothDevice device) {
         return HRDeviceRef.create(providerName, device.getName(), device.getAddress());
     }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.hr;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Frame decoder for the byte streams from Bluetooth 2.0 HR devices.
+ *
+ * The stream is read directly into a ring buffer and the {@link FrameParser}
+ * inspects the bytes in place, so nothing is copied or shifted when a frame is
+ * decoded or when the stream is misaligned. A position that is not the start of
+ * a valid frame is skipped one byte at a time until the parser finds a frame
+ * again (a resync).
+ */
+class Bt20FrameDecoder {
+
+    /**
+     * Returned by {@link FrameParser#parseFrame}: a frame may start at offset 0,
+     * but more bytes are needed
+     */
+    static final int NEED_MORE = 0;
+
+    /**
+     * Returned by {@link FrameParser#parseFrame}: there is no valid frame at offset 0
+     */
+    static final int NO_FRAME = -1;
+
+    /**
+     * Returned by {@link #next()} when there is no complete frame
+     */
+    static final int NO_HR = -1;
+
+    interface FrameParser {
+        /**
+         * @return the length of the valid frame at offset 0, {@link #NEED_MORE} or {@link #NO_FRAME}
+         */
+        int parseFrame(Bt20FrameDecoder in);
+
+        /**
+         * @return the heart rate of the frame at offset 0, after parseFrame() returned its length
+         */
+        int getHeartRate(Bt20FrameDecoder in);
+    }
+
+    private final FrameParser parser;
+    private final byte[] buffer;
+    private final int mask;
+    private long readPos = 0;
+    private long writePos = 0;
+
+    private boolean resyncing = false;
+    private long frames = 0;
+    private long resyncs = 0;
+    private long skippedBytes = 0;
+
+    /**
+     * @param capacity rounded up to a power of two, must hold the longest frame
+     */
+    Bt20FrameDecoder(FrameParser parser, int capacity) {
+        this.parser = parser;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new byte[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return number of bytes not yet decoded
+     */
+    int available() {
+        return (int) (writePos - readPos);
+    }
+
+    /**
+     * @return the unsigned byte at offset from the current position, offset < available()
+     */
+    int get(int offset) {
+        return buffer[(int) ((readPos + offset) & mask)] & 0xFF;
+    }
+
+    /**
+     * Read from the stream into the free space of the buffer (one read call).
+     *
+     * @return the number of bytes read, -1 at end of stream
+     */
+    int readFrom(InputStream in) throws IOException {
+        if (available() == buffer.length) {
+            // Only if next() was not called, drop the oldest byte
+            skip();
+        }
+        int pos = (int) (writePos & mask);
+        int len = Math.min(buffer.length - available(), buffer.length - pos);
+        int n = in.read(buffer, pos, len);
+        if (n > 0) {
+            writePos += n;
+        }
+        return n;
+    }
+
+    /**
+     * Decode the next frame in the buffer
+     *
+     * @return the heart rate, {@link #NO_HR} if more bytes must be read
+     */
+    int next() {
+        while (available() > 0) {
+            int len = parser.parseFrame(this);
+            if (len > 0 && len <= available()) {
+                int hr = parser.getHeartRate(this);
+                readPos += len;
+                frames++;
+                resyncing = false;
+                return hr;
+            }
+            if (len == NEED_MORE && available() < buffer.length) {
+                return NO_HR;
+            }
+            // Not a frame, or a frame that will never fit
+            skip();
+        }
+        return NO_HR;
+    }
+
+    private void skip() {
+        if (!resyncing) {
+            resyncing = true;
+            resyncs++;
+        }
+        readPos++;
+        skippedBytes++;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of times the stream was misaligned
+     */
+    long getResyncs() {
+        return resyncs;
+    }
+
+    long getSkippedBytes() {
+        return skippedBytes;
+    }
+}
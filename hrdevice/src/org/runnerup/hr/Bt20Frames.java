@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.hr;
+
+import static org.runnerup.hr.Bt20FrameDecoder.NEED_MORE;
+import static org.runnerup.hr.Bt20FrameDecoder.NO_FRAME;
+
+/**
+ * The frame formats of the Bluetooth 2.0 HR devices, see {@link Bt20FrameDecoder}
+ */
+final class Bt20Frames {
+
+    private Bt20Frames() {
+    }
+
+    /**
+     * Zephyr HxM: fixed 60 byte frames, STX ... CRC ETX
+     */
+    static final class Zephyr implements Bt20FrameDecoder.FrameParser {
+
+        static final int ZEPHYR_HXM_BYTE_STX = 0;
+        static final int ZEPHYR_HXM_BYTE_HR = 12;
+        static final int ZEPHYR_HXM_BYTE_CRC = 58;
+        static final int ZEPHYR_HXM_BYTE_ETX = 59;
+
+        static final int ZEPHYR_START_BYTE = 0x02;
+        static final int ZEPHYR_END_BYTE = 0x03;
+        static final int FRAME_SIZE = ZEPHYR_HXM_BYTE_ETX + 1;
+
+        @Override
+        public int parseFrame(Bt20FrameDecoder in) {
+            if (in.get(ZEPHYR_HXM_BYTE_STX) != ZEPHYR_START_BYTE) {
+                return NO_FRAME;
+            }
+            if (in.available() < FRAME_SIZE) {
+                return NEED_MORE;
+            }
+            // Check ETX (End of Text) and CRC Checksum
+            if (in.get(ZEPHYR_HXM_BYTE_ETX) != ZEPHYR_END_BYTE
+                    || calcCrc8(in, 3, 55) != in.get(ZEPHYR_HXM_BYTE_CRC)
+                    || in.get(ZEPHYR_HXM_BYTE_HR) == 0) {
+                return NO_FRAME;
+            }
+            return FRAME_SIZE;
+        }
+
+        @Override
+        public int getHeartRate(Bt20FrameDecoder in) {
+            return in.get(ZEPHYR_HXM_BYTE_HR);
+        }
+
+        private static int calcCrc8(Bt20FrameDecoder in, @SuppressWarnings("SameParameterValue") int start, @SuppressWarnings("SameParameterValue") int length) {
+            int crc = 0x0;
+
+            for (int i = start; i < (start + length); i++) {
+                crc ^= in.get(i);
+                for (int b = 0; b <= 7; b++) {
+                    if ((crc & 1) != 0) {
+                        crc = ((crc >> 1) ^ 0x8c);
+                    } else {
+                        crc = (crc >> 1);
+                    }
+                }
+            }
+            return crc;
+        }
+    }
+
+    /**
+     * Polar WearLink: 0xFE, length, 0xFF - length, sequence (< 16), status, HR, ...
+     */
+    static final class Polar implements Bt20FrameDecoder.FrameParser {
+
+        static final int START_BYTE = 0xFE;
+        static final int HEADER_SIZE = 4;
+        static final int HR_BYTE = 5;
+
+        @Override
+        public int parseFrame(Bt20FrameDecoder in) {
+            if (in.get(0) != START_BYTE) {
+                return NO_FRAME;
+            }
+            if (in.available() < HEADER_SIZE) {
+                return NEED_MORE;
+            }
+            int len = in.get(1);
+            if ((0xFF - len) != in.get(2) || in.get(3) >= 16 || len <= HR_BYTE) {
+                return NO_FRAME;
+            }
+            if (in.available() < len) {
+                return NEED_MORE;
+            }
+            return len;
+        }
+
+        @Override
+        public int getHeartRate(Bt20FrameDecoder in) {
+            return in.get(HR_BYTE);
+        }
+    }
+
+    /**
+     * SportTracker HRM v1: 250, length << 2, 0xFF - (length << 2), ..., HR at 5
+     */
+    static final class StHRMv1 implements Bt20FrameDecoder.FrameParser {
+
+        static final int START_BYTE = 250;
+        static final int HEADER_SIZE = 3;
+        static final int HR_BYTE = 5;
+
+        @Override
+        public int parseFrame(Bt20FrameDecoder in) {
+            if (in.get(0) != START_BYTE) {
+                return NO_FRAME;
+            }
+            if (in.available() < HEADER_SIZE) {
+                return NEED_MORE;
+            }
+            int b1 = in.get(1);
+            int len = b1 >> 2;
+            if ((0xFF - b1) != in.get(2) || len <= HR_BYTE) {
+                return NO_FRAME;
+            }
+            if (in.available() < len) {
+                return NEED_MORE;
+            }
+            return len;
+        }
+
+        @Override
+        public int getHeartRate(Bt20FrameDecoder in) {
+            return in.get(HR_BYTE);
+        }
+    }
+}
@@ -41,6 +41,43 @@ abstract class BtHRBase implements HRProvider {
     HRProvider.HRClient hrClient;
     Handler hrClientHandler;
 
+    final HRSamplePublisher hrPublisher = new HRSamplePublisher();
+
+    @Override
+    public HRSample getHRSample() {
+        return hrPublisher.get();
+    }
+
+    @Override
+    public void addHRSampleListener(HRSampleListener listener) {
+        hrPublisher.addListener(listener);
+    }
+
+    @Override
+    public void removeHRSampleListener(HRSampleListener listener) {
+        hrPublisher.removeListener(listener);
+    }
+
+    @Override
+    public int getHRValue() {
+        return hrPublisher.get().hrValue;
+    }
+
+    @Override
+    public long getHRValueTimestamp() {
+        return hrPublisher.get().timestamp;
+    }
+
+    @Override
+    public HRData getHRData() {
+        return hrPublisher.getHRData();
+    }
+
+    @Override
+    public int getBatteryLevel() {
+        return hrPublisher.get().batteryLevel;
+    }
+
     void log(final String msg) {
         if (hrClient != null) {
             if(Looper.myLooper() == Looper.getMainLooper()) {
@@ -49,6 +49,14 @@ public interface HRProvider {
         void log(HRProvider src, String msg);
     }
 
+    /**
+     * Pushed the latest {@link HRSample} when the device supplies new values.
+     * Called on the thread receiving data from the device, so it must not block
+     */
+    interface HRSampleListener {
+        void onHRSample(HRSample sample);
+    }
+
     /**
      * @return A human readable name for the {@link HRProvider}
      */
@@ -141,6 +149,19 @@ public interface HRProvider {
      */
     void disconnect();
 
+    /**
+     * @return the most recent heart rate value, its timestamp and the battery level,
+     *          published together. {@link HRSample#NONE} if no device has been connected
+     */
+    HRSample getHRSample();
+
+    /**
+     * Get the new samples pushed instead of polling {@link #getHRSample()}
+     */
+    void addHRSampleListener(HRSampleListener listener);
+
+    void removeHRSampleListener(HRSampleListener listener);
+
     /**
      * @return the most recent heart rate value supplied by the connected device.
      *          0 indicates that no device has been connected (or the user is in a very bad way)
@@ -158,6 +179,12 @@ public interface HRProvider {
      */
     HRData getHRData();
 
+    /**
+     * @return the heart rate samples (with R-R intervals) at the rate they are received
+     *          from the device, or null if the provider does not supply them
+     */
+    HRSampleBuffer getHRSamples();
+
     /**
      * @return The battery level, in percents, of the heart rate monitor device or 0 if
      *          no device has been connected or the device doesn't supply battery information
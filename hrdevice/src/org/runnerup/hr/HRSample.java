@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.hr;
+
+/**
+ * The most recent values from a heart rate device, published together
+ * so that a reader never sees a value with the timestamp of another.
+ *
+ * Immutable, a new instance is published for each update.
+ */
+
+public final class HRSample {
+
+    /**
+     * No device has been connected
+     */
+    public static final HRSample NONE = new HRSample(0, 0, -1);
+
+    /**
+     * Heart rate in bpm, 0 if not available
+     */
+    public final int hrValue;
+
+    /**
+     * Unix time the heart rate was received
+     */
+    public final long timestamp;
+
+    /**
+     * Battery level in percent, -1 if not supplied by the device
+     */
+    public final int batteryLevel;
+
+    HRSample(int hrValue, long timestamp, int batteryLevel) {
+        this.hrValue = hrValue;
+        this.timestamp = timestamp;
+        this.batteryLevel = batteryLevel;
+    }
+
+    @Override
+    public String toString() {
+        return "HRSample{hrValue=" + hrValue + ", timestamp=" + timestamp
+                + ", batteryLevel=" + batteryLevel + '}';
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.hr;
+
+/**
+ * Heart rate samples at the rate they are received from the device, with
+ * the beat to beat (R-R) interval when the device supplies it.
+ *
+ * A ring buffer for one producer (the thread receiving data from the device) and
+ * one consumer, without locks: the samples are written before the write index
+ * is published and read before the read index is published.
+ * When the buffer is full, new samples are dropped (and counted).
+ */
+public class HRSampleBuffer {
+
+    /**
+     * rr value when the sample has no R-R interval
+     */
+    public static final int NO_RR = -1;
+
+    private final int mask;
+    private final long[] time;
+    private final int[] hr;
+    private final int[] rr;
+
+    private volatile long writeIndex = 0;
+    private volatile long readIndex = 0;
+    private volatile long dropped = 0;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public HRSampleBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        time = new long[size];
+        hr = new int[size];
+        rr = new int[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Add a sample, called by the producer only
+     *
+     * @param timestamp unix time the sample was received
+     * @param hrValue heart rate in bpm
+     * @param rrMillis R-R interval in ms or NO_RR
+     * @return false if the buffer was full
+     */
+    public boolean add(long timestamp, int hrValue, int rrMillis) {
+        final long w = writeIndex;
+        if (w - readIndex > mask) {
+            dropped++;
+            return false;
+        }
+        final int i = (int) (w & mask);
+        time[i] = timestamp;
+        hr[i] = hrValue;
+        rr[i] = rrMillis;
+        writeIndex = w + 1;
+        return true;
+    }
+
+    /**
+     * Move the available samples to the arrays, called by the consumer only
+     *
+     * @return the number of samples, at most the length of the arrays
+     */
+    public int drainTo(long[] timeOut, int[] hrOut, int[] rrOut) {
+        final long r = readIndex;
+        final int cnt = (int) Math.min(writeIndex - r, timeOut.length);
+        for (int n = 0; n < cnt; n++) {
+            final int i = (int) ((r + n) & mask);
+            timeOut[n] = time[i];
+            hrOut[n] = hr[i];
+            rrOut[n] = rr[i];
+        }
+        readIndex = r + cnt;
+        return cnt;
+    }
+
+    /**
+     * Discard the available samples, called by the consumer only
+     */
+    public void clear() {
+        readIndex = writeIndex;
+    }
+
+    /**
+     * @return number of samples dropped since the buffer was created
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.runnerup.hr;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publish the latest HRSample from the threads receiving data from the device,
+ * read without locks from any thread, and push it to the listeners.
+ */
+
+class HRSamplePublisher {
+
+    private final AtomicReference<HRSample> sample = new AtomicReference<>(HRSample.NONE);
+    private final CopyOnWriteArrayList<HRProvider.HRSampleListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    HRSample get() {
+        return sample.get();
+    }
+
+    HRData getHRData() {
+        HRSample s = sample.get();
+        if (s.hrValue <= 0) {
+            return null;
+        }
+        return new HRData().setHeartRate(s.hrValue).setTimestampEstimate(s.timestamp);
+    }
+
+    void publishHeartRate(int hrValue, long timestamp) {
+        HRSample prev, next;
+        do {
+            prev = sample.get();
+            next = new HRSample(hrValue, timestamp, prev.batteryLevel);
+        } while (!sample.compareAndSet(prev, next));
+        notifyListeners(next);
+    }
+
+    void publishBatteryLevel(int batteryLevel) {
+        HRSample prev, next;
+        do {
+            prev = sample.get();
+            next = new HRSample(prev.hrValue, prev.timestamp, batteryLevel);
+        } while (!sample.compareAndSet(prev, next));
+        notifyListeners(next);
+    }
+
+    private void notifyListeners(HRSample s) {
+        for (HRProvider.HRSampleListener l : listeners) {
+            l.onHRSample(s);
+        }
+    }
+
+    void addListener(HRProvider.HRSampleListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(HRProvider.HRSampleListener listener) {
+        listeners.remove(listener);
+    }
+}
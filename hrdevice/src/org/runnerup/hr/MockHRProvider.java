@@ -100,6 +100,7 @@ public class MockHRProvider implements HRProvider {
                 if (mIsConnecting) {
                     mIsConnected = true;
                     mIsConnecting = false;
+                    hrPublisher.publishBatteryLevel((int) (100 * Math.random()));
                     hrClient.onConnectResult(true);
                     hrClientHandler.postDelayed(hrUpdate, 750);
                 }
@@ -110,8 +111,7 @@ public class MockHRProvider implements HRProvider {
     private final Runnable hrUpdate = new Runnable() {
         @Override
         public void run() {
-            hrValue = (int) (150 + 40 * Math.random());
-            hrTimestamp = System.currentTimeMillis();
+            hrPublisher.publishHeartRate((int) (150 + 40 * Math.random()), System.currentTimeMillis());
             if (mIsConnected) {
                 hrClientHandler.postDelayed(hrUpdate, 750);
             }
@@ -124,31 +124,46 @@ public class MockHRProvider implements HRProvider {
         mIsConnected = false;
     }
 
-    private int hrValue = 0;
-    private long hrTimestamp = 0;
+    private final HRSamplePublisher hrPublisher = new HRSamplePublisher();
+
+    @Override
+    public HRSample getHRSample() {
+        return hrPublisher.get();
+    }
+
+    @Override
+    public void addHRSampleListener(HRSampleListener listener) {
+        hrPublisher.addListener(listener);
+    }
+
+    @Override
+    public void removeHRSampleListener(HRSampleListener listener) {
+        hrPublisher.removeListener(listener);
+    }
 
     @Override
     public int getHRValue() {
-        return hrValue;
+        return hrPublisher.get().hrValue;
     }
 
     @Override
     public long getHRValueTimestamp() {
-        return hrTimestamp;
+        return hrPublisher.get().timestamp;
     }
 
     @Override
     public HRData getHRData() {
-        if (hrValue <= 0) {
-            return null;
-        }
+        return hrPublisher.getHRData();
+    }
 
-        return new HRData().setHeartRate(hrValue).setTimestampEstimate(hrTimestamp);
+    @Override
+    public HRSampleBuffer getHRSamples() {
+        return null;
     }
 
     @Override
     public int getBatteryLevel() {
-        return (int) (100 * Math.random());
+        return hrPublisher.get().batteryLevel;
     }
 
     @Override
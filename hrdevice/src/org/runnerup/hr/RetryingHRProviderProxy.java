@@ -267,6 +267,26 @@ public class RetryingHRProviderProxy implements HRProvider, HRProvider.HRClient
         return provider.getHRData();
     }
 
+    @Override
+    public HRSample getHRSample() {
+        return provider.getHRSample();
+    }
+
+    @Override
+    public void addHRSampleListener(HRSampleListener listener) {
+        provider.addHRSampleListener(listener);
+    }
+
+    @Override
+    public void removeHRSampleListener(HRSampleListener listener) {
+        provider.removeHRSampleListener(listener);
+    }
+
+    @Override
+    public HRSampleBuffer getHRSamples() {
+        return provider.getHRSamples();
+    }
+
     @Override
     public int getBatteryLevel() {
         return provider.getBatteryLevel();
@@ -0,0 +1,370 @@
+package org.runnerup.hr;
+/*
+ * Copyright (C) 2018 jonas.oreland@gmail.com
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+//Hint: Local Unit Test can use System.out.print for printouts
+
+public class Bt20FrameDecoderTest {
+
+    private interface FrameWriter {
+        byte[] frame(int hr, int seq);
+    }
+
+    private static final FrameWriter ZEPHYR = new FrameWriter() {
+        @Override
+        public byte[] frame(int hr, int seq) {
+            byte[] b = new byte[60];
+            b[0] = 0x02;
+            b[1] = 0x26;
+            b[2] = 55;
+            for (int i = 3; i < 58; i++) {
+                b[i] = (byte) (0x40 + ((seq + i) & 0x1F));
+            }
+            b[12] = (byte) hr;
+            b[58] = (byte) crc8(b, 3, 55);
+            b[59] = 0x03;
+            return b;
+        }
+    };
+
+    private static final FrameWriter POLAR = new FrameWriter() {
+        @Override
+        public byte[] frame(int hr, int seq) {
+            int len = 6 + 2 * (seq % 3); // with 0-2 RR intervals
+            byte[] b = new byte[len];
+            b[0] = (byte) 0xFE;
+            b[1] = (byte) len;
+            b[2] = (byte) (0xFF - len);
+            b[3] = (byte) (seq & 0x0F);
+            b[4] = (byte) 0xF1;
+            b[5] = (byte) hr;
+            for (int i = 6; i < len; i++) {
+                b[i] = (byte) (0x10 + i);
+            }
+            return b;
+        }
+    };
+
+    private static final FrameWriter STHRM_V1 = new FrameWriter() {
+        @Override
+        public byte[] frame(int hr, int seq) {
+            int len = 17;
+            byte[] b = new byte[len];
+            b[0] = (byte) 250;
+            b[1] = (byte) (len << 2);
+            b[2] = (byte) (0xFF - (len << 2));
+            b[3] = (byte) seq;
+            b[4] = 0x11;
+            b[5] = (byte) hr;
+            for (int i = 6; i < len; i++) {
+                b[i] = (byte) (0x20 + i);
+            }
+            return b;
+        }
+    };
+
+    private static int crc8(byte[] buffer, int start, int length) {
+        int crc = 0;
+        for (int i = start; i < start + length; i++) {
+            crc ^= buffer[i] & 0xFF;
+            for (int b = 0; b <= 7; b++) {
+                crc = (crc & 1) != 0 ? (crc >> 1) ^ 0x8c : crc >> 1;
+            }
+        }
+        return crc;
+    }
+
+    /**
+     * Deliver the stream in random chunks, like a socket
+     */
+    private static class ChunkedInputStream extends InputStream {
+        private final byte[] data;
+        private final Random random;
+        private int pos = 0;
+
+        ChunkedInputStream(byte[] data, long seed) {
+            this.data = data;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1 + random.nextInt(64)), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+
+    private static class Replay {
+        final List<Integer> hr = new ArrayList<>();
+        long frames;
+        long resyncs;
+    }
+
+    private static Replay replay(Bt20FrameDecoder.FrameParser parser, byte[] stream, long seed)
+            throws IOException {
+        Replay result = new Replay();
+        Bt20FrameDecoder decoder = new Bt20FrameDecoder(parser, 512);
+        InputStream in = new ChunkedInputStream(stream, seed);
+        while (decoder.readFrom(in) != -1) {
+            int hr;
+            while ((hr = decoder.next()) != Bt20FrameDecoder.NO_HR) {
+                result.hr.add(hr);
+            }
+        }
+        result.frames = decoder.getFrames();
+        result.resyncs = decoder.getResyncs();
+        return result;
+    }
+
+    private static int hr(int i) {
+        return 60 + (i * 7) % 140;
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] b) {
+        out.write(b, 0, b.length);
+    }
+
+    // Bytes that are not a start byte for any of the formats
+    private static byte[] garbage(Random random, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) {
+            b[i] = (byte) (0x30 + random.nextInt(0x40));
+        }
+        return b;
+    }
+
+    private static void shouldDecodeAlignedStream(Bt20FrameDecoder.FrameParser parser, FrameWriter writer)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            write(out, writer.frame(hr(i), i));
+            expected.add(hr(i));
+        }
+        Replay r = replay(parser, out.toByteArray(), 1);
+        assertEquals(expected, r.hr);
+        assertEquals(0, r.resyncs);
+    }
+
+    private static void shouldResyncAfterGarbage(Bt20FrameDecoder.FrameParser parser, FrameWriter writer)
+            throws IOException {
+        Random random = new Random(4711);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Integer> expected = new ArrayList<>();
+        int garbageRuns = 0;
+        // Starts in the middle of a frame
+        byte[] first = writer.frame(hr(0), 0);
+        out.write(first, 3, first.length - 3);
+        garbageRuns++;
+        for (int i = 1; i < 500; i++) {
+            if (i % 10 == 0) {
+                write(out, garbage(random, 1 + random.nextInt(100)));
+                garbageRuns++;
+            }
+            write(out, writer.frame(hr(i), i));
+            expected.add(hr(i));
+        }
+        Replay r = replay(parser, out.toByteArray(), 2);
+        assertEquals(expected, r.hr);
+        assertEquals(garbageRuns, r.resyncs);
+    }
+
+    /**
+     * A frame with a corrupted header is dropped, the frame after it is decoded
+     */
+    private static void shouldDropCorruptedFrames(Bt20FrameDecoder.FrameParser parser, FrameWriter writer,
+                                                  int corruptIndex) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Integer> expected = new ArrayList<>();
+        int corrupted = 0;
+        for (int i = 0; i < 500; i++) {
+            byte[] b = writer.frame(hr(i), i);
+            if (i % 7 == 3) {
+                b[corruptIndex] ^= 0x01;
+                corrupted++;
+            } else {
+                expected.add(hr(i));
+            }
+            write(out, b);
+        }
+        Replay r = replay(parser, out.toByteArray(), 3);
+        assertEquals(expected, r.hr);
+        assertEquals(corrupted, r.resyncs);
+    }
+
+    @Test
+    public void zephyr() throws IOException {
+        shouldDecodeAlignedStream(new Bt20Frames.Zephyr(), ZEPHYR);
+        shouldResyncAfterGarbage(new Bt20Frames.Zephyr(), ZEPHYR);
+        // payload, so the CRC check fails
+        shouldDropCorruptedFrames(new Bt20Frames.Zephyr(), ZEPHYR, 20);
+    }
+
+    /**
+     * Read a hex dump fixture from test/resources, "hr <bpm>" lines are the expected values
+     */
+    private static byte[] readFixture(String name, List<Integer> expected) throws IOException {
+        InputStream in = Bt20FrameDecoderTest.class.getResourceAsStream(name);
+        assertNotNull(name, in);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("hr ")) {
+                    expected.add(Integer.parseInt(line.substring(3)));
+                    continue;
+                }
+                for (String b : line.split("\\s+")) {
+                    out.write(Integer.parseInt(b, 16));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void zephyrFixture() throws IOException {
+        List<Integer> expected = new ArrayList<>();
+        byte[] stream = readFixture("zephyr_hxm.txt", expected);
+        for (long seed = 0; seed < 10; seed++) {
+            Replay r = replay(new Bt20Frames.Zephyr(), stream, seed);
+            assertEquals(expected, r.hr);
+            assertEquals(expected.size(), r.frames);
+        }
+    }
+
+    @Test
+    public void zephyrTruncatedFrame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] b = ZEPHYR.frame(hr(i), i);
+            if (i % 5 == 2) {
+                out.write(b, 0, 30);
+            } else {
+                write(out, b);
+                expected.add(hr(i));
+            }
+        }
+        Replay r = replay(new Bt20Frames.Zephyr(), out.toByteArray(), 4);
+        assertEquals(expected, r.hr);
+        assertEquals(20, r.resyncs);
+    }
+
+    @Test
+    public void polar() throws IOException {
+        shouldDecodeAlignedStream(new Bt20Frames.Polar(), POLAR);
+        shouldResyncAfterGarbage(new Bt20Frames.Polar(), POLAR);
+        // length complement
+        shouldDropCorruptedFrames(new Bt20Frames.Polar(), POLAR, 2);
+    }
+
+    @Test
+    public void stHRMv1() throws IOException {
+        shouldDecodeAlignedStream(new Bt20Frames.StHRMv1(), STHRM_V1);
+        shouldResyncAfterGarbage(new Bt20Frames.StHRMv1(), STHRM_V1);
+        shouldDropCorruptedFrames(new Bt20Frames.StHRMv1(), STHRM_V1, 2);
+    }
+
+    @Test
+    public void shouldSkipFrameLongerThanBuffer() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = POLAR.frame(hr(0), 0);
+        write(out, b);
+        Bt20FrameDecoder decoder = new Bt20FrameDecoder(new Bt20Frames.Polar(), 4);
+        InputStream in = new ChunkedInputStream(out.toByteArray(), 5);
+        List<Integer> hr = new ArrayList<>();
+        while (decoder.readFrom(in) != -1) {
+            int val;
+            while ((val = decoder.next()) != Bt20FrameDecoder.NO_HR) {
+                hr.add(val);
+            }
+        }
+        assertEquals(0, hr.size());
+        assertEquals(1, decoder.getResyncs());
+    }
+
+    /**
+     * Not a strict benchmark, prints the decoded frames per second
+     * for streams with 1% corrupted frames and some garbage
+     */
+    @Test
+    public void printFramesPerSecond() throws IOException {
+        String[] names = {"Zephyr", "Polar", "StHRMv1"};
+        FrameWriter[] writers = {ZEPHYR, POLAR, STHRM_V1};
+        // header complement for Polar and StHRMv1, payload (CRC) for Zephyr
+        int[] corruptIndex = {20, 2, 2};
+        for (int p = 0; p < names.length; p++) {
+            Random random = new Random(p);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int frames = 0;
+            while (out.size() < 4 * 1024 * 1024) {
+                byte[] b = writers[p].frame(hr(frames), frames);
+                if (random.nextInt(100) == 0) {
+                    b[corruptIndex[p]] ^= 0x01;
+                }
+                if (random.nextInt(100) == 0) {
+                    write(out, garbage(random, 1 + random.nextInt(20)));
+                }
+                write(out, b);
+                frames++;
+            }
+            byte[] stream = out.toByteArray();
+
+            Bt20FrameDecoder.FrameParser parser = p == 0 ? new Bt20Frames.Zephyr()
+                    : p == 1 ? new Bt20Frames.Polar() : new Bt20Frames.StHRMv1();
+            replay(parser, stream, 6); // warm up
+            long start = System.nanoTime();
+            Replay r = replay(parser, stream, 6);
+            long ns = Math.max(1, System.nanoTime() - start);
+            System.out.println(names[p] + ": " + r.frames + "/" + frames + " frames, "
+                    + r.resyncs + " resyncs, " + (r.frames * 1000000000L / ns) + " frames/s, "
+                    + (stream.length * 1000L / ns) + " MB/s");
+        }
+    }
+}